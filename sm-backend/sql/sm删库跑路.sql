@@ -1,6 +1,12 @@
 SET FOREIGN_KEY_CHECKS = 0;
 
 DROP TABLE IF EXISTS
+  `attachment_upload`,
+  `notice_archive`,
+  `notice_user_index`,
+  `notice_broadcast`,
+  `notice_outbox`,
+  `token_revocation`,
   `attachment`,
   `user_student`,
   `user_advisor`,
@@ -0,0 +1,124 @@
+-- 已有数据库的增量升级脚本，按顺序执行
+
+-- 密码改为 BCrypt 哈希存储（旧明文密码在用户首次登录时自动升级）
+ALTER TABLE `user_student` MODIFY `passwd` VARCHAR(100) NOT NULL COMMENT '密码（BCrypt哈希）';
+ALTER TABLE `user_advisor` MODIFY `passwd` VARCHAR(100) NOT NULL COMMENT '密码（BCrypt哈希）';
+ALTER TABLE `user_admin` MODIFY `passwd` VARCHAR(100) NOT NULL COMMENT '密码（BCrypt哈希）';
+
+-- Token 吊销记录表（登出、强制下线）
+CREATE TABLE IF NOT EXISTS `token_revocation` (
+  `revoke_id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '吊销编号（各节点按此增量同步）',
+  `revoke_type` ENUM('jti','user') NOT NULL COMMENT '吊销类型：jti单个Token，user用户全部Token',
+  `revoke_key` VARCHAR(64) NOT NULL COMMENT 'Token的jti 或 userType:userId',
+  `not_before` DATETIME NULL COMMENT '按用户吊销时，不晚于该时间签发的Token全部失效',
+  `expire_time` DATETIME NOT NULL COMMENT '记录失效时间（对应Token全部过期后可清理）',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '吊销时间',
+  PRIMARY KEY (`revoke_id`) USING BTREE,
+  INDEX `idx_expire_time` (`expire_time`)
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
+
+-- 通知发件箱表（审批通知异步生成）
+CREATE TABLE IF NOT EXISTS `notice_outbox` (
+  `outbox_id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '发件箱编号',
+  `payload` TEXT NOT NULL COMMENT '待发送通知（JSON数组）',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '写入时间',
+  PRIMARY KEY (`outbox_id`) USING BTREE
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
+
+-- 广播通知（按范围发送）
+CREATE TABLE IF NOT EXISTS `notice_broadcast` (
+  `broadcast_id` CHAR(18) NOT NULL COMMENT '广播通知编号',
+  `title` VARCHAR(20) NOT NULL COMMENT '通知标题',
+  `content` TEXT NOT NULL COMMENT '通知内容',
+  `notice_type` VARCHAR(20) NOT NULL COMMENT '通知类型',
+  `scope_type` ENUM('all','role','department','major','class') NOT NULL COMMENT '发送范围：全体、角色、院系、专业、班级',
+  `scope_value` VARCHAR(20) NULL COMMENT '范围取值：角色为student/advisor/admin，其余为院系、专业、班级名称',
+  `publish_user` VARCHAR(20) NOT NULL COMMENT '发布人',
+  `publish_user_id` CHAR(10) NULL COMMENT '发布人ID',
+  `publish_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '发布时间',
+  `priority` ENUM('普通','重要') DEFAULT '普通' COMMENT '优先级',
+  `read_bitmap` MEDIUMBLOB NULL COMMENT '已读用户位图（RoaringBitmap，下标为用户序号）',
+  PRIMARY KEY (`broadcast_id`) USING BTREE,
+  CHECK (broadcast_id LIKE 'B_________________')
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
+
+CREATE TABLE IF NOT EXISTS `notice_user_index` (
+  `user_index` INT NOT NULL AUTO_INCREMENT COMMENT '用户序号',
+  `user_type` ENUM('student','advisor','admin') NOT NULL COMMENT '用户类型',
+  `user_id` CHAR(10) NOT NULL COMMENT '用户ID',
+  PRIMARY KEY (`user_index`) USING BTREE,
+  UNIQUE INDEX `uk_user` (`user_type`, `user_id`)
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
+
+-- 通知按目标用户查询、统计未读数
+ALTER TABLE `notice` ADD INDEX `idx_target_user` (`target_user`, `is_read`);
+
+-- 通知归档表（已读旧通知定时迁入，压缩行格式存储）
+CREATE TABLE IF NOT EXISTS `notice_archive` (
+  `notice_id` CHAR(18) NOT NULL COMMENT '通知编号',
+  `title` VARCHAR(20) NOT NULL COMMENT '通知标题',
+  `content` TEXT NOT NULL COMMENT '通知内容',
+  `notice_type` VARCHAR(20) NOT NULL COMMENT '通知类型',
+  `target_user` CHAR(10) NOT NULL COMMENT '目标用户ID',
+  `target_type` ENUM('student','advisor') NOT NULL DEFAULT 'student' COMMENT '目标用户类型',
+  `publish_user` VARCHAR(20) NOT NULL COMMENT '发布人',
+  `publish_user_id` CHAR(10) NULL COMMENT '发布人ID',
+  `publish_time` DATETIME NOT NULL COMMENT '发布时间',
+  `priority` ENUM('普通','重要') DEFAULT '普通' COMMENT '优先级',
+  `read_time` DATETIME NULL COMMENT '阅读时间',
+  `archive_time` DATETIME NOT NULL COMMENT '归档时间',
+  PRIMARY KEY (`notice_id`) USING BTREE,
+  INDEX `idx_target_user` (`target_user`, `notice_id`)
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Compressed KEY_BLOCK_SIZE = 8;
+
+-- 发件箱按业务记录合并通知
+ALTER TABLE `notice_outbox` ADD COLUMN `biz_key` VARCHAR(40) NULL COMMENT '业务记录标识（同一记录的通知合并为摘要）' AFTER `payload`,
+  ADD INDEX `idx_biz_key` (`biz_key`);
+
+-- 审批通知只存模板编码和参数，读取时渲染
+ALTER TABLE `notice` MODIFY `title` VARCHAR(20) NULL COMMENT '通知标题（使用模板时为空）',
+  MODIFY `content` TEXT NULL COMMENT '通知内容（使用模板时为空）',
+  ADD COLUMN `template_code` VARCHAR(32) NULL COMMENT '通知模板编码' AFTER `content`,
+  ADD COLUMN `template_params` VARCHAR(255) NULL COMMENT '模板参数（JSON数组）' AFTER `template_code`;
+ALTER TABLE `notice_archive` MODIFY `title` VARCHAR(20) NULL COMMENT '通知标题（使用模板时为空）',
+  MODIFY `content` TEXT NULL COMMENT '通知内容（使用模板时为空）',
+  ADD COLUMN `template_code` VARCHAR(32) NULL COMMENT '通知模板编码' AFTER `content`,
+  ADD COLUMN `template_params` VARCHAR(255) NULL COMMENT '模板参数（JSON数组）' AFTER `template_code`;
+
+-- 附件内容哈希（下载 ETag），旧附件首次下载时补算
+ALTER TABLE `attachment` ADD COLUMN `content_hash` CHAR(64) NULL COMMENT '文件内容SHA-256' AFTER `file_type`;
+
+-- 附件按内容寻址存储，相同哈希的记录共用一个文件
+ALTER TABLE `attachment` ADD INDEX `idx_content_hash` (`content_hash`);
+
+-- 分片上传任务（断点续传）
+CREATE TABLE IF NOT EXISTS `attachment_upload` (
+  `upload_id` CHAR(20) NOT NULL COMMENT '上传任务编号',
+  `file_name` VARCHAR(100) NOT NULL COMMENT '原始文件名',
+  `file_type` VARCHAR(50) NOT NULL COMMENT '文件MIME类型',
+  `file_size` BIGINT NOT NULL COMMENT '文件大小(字节)',
+  `chunk_size` BIGINT NOT NULL COMMENT '分片大小(字节)',
+  `received` BIGINT NOT NULL DEFAULT 0 COMMENT '已接收字节数',
+  `related_id` VARCHAR(20) NOT NULL COMMENT '关联业务ID',
+  `related_type` ENUM('award','punishment','statusChange','leaveSchool') NOT NULL COMMENT '关联业务类型',
+  `upload_user_id` CHAR(10) NOT NULL COMMENT '上传用户ID',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '最后接收分片时间',
+  PRIMARY KEY (`upload_id`) USING BTREE,
+  INDEX `idx_update_time` (`update_time`)
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
+
+-- Token 吊销记录按吊销时间增量同步，签发时间比较精确到毫秒
+ALTER TABLE `token_revocation` MODIFY `revoke_id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '吊销编号',
+  MODIFY `not_before` DATETIME(3) NULL COMMENT '按用户吊销时，不晚于该时间（毫秒）签发的Token全部失效',
+  MODIFY `create_time` DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '吊销时间（各节点按此增量同步）',
+  ADD INDEX `idx_create_time` (`create_time`);
+
+-- 通知发件箱投递失败后退避重试，超过次数后搁置
+ALTER TABLE `notice_outbox` ADD COLUMN `attempts` INT NOT NULL DEFAULT 0 COMMENT '投递失败次数' AFTER `biz_key`,
+  ADD COLUMN `next_attempt_at` DATETIME NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次投递时间（为空表示失败次数超限已搁置）' AFTER `attempts`,
+  ADD COLUMN `last_error` VARCHAR(500) NULL COMMENT '最近一次投递失败原因' AFTER `next_attempt_at`,
+  ADD INDEX `idx_next_attempt_at` (`next_attempt_at`);
+
+-- 分片上传任务记录保存分片临时文件的节点，其他节点收到的分片请求直接拒绝
+ALTER TABLE `attachment_upload` ADD COLUMN `owner_node` TINYINT NULL COMMENT '保存分片临时文件的节点号，首个分片写入时认领' AFTER `upload_user_id`;
@@ -163,8 +163,10 @@ CREATE TABLE `leave_school` (
 DROP TABLE IF EXISTS `notice`;
 CREATE TABLE `notice` (
   `notice_id` CHAR(18) NOT NULL COMMENT '通知编号',
-  `title` VARCHAR(20) NOT NULL COMMENT '通知标题',
-  `content` TEXT NOT NULL COMMENT '通知内容',
+  `title` VARCHAR(20) NULL COMMENT '通知标题（使用模板时为空）',
+  `content` TEXT NULL COMMENT '通知内容（使用模板时为空）',
+  `template_code` VARCHAR(32) NULL COMMENT '通知模板编码',
+  `template_params` VARCHAR(255) NULL COMMENT '模板参数（JSON数组）',
   `notice_type` VARCHAR(20) NOT NULL COMMENT '通知类型',
   `target_user` CHAR(10) NOT NULL COMMENT '目标用户ID',
   `target_type` ENUM('student','advisor') NOT NULL DEFAULT 'student' COMMENT '目标用户类型',
@@ -175,6 +177,7 @@ CREATE TABLE `notice` (
   `is_read` TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否已读：0未读，1已读',
   `read_time` DATETIME NULL COMMENT '阅读时间',
   PRIMARY KEY (`notice_id`) USING BTREE,
+  INDEX `idx_target_user` (`target_user`, `is_read`),
   CHECK (notice_id LIKE 'N_________________')
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
 
@@ -183,15 +186,36 @@ DROP TABLE IF EXISTS `attachment`;
 CREATE TABLE `attachment` (
   `attachment_id` CHAR(20) NOT NULL COMMENT '附件编号',
   `file_name` VARCHAR(100) NOT NULL COMMENT '原始文件名',
-  `file_path` VARCHAR(500) NOT NULL COMMENT '存储路径',
+  `file_path` VARCHAR(500) NOT NULL COMMENT '存储路径（objects/ab/cd/内容哈希，相同内容共用）',
   `file_size` BIGINT NOT NULL COMMENT '文件大小(字节)',
   `file_type` VARCHAR(50) NOT NULL COMMENT '文件MIME类型',
+  `content_hash` CHAR(64) NULL COMMENT '文件内容SHA-256',
   `related_id` VARCHAR(20) NOT NULL COMMENT '关联业务ID',
   `related_type` ENUM('award','punishment','statusChange','leaveSchool') NOT NULL COMMENT '关联业务类型',
   `upload_user_id` CHAR(10) NOT NULL COMMENT '上传用户ID',
   `upload_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '上传时间',
   PRIMARY KEY (`attachment_id`) USING BTREE,
-  INDEX `idx_related` (`related_id`, `related_type`)
+  INDEX `idx_related` (`related_id`, `related_type`),
+  INDEX `idx_content_hash` (`content_hash`)
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
+
+-- 分片上传任务表（断点续传）
+DROP TABLE IF EXISTS `attachment_upload`;
+CREATE TABLE `attachment_upload` (
+  `upload_id` CHAR(20) NOT NULL COMMENT '上传任务编号',
+  `file_name` VARCHAR(100) NOT NULL COMMENT '原始文件名',
+  `file_type` VARCHAR(50) NOT NULL COMMENT '文件MIME类型',
+  `file_size` BIGINT NOT NULL COMMENT '文件大小(字节)',
+  `chunk_size` BIGINT NOT NULL COMMENT '分片大小(字节)',
+  `received` BIGINT NOT NULL DEFAULT 0 COMMENT '已接收字节数',
+  `related_id` VARCHAR(20) NOT NULL COMMENT '关联业务ID',
+  `related_type` ENUM('award','punishment','statusChange','leaveSchool') NOT NULL COMMENT '关联业务类型',
+  `upload_user_id` CHAR(10) NOT NULL COMMENT '上传用户ID',
+  `owner_node` TINYINT NULL COMMENT '保存分片临时文件的节点号，首个分片写入时认领',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '最后接收分片时间',
+  PRIMARY KEY (`upload_id`) USING BTREE,
+  INDEX `idx_update_time` (`update_time`)
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
 
 -- 操作日志表（包含登录日志和操作日志）
@@ -227,7 +251,7 @@ DROP TABLE IF EXISTS `user_student`;
 CREATE TABLE `user_student` (
   `user_id` CHAR(10) NOT NULL COMMENT '用户ID',
   `user_name` VARCHAR(10) NOT NULL COMMENT '用户名',
-  `passwd` VARCHAR(20) NOT NULL COMMENT '密码',
+  `passwd` VARCHAR(100) NOT NULL COMMENT '密码（BCrypt哈希）',
   `phone` VARCHAR(11) NOT NULL COMMENT '手机号码',
   `email` VARCHAR(50) NOT NULL COMMENT '邮箱',
   `status` ENUM('active','inactive') DEFAULT 'active' COMMENT '状态',
@@ -244,7 +268,7 @@ DROP TABLE IF EXISTS `user_advisor`;
 CREATE TABLE `user_advisor` (
   `user_id` CHAR(10) NOT NULL COMMENT '用户ID',
   `user_name` VARCHAR(10) NOT NULL COMMENT '用户名',
-  `passwd` VARCHAR(20) NOT NULL COMMENT '密码',
+  `passwd` VARCHAR(100) NOT NULL COMMENT '密码（BCrypt哈希）',
   `phone` VARCHAR(11) NOT NULL COMMENT '手机号码',
   `email` VARCHAR(50) NOT NULL COMMENT '邮箱',
   `status` ENUM('active','inactive') DEFAULT 'active' COMMENT '状态',
@@ -261,7 +285,7 @@ DROP TABLE IF EXISTS `user_admin`;
 CREATE TABLE `user_admin` (
   `user_id` CHAR(10) NOT NULL COMMENT '用户ID',
   `user_name` VARCHAR(10) NOT NULL COMMENT '用户名',
-  `passwd` VARCHAR(20) NOT NULL COMMENT '密码',
+  `passwd` VARCHAR(100) NOT NULL COMMENT '密码（BCrypt哈希）',
   `role` ENUM('宿管管理员','图书馆管理员','财务处管理员','教务管理员') DEFAULT '教务管理员' COMMENT '管理员角色',
   `phone` VARCHAR(11) NOT NULL COMMENT '手机号码',
   `email` VARCHAR(50) NOT NULL COMMENT '邮箱',
@@ -272,4 +296,82 @@ CREATE TABLE `user_admin` (
   UNIQUE INDEX `phone`(`phone` ASC) USING BTREE,
   UNIQUE INDEX `email`(`email` ASC) USING BTREE,
   CHECK (user_id LIKE 'G_________')
-) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
\ No newline at end of file
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
+
+-- Token 吊销记录表
+DROP TABLE IF EXISTS `token_revocation`;
+CREATE TABLE `token_revocation` (
+  `revoke_id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '吊销编号',
+  `revoke_type` ENUM('jti','user') NOT NULL COMMENT '吊销类型：jti单个Token，user用户全部Token',
+  `revoke_key` VARCHAR(64) NOT NULL COMMENT 'Token的jti 或 userType:userId',
+  `not_before` DATETIME(3) NULL COMMENT '按用户吊销时，不晚于该时间（毫秒）签发的Token全部失效',
+  `expire_time` DATETIME NOT NULL COMMENT '记录失效时间（对应Token全部过期后可清理）',
+  `create_time` DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '吊销时间（各节点按此增量同步）',
+  PRIMARY KEY (`revoke_id`) USING BTREE,
+  INDEX `idx_create_time` (`create_time`),
+  INDEX `idx_expire_time` (`expire_time`)
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
+
+-- 通知发件箱表（审批更新与待发送通知同一事务提交，由后台任务批量生成通知）
+DROP TABLE IF EXISTS `notice_outbox`;
+CREATE TABLE `notice_outbox` (
+  `outbox_id` BIGINT NOT NULL AUTO_INCREMENT COMMENT '发件箱编号',
+  `payload` TEXT NOT NULL COMMENT '待发送通知（JSON数组）',
+  `biz_key` VARCHAR(40) NULL COMMENT '业务记录标识（同一记录的通知合并为摘要）',
+  `attempts` INT NOT NULL DEFAULT 0 COMMENT '投递失败次数',
+  `next_attempt_at` DATETIME NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次投递时间（为空表示失败次数超限已搁置）',
+  `last_error` VARCHAR(500) NULL COMMENT '最近一次投递失败原因',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '写入时间',
+  PRIMARY KEY (`outbox_id`) USING BTREE,
+  INDEX `idx_biz_key` (`biz_key`),
+  INDEX `idx_next_attempt_at` (`next_attempt_at`)
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
+
+-- 广播通知表（按范围发送，只存一份，已读状态以位图记录）
+DROP TABLE IF EXISTS `notice_broadcast`;
+CREATE TABLE `notice_broadcast` (
+  `broadcast_id` CHAR(18) NOT NULL COMMENT '广播通知编号',
+  `title` VARCHAR(20) NOT NULL COMMENT '通知标题',
+  `content` TEXT NOT NULL COMMENT '通知内容',
+  `notice_type` VARCHAR(20) NOT NULL COMMENT '通知类型',
+  `scope_type` ENUM('all','role','department','major','class') NOT NULL COMMENT '发送范围：全体、角色、院系、专业、班级',
+  `scope_value` VARCHAR(20) NULL COMMENT '范围取值：角色为student/advisor/admin，其余为院系、专业、班级名称',
+  `publish_user` VARCHAR(20) NOT NULL COMMENT '发布人',
+  `publish_user_id` CHAR(10) NULL COMMENT '发布人ID',
+  `publish_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '发布时间',
+  `priority` ENUM('普通','重要') DEFAULT '普通' COMMENT '优先级',
+  `read_bitmap` MEDIUMBLOB NULL COMMENT '已读用户位图（RoaringBitmap，下标为用户序号）',
+  PRIMARY KEY (`broadcast_id`) USING BTREE,
+  CHECK (broadcast_id LIKE 'B_________________')
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
+
+-- 通知用户序号表（为用户分配连续整数序号，用作已读位图下标）
+DROP TABLE IF EXISTS `notice_user_index`;
+CREATE TABLE `notice_user_index` (
+  `user_index` INT NOT NULL AUTO_INCREMENT COMMENT '用户序号',
+  `user_type` ENUM('student','advisor','admin') NOT NULL COMMENT '用户类型',
+  `user_id` CHAR(10) NOT NULL COMMENT '用户ID',
+  PRIMARY KEY (`user_index`) USING BTREE,
+  UNIQUE INDEX `uk_user` (`user_type`, `user_id`)
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Dynamic;
+
+-- 通知归档表（已读且超过保留期的通知由定时任务从 notice 表迁入，压缩行格式存储）
+DROP TABLE IF EXISTS `notice_archive`;
+CREATE TABLE `notice_archive` (
+  `notice_id` CHAR(18) NOT NULL COMMENT '通知编号',
+  `title` VARCHAR(20) NULL COMMENT '通知标题（使用模板时为空）',
+  `content` TEXT NULL COMMENT '通知内容（使用模板时为空）',
+  `template_code` VARCHAR(32) NULL COMMENT '通知模板编码',
+  `template_params` VARCHAR(255) NULL COMMENT '模板参数（JSON数组）',
+  `notice_type` VARCHAR(20) NOT NULL COMMENT '通知类型',
+  `target_user` CHAR(10) NOT NULL COMMENT '目标用户ID',
+  `target_type` ENUM('student','advisor') NOT NULL DEFAULT 'student' COMMENT '目标用户类型',
+  `publish_user` VARCHAR(20) NOT NULL COMMENT '发布人',
+  `publish_user_id` CHAR(10) NULL COMMENT '发布人ID',
+  `publish_time` DATETIME NOT NULL COMMENT '发布时间',
+  `priority` ENUM('普通','重要') DEFAULT '普通' COMMENT '优先级',
+  `read_time` DATETIME NULL COMMENT '阅读时间',
+  `archive_time` DATETIME NOT NULL COMMENT '归档时间',
+  PRIMARY KEY (`notice_id`) USING BTREE,
+  INDEX `idx_target_user` (`target_user`, `notice_id`)
+) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_0900_ai_ci ROW_FORMAT = Compressed KEY_BLOCK_SIZE = 8;
\ No newline at end of file
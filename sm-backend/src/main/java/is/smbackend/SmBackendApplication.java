@@ -3,9 +3,11 @@ package is.smbackend;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("is.smbackend.mapper")
+@EnableScheduling
 
 public class SmBackendApplication {
 
@@ -5,6 +5,8 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import is.smbackend.annotation.OperationLog;
 import is.smbackend.pojo.Log;
 import is.smbackend.service.LogService;
+import is.smbackend.util.IdGenerator;
+import is.smbackend.util.IpUtil;
 import is.smbackend.util.JwtUtil;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -19,8 +21,6 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import jakarta.servlet.http.HttpServletRequest;
 import java.lang.reflect.Method;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
 
 /**
  * 操作日志切面 - 记录详细的操作信息和变更内容
@@ -38,6 +38,9 @@ public class OperationLogAspect {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
     /**
      * 切入点：所有带有 @OperationLog 注解的方法
      */
@@ -66,7 +69,7 @@ public class OperationLogAspect {
         
         if (attributes != null) {
             request = attributes.getRequest();
-            ipAddress = getClientIp(request);
+            ipAddress = IpUtil.getClientIp(request);
             userAgent = request.getHeader("User-Agent");
             requestUrl = request.getRequestURI();
             requestMethod = request.getMethod();
@@ -134,7 +137,7 @@ public class OperationLogAspect {
             // 记录日志
             try {
                 Log log = new Log();
-                log.setLogId(generateLogId());
+                log.setLogId(idGenerator.nextLogId());
                 log.setUserId(userId);
                 log.setUserName(userName);
                 log.setUserType(userType);
@@ -180,39 +183,6 @@ public class OperationLogAspect {
         return result;
     }
     
-    /**
-     * 获取客户端真实IP
-     */
-    private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("Proxy-Client-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("WL-Proxy-Client-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("HTTP_CLIENT_IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("HTTP_X_FORWARDED_FOR");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("X-Real-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
-            if ("0:0:0:0:0:0:0:1".equals(ip)) {
-                ip = "127.0.0.1";
-            }
-        }
-        // 多个代理时，取第一个IP
-        if (ip != null && ip.contains(",")) {
-            ip = ip.split(",")[0].trim();
-        }
-        return ip;
-    }
-    
     /**
      * 尝试从对象中提取ID
      */
@@ -248,13 +218,4 @@ public class OperationLogAspect {
         if (str == null || str.isEmpty()) return str;
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
-    
-    /**
-     * 生成日志ID
-     */
-    private String generateLogId() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String uuid = UUID.randomUUID().toString().replace("-", "").substring(0, 6);
-        return "LOG" + timestamp + uuid;
-    }
 }
@@ -0,0 +1,44 @@
+package is.smbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JWT 签名密钥配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "jwt")
+public class JwtProperties {
+
+    /**
+     * 当前用于签发 Token 的密钥ID（写入 JWT 头部的 kid）
+     */
+    private String activeKid;
+
+    /**
+     * 内联密钥：kid -> Base64 编码的 HMAC 密钥（至少 256 位），轮换期间可同时配置多个
+     */
+    private Map<String, String> keys = new LinkedHashMap<>();
+
+    /**
+     * 本地密钥库文件，别名即 kid
+     */
+    private Keystore keystore = new Keystore();
+
+    /**
+     * 密钥库文件变更检查间隔（毫秒），用于不停机轮换
+     */
+    private long reloadInterval = 60000;
+
+    @Data
+    public static class Keystore {
+        private String path;
+        private String password;
+        private String type = "PKCS12";
+    }
+}
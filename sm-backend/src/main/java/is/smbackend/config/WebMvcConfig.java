@@ -1,6 +1,7 @@
 package is.smbackend.config;
 
 import is.smbackend.interceptor.JwtInterceptor;
+import is.smbackend.interceptor.LoginThrottleInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -15,13 +16,20 @@ public class WebMvcConfig implements WebMvcConfigurer {
     @Autowired
     private JwtInterceptor jwtInterceptor;
 
+    @Autowired
+    private LoginThrottleInterceptor loginThrottleInterceptor;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(loginThrottleInterceptor)
+                .addPathPatterns("/login");
+
         registry.addInterceptor(jwtInterceptor)
                 .addPathPatterns("/**")
                 .excludePathPatterns(
                         "/login",           // 登录接口
                         "/attachment/download/**", // 附件下载接口
+                        "/attachment/thumbnail/**", // 附件缩略图接口（<img> 标签无法携带 Token）
                         "/doc.html",        // Swagger 文档
                         "/swagger-ui/**",
                         "/swagger-resources/**",
@@ -6,7 +6,6 @@ import is.smbackend.annotation.OperationLog;
 import is.smbackend.dto.AppealRequest;
 import is.smbackend.pojo.Appeal;
 import is.smbackend.service.AppealService;
-import is.smbackend.service.NotificationHelper;
 import is.smbackend.response.Result;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -24,9 +23,6 @@ public class AppealController {
     @Autowired
     private AppealService appealService;
 
-    @Autowired
-    private NotificationHelper notificationHelper;
-
     @Operation(summary = "获取所有申诉")
     @GetMapping
     public Result<List<Appeal>> getAll() {
@@ -79,42 +75,7 @@ public class AppealController {
     @OperationLog(operation = "更新", description = "更新申诉信息")
     @PutMapping
     public Result<Boolean> update(@RequestBody Appeal appeal) {
-        // 获取原记录以比较状态变化
-        Appeal oldAppeal = appealService.getById(appeal.getAppealId());
-        boolean result = appealService.updateById(appeal);
-        
-        // 状态变更时发送通知
-        if (result && oldAppeal != null) {
-            // 辅导员审理状态变更
-            if (!oldAppeal.getAdvisorStatus().equals(appeal.getAdvisorStatus()) 
-                && !"待审理".equals(appeal.getAdvisorStatus())) {
-                notificationHelper.notifyAppealReview(
-                    appeal.getStuId(),
-                    appeal.getAdvisorStatus(),
-                    "辅导员",
-                    null
-                );
-            }
-            // 教务审理状态变更
-            if (!oldAppeal.getAdminStatus().equals(appeal.getAdminStatus()) 
-                && !"待审理".equals(appeal.getAdminStatus())) {
-                notificationHelper.notifyAppealReview(
-                    appeal.getStuId(),
-                    appeal.getAdminStatus(),
-                    "教务处",
-                    null
-                );
-            }
-            // 最终状态变更
-            if (!oldAppeal.getAppealStatus().equals(appeal.getAppealStatus()) 
-                && !"受理中".equals(appeal.getAppealStatus())) {
-                notificationHelper.notifyAppealFinalReview(
-                    appeal.getStuId(),
-                    appeal.getAppealStatus()
-                );
-            }
-        }
-        return Result.success(result);
+        return Result.success(appealService.updateWithNotice(appeal));
     }
 
     @Operation(summary = "删除申诉")
@@ -1,16 +1,26 @@
 package is.smbackend.controller;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import is.smbackend.dto.ChunkUploadInitRequest;
+import is.smbackend.dto.ReconcileReport;
+import is.smbackend.exception.BusinessException;
 import is.smbackend.pojo.Attachment;
+import is.smbackend.pojo.AttachmentUpload;
+import is.smbackend.service.AttachmentArchiver;
+import is.smbackend.service.AttachmentDownloader;
+import is.smbackend.service.AttachmentReconciler;
 import is.smbackend.service.AttachmentService;
+import is.smbackend.service.AttachmentThumbnailer;
+import is.smbackend.service.AttachmentUploadService;
 import is.smbackend.response.Result;
+import is.smbackend.util.IdGenerator;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,13 +29,10 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Set;
 
 @Tag(name = "附件管理")
 @RestController
@@ -35,8 +42,23 @@ public class AttachmentController {
     @Autowired
     private AttachmentService attachmentService;
 
-    @Value("${file.upload-dir:uploads}")
-    private String uploadDir;
+    @Autowired
+    private AttachmentUploadService attachmentUploadService;
+
+    @Autowired
+    private AttachmentDownloader attachmentDownloader;
+
+    @Autowired
+    private AttachmentThumbnailer attachmentThumbnailer;
+
+    @Autowired
+    private AttachmentArchiver attachmentArchiver;
+
+    @Autowired
+    private AttachmentReconciler attachmentReconciler;
+
+    @Autowired
+    private IdGenerator idGenerator;
 
     @Operation(summary = "上传附件")
     @PostMapping("/upload")
@@ -57,49 +79,22 @@ public class AttachmentController {
 
         // 检查文件类型
         String contentType = file.getContentType();
-        if (contentType == null || (!contentType.startsWith("image/") 
-                && !contentType.equals("application/pdf")
-                && !contentType.startsWith("application/msword")
-                && !contentType.startsWith("application/vnd.openxmlformats"))) {
+        if (!isAllowedType(contentType)) {
             return Result.failed("只支持图片、PDF和Word文档");
         }
 
         try {
-            // 创建上传目录
-            Path uploadPath = Paths.get(uploadDir, relatedType);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-
-            // 生成唯一文件名
-            String originalFilename = file.getOriginalFilename();
-            String extension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            }
-            String newFilename = UUID.randomUUID().toString() + extension;
-
-            // 保存文件
-            Path filePath = uploadPath.resolve(newFilename);
-            Files.copy(file.getInputStream(), filePath);
-
-            // 生成附件ID
-            String attachmentId = "ATT" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) 
-                    + String.format("%03d", (int)(Math.random() * 1000));
-
-            // 保存附件记录
+            // 保存附件记录，文件按内容哈希存储，相同内容只存一份
             Attachment attachment = new Attachment();
-            attachment.setAttachmentId(attachmentId);
-            attachment.setFileName(originalFilename);
-            attachment.setFilePath(relatedType + "/" + newFilename);
-            attachment.setFileSize(file.getSize());
+            attachment.setAttachmentId(idGenerator.nextAttachmentId());
+            attachment.setFileName(file.getOriginalFilename());
             attachment.setFileType(contentType);
             attachment.setRelatedId(relatedId);
             attachment.setRelatedType(relatedType);
             attachment.setUploadUserId(uploadUserId);
             attachment.setUploadTime(LocalDateTime.now());
 
-            attachmentService.save(attachment);
+            attachmentService.saveWithContent(attachment, file.getInputStream());
 
             return Result.success(attachment);
         } catch (IOException e) {
@@ -107,6 +102,56 @@ public class AttachmentController {
         }
     }
 
+    @Operation(summary = "初始化分片上传（返回上传ID和分片大小）")
+    @PostMapping("/upload/init")
+    public Result<AttachmentUpload> initChunkUpload(@Valid @RequestBody ChunkUploadInitRequest request) {
+        if (!isAllowedType(request.getFileType())) {
+            return Result.failed("只支持图片、PDF和Word文档");
+        }
+        return Result.success(attachmentUploadService.init(request));
+    }
+
+    @Operation(summary = "查询分片上传进度（断点续传从 received 处继续）")
+    @GetMapping("/upload/{uploadId}")
+    public Result<AttachmentUpload> getChunkUpload(@PathVariable String uploadId) {
+        AttachmentUpload upload = attachmentUploadService.getById(uploadId);
+        if (upload == null) {
+            return Result.failed("上传任务不存在或已过期");
+        }
+        return Result.success(upload);
+    }
+
+    @Operation(summary = "上传分片（请求体为分片内容，offset 为其在文件中的起始位置）")
+    @PutMapping(value = "/upload/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Result<AttachmentUpload> uploadChunk(@PathVariable String uploadId, @RequestParam("offset") long offset,
+                                                HttpServletRequest request) {
+        try {
+            return Result.success(attachmentUploadService.writeChunk(uploadId, offset, request.getInputStream()));
+        } catch (IOException e) {
+            return Result.failed("分片上传失败：" + e.getMessage());
+        }
+    }
+
+    @Operation(summary = "完成分片上传（校验 SHA-256 后生成附件）")
+    @PostMapping("/upload/{uploadId}/complete")
+    public Result<Attachment> completeChunkUpload(@PathVariable String uploadId, @RequestParam("sha256") String sha256) {
+        try {
+            return Result.success(attachmentUploadService.complete(uploadId, sha256));
+        } catch (IOException e) {
+            return Result.failed("文件上传失败：" + e.getMessage());
+        }
+    }
+
+    @Operation(summary = "取消分片上传")
+    @DeleteMapping("/upload/{uploadId}")
+    public Result<Boolean> abortChunkUpload(@PathVariable String uploadId) {
+        try {
+            return Result.success(attachmentUploadService.abort(uploadId));
+        } catch (IOException e) {
+            return Result.failed("取消上传失败：" + e.getMessage());
+        }
+    }
+
     @Operation(summary = "根据业务ID获取附件列表")
     @GetMapping("/list")
     public Result<List<Attachment>> getByRelated(
@@ -119,35 +164,76 @@ public class AttachmentController {
         return Result.success(attachmentService.list(wrapper));
     }
 
-    @Operation(summary = "下载附件")
+    @Operation(summary = "下载附件（支持 Range 和条件请求）")
     @GetMapping("/download/{id}")
-    public ResponseEntity<Resource> download(@PathVariable String id) {
+    public ResponseEntity<Resource> download(@PathVariable String id, HttpServletRequest request,
+                                             HttpServletResponse response) {
         Attachment attachment = attachmentService.getById(id);
         if (attachment == null) {
             return ResponseEntity.notFound().build();
         }
 
         try {
-            Path filePath = Paths.get(uploadDir).resolve(attachment.getFilePath());
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                String encodedFilename = URLEncoder.encode(attachment.getFileName(), StandardCharsets.UTF_8)
-                        .replaceAll("\\+", "%20");
-                
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(attachment.getFileType()))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, 
-                                "attachment; filename*=UTF-8''" + encodedFilename)
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
+            return attachmentDownloader.download(attachment, request, response);
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
 
+    @Operation(summary = "打包下载附件（按业务记录或附件ID列表，ZIP 流式输出）")
+    @GetMapping("/zip")
+    public void downloadZip(
+            @RequestParam(value = "relatedId", required = false) String relatedId,
+            @RequestParam(value = "relatedType", required = false) String relatedType,
+            @RequestParam(value = "ids", required = false) List<String> ids,
+            HttpServletResponse response) throws IOException {
+        List<Attachment> attachments;
+        String zipName;
+        if (ids != null && !ids.isEmpty()) {
+            Set<String> distinctIds = new LinkedHashSet<>(ids);
+            if (distinctIds.size() > attachmentArchiver.getMaxFiles()) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                        "一次最多打包 " + attachmentArchiver.getMaxFiles() + " 个附件");
+                return;
+            }
+            attachments = attachmentService.listByIds(distinctIds);
+            zipName = "附件.zip";
+        } else if (relatedId != null && relatedType != null) {
+            attachments = attachmentService.list(new LambdaQueryWrapper<Attachment>()
+                    .eq(Attachment::getRelatedId, relatedId)
+                    .eq(Attachment::getRelatedType, relatedType)
+                    .orderByAsc(Attachment::getUploadTime));
+            zipName = relatedType + "-" + relatedId + "-附件.zip";
+        } else {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "请指定业务记录或附件ID");
+            return;
+        }
+        if (attachments.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String encodedFileName = URLEncoder.encode(zipName, StandardCharsets.UTF_8).replaceAll("\\+", "%20");
+        response.setContentType("application/zip");
+        response.setHeader("Content-Disposition", "attachment; filename*=UTF-8''" + encodedFileName);
+        attachmentArchiver.write(attachments, response.getOutputStream());
+    }
+
+    @Operation(summary = "获取图片附件缩略图（生成前返回占位图）")
+    @GetMapping("/thumbnail/{id}")
+    public ResponseEntity<Resource> thumbnail(@PathVariable String id) {
+        Attachment attachment = attachmentService.getById(id);
+        if (attachment == null || !attachmentThumbnailer.supports(attachment)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try {
+            return attachmentThumbnailer.thumbnail(attachment);
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @Operation(summary = "删除附件")
     @DeleteMapping("/{id}")
     public Result<Boolean> delete(@PathVariable String id) {
@@ -157,21 +243,48 @@ public class AttachmentController {
         }
 
         try {
-            // 删除物理文件
-            Path filePath = Paths.get(uploadDir).resolve(attachment.getFilePath());
-            Files.deleteIfExists(filePath);
-
-            // 删除数据库记录
-            attachmentService.removeById(id);
-            return Result.success(true);
+            // 删除记录，文件没有其他引用时一并删除
+            return Result.success(attachmentService.removeWithContent(attachment));
         } catch (IOException e) {
             return Result.failed("删除失败：" + e.getMessage());
         }
     }
 
+    @Operation(summary = "启动附件对账（管理员）")
+    @PostMapping("/reconcile")
+    public Result<Boolean> reconcile(@RequestParam(defaultValue = "true") boolean dryRun,
+                                     HttpServletRequest request) {
+        if (!"admin".equals(request.getAttribute("userType"))) {
+            throw new BusinessException("没有相关权限");
+        }
+        if (!attachmentReconciler.start(dryRun)) {
+            return Result.failed("对账任务正在运行");
+        }
+        return Result.success(true);
+    }
+
+    @Operation(summary = "获取最近一次附件对账报告（管理员）")
+    @GetMapping("/reconcile/report")
+    public Result<ReconcileReport> reconcileReport(HttpServletRequest request) {
+        if (!"admin".equals(request.getAttribute("userType"))) {
+            throw new BusinessException("没有相关权限");
+        }
+        return Result.success(attachmentReconciler.report());
+    }
+
     @Operation(summary = "根据ID获取附件信息")
     @GetMapping("/{id}")
     public Result<Attachment> getById(@PathVariable String id) {
         return Result.success(attachmentService.getById(id));
     }
+
+    /**
+     * 允许上传的文件类型：图片、PDF 和 Word 文档
+     */
+    private static boolean isAllowedType(String contentType) {
+        return contentType != null && (contentType.startsWith("image/")
+                || contentType.equals("application/pdf")
+                || contentType.startsWith("application/msword")
+                || contentType.startsWith("application/vnd.openxmlformats"));
+    }
 }
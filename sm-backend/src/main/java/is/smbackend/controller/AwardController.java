@@ -6,7 +6,6 @@ import is.smbackend.annotation.OperationLog;
 import is.smbackend.dto.AwardRequest;
 import is.smbackend.pojo.Award;
 import is.smbackend.service.AwardService;
-import is.smbackend.service.NotificationHelper;
 import is.smbackend.response.Result;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -24,9 +23,6 @@ public class AwardController {
     @Autowired
     private AwardService awardService;
 
-    @Autowired
-    private NotificationHelper notificationHelper;
-
     @Operation(summary = "获取所有奖励")
     @GetMapping
     public Result<List<Award>> getAll() {
@@ -79,45 +75,7 @@ public class AwardController {
     @OperationLog(operation = "更新", description = "更新奖励信息")
     @PutMapping
     public Result<Boolean> update(@RequestBody Award award) {
-        // 获取原记录以比较状态变化
-        Award oldAward = awardService.getById(award.getAwardId());
-        boolean result = awardService.updateById(award);
-        
-        // 状态变更时发送通知
-        if (result && oldAward != null) {
-            // 辅导员审批状态变更
-            if (!oldAward.getAdvisorStatus().equals(award.getAdvisorStatus()) 
-                && !"待审批".equals(award.getAdvisorStatus())) {
-                notificationHelper.notifyAwardApproval(
-                    award.getStuId(), 
-                    award.getAwardName(), 
-                    award.getAdvisorStatus(), 
-                    "辅导员", 
-                    null
-                );
-            }
-            // 教务审批状态变更
-            if (!oldAward.getAdminStatus().equals(award.getAdminStatus()) 
-                && !"待审批".equals(award.getAdminStatus())) {
-                notificationHelper.notifyAwardApproval(
-                    award.getStuId(), 
-                    award.getAwardName(), 
-                    award.getAdminStatus(), 
-                    "教务处", 
-                    null
-                );
-            }
-            // 最终状态变更
-            if (!oldAward.getAwardStatus().equals(award.getAwardStatus()) 
-                && !"审批中".equals(award.getAwardStatus())) {
-                notificationHelper.notifyAwardFinalApproval(
-                    award.getStuId(), 
-                    award.getAwardName(), 
-                    award.getAwardStatus()
-                );
-            }
-        }
-        return Result.success(result);
+        return Result.success(awardService.updateWithNotice(award));
     }
 
     @Operation(summary = "删除奖励")
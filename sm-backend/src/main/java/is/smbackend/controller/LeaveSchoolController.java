@@ -6,7 +6,6 @@ import is.smbackend.annotation.OperationLog;
 import is.smbackend.dto.LeaveSchoolRequest;
 import is.smbackend.pojo.LeaveSchool;
 import is.smbackend.service.LeaveSchoolService;
-import is.smbackend.service.NotificationHelper;
 import is.smbackend.response.Result;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -24,9 +23,6 @@ public class LeaveSchoolController {
     @Autowired
     private LeaveSchoolService leaveSchoolService;
 
-    @Autowired
-    private NotificationHelper notificationHelper;
-
     @Operation(summary = "获取所有离校记录")
     @GetMapping
     public Result<List<LeaveSchool>> getAll() {
@@ -82,66 +78,7 @@ public class LeaveSchoolController {
     @OperationLog(operation = "更新", description = "更新离校信息")
     @PutMapping
     public Result<Boolean> update(@RequestBody LeaveSchool leaveSchool) {
-        // 获取原记录以比较状态变化
-        LeaveSchool oldLeave = leaveSchoolService.getById(leaveSchool.getLeaveId());
-        boolean result = leaveSchoolService.updateById(leaveSchool);
-        
-        // 状态变更时发送通知
-        if (result && oldLeave != null) {
-            // 宿管审核状态变更
-            if (!oldLeave.getDormitoryStatus().equals(leaveSchool.getDormitoryStatus()) 
-                && !"待审核".equals(leaveSchool.getDormitoryStatus())) {
-                notificationHelper.notifyLeaveSchoolReview(
-                    leaveSchool.getStuId(),
-                    "宿管审核",
-                    leaveSchool.getDormitoryStatus(),
-                    "宿管处",
-                    leaveSchool.getDormitoryReviewerId()
-                );
-            }
-            // 图书馆审核状态变更
-            if (!oldLeave.getLibraryStatus().equals(leaveSchool.getLibraryStatus()) 
-                && !"待审核".equals(leaveSchool.getLibraryStatus())) {
-                notificationHelper.notifyLeaveSchoolReview(
-                    leaveSchool.getStuId(),
-                    "图书馆审核",
-                    leaveSchool.getLibraryStatus(),
-                    "图书馆",
-                    leaveSchool.getLibraryReviewerId()
-                );
-            }
-            // 财务处审核状态变更
-            if (!oldLeave.getFinanceStatus().equals(leaveSchool.getFinanceStatus()) 
-                && !"待审核".equals(leaveSchool.getFinanceStatus())) {
-                notificationHelper.notifyLeaveSchoolReview(
-                    leaveSchool.getStuId(),
-                    "财务处审核",
-                    leaveSchool.getFinanceStatus(),
-                    "财务处",
-                    leaveSchool.getFinanceReviewerId()
-                );
-            }
-            // 教务处审核状态变更
-            if (!oldLeave.getAdminStatus().equals(leaveSchool.getAdminStatus()) 
-                && !"待审核".equals(leaveSchool.getAdminStatus())) {
-                notificationHelper.notifyLeaveSchoolReview(
-                    leaveSchool.getStuId(),
-                    "教务处审核",
-                    leaveSchool.getAdminStatus(),
-                    "教务处",
-                    leaveSchool.getAdminId()
-                );
-            }
-            // 整体状态变更
-            if (!oldLeave.getOverallStatus().equals(leaveSchool.getOverallStatus()) 
-                && !"审核中".equals(leaveSchool.getOverallStatus())) {
-                notificationHelper.notifyLeaveSchoolFinalReview(
-                    leaveSchool.getStuId(),
-                    leaveSchool.getOverallStatus()
-                );
-            }
-        }
-        return Result.success(result);
+        return Result.success(leaveSchoolService.updateWithNotice(leaveSchool));
     }
 
     @Operation(summary = "删除离校记录")
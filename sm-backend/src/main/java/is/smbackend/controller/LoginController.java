@@ -2,28 +2,29 @@ package is.smbackend.controller;
 
 import is.smbackend.dto.LoginRequest;
 import is.smbackend.dto.LoginResponse;
+import is.smbackend.dto.UserProfile;
 import is.smbackend.exception.BusinessException;
 import is.smbackend.pojo.Log;
-import is.smbackend.pojo.UserAdmin;
-import is.smbackend.pojo.UserAdvisor;
-import is.smbackend.pojo.UserStudent;
 import is.smbackend.response.Result;
 import is.smbackend.service.LogService;
-import is.smbackend.service.UserAdminService;
-import is.smbackend.service.UserAdvisorService;
-import is.smbackend.service.UserStudentService;
+import is.smbackend.service.LoginThrottle;
+import is.smbackend.service.PasswordHashService;
+import is.smbackend.service.TokenRevocationRegistry;
+import is.smbackend.service.UserDirectory;
+import is.smbackend.util.IdGenerator;
+import is.smbackend.util.IpUtil;
 import is.smbackend.util.JwtUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.UUID;
+import java.util.Date;
 
 /**
  * 登录控制器
@@ -33,19 +34,25 @@ import java.util.UUID;
 public class LoginController {
 
     @Autowired
-    private UserStudentService userStudentService;
+    private UserDirectory userDirectory;
 
     @Autowired
-    private UserAdvisorService userAdvisorService;
+    private LogService logService;
 
     @Autowired
-    private UserAdminService userAdminService;
+    private JwtUtil jwtUtil;
 
     @Autowired
-    private LogService logService;
+    private PasswordHashService passwordHashService;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Autowired
+    private IdGenerator idGenerator;
 
     @Operation(summary = "用户登录")
     @PostMapping("/login")
@@ -59,67 +66,32 @@ public class LoginController {
         if (request.getUserType() == null || request.getUserType().isEmpty()) {
             throw new BusinessException("用户类型不能为空");
         }
+        // 按账号限流，在查询用户和校验密码之前
+        loginThrottle.checkUser(request.getUserType(), request.getUserId());
 
-        LoginResponse response = new LoginResponse();
-
-        switch (request.getUserType()) {
-            case "student" -> {
-                UserStudent user = userStudentService.getById(request.getUserId());
-                if (user == null) {
-                    throw new BusinessException("用户不存在");
-                }
-                if (!request.getPasswd().equals(user.getPasswd())) {
-                    throw new BusinessException("密码错误");
-                }
-                // 更新最后登录时间
-                user.setLastLoginTime(LocalDateTime.now());
-                userStudentService.updateById(user);
-                
-                response.setUserId(user.getUserId());
-                response.setUserName(user.getUserName());
-                response.setUserType("student");
-                response.setPhone(user.getPhone());
-                response.setEmail(user.getEmail());
-            }
-            case "advisor" -> {
-                UserAdvisor user = userAdvisorService.getById(request.getUserId());
-                if (user == null) {
-                    throw new BusinessException("用户不存在");
-                }
-                if (!request.getPasswd().equals(user.getPasswd())) {
-                    throw new BusinessException("密码错误");
-                }
-                // 更新最后登录时间
-                user.setLastLoginTime(LocalDateTime.now());
-                userAdvisorService.updateById(user);
-                
-                response.setUserId(user.getUserId());
-                response.setUserName(user.getUserName());
-                response.setUserType("advisor");
-                response.setPhone(user.getPhone());
-                response.setEmail(user.getEmail());
-            }
-            case "admin" -> {
-                UserAdmin user = userAdminService.getById(request.getUserId());
-                if (user == null) {
-                    throw new BusinessException("用户不存在");
-                }
-                if (!request.getPasswd().equals(user.getPasswd())) {
-                    throw new BusinessException("密码错误");
-                }
-                // 更新最后登录时间
-                user.setLastLoginTime(LocalDateTime.now());
-                userAdminService.updateById(user);
-                
-                response.setUserId(user.getUserId());
-                response.setUserName(user.getUserName());
-                response.setUserType("admin");
-                response.setPhone(user.getPhone());
-                response.setEmail(user.getEmail());
-                response.setRole(user.getRole());  // 返回管理员角色
-            }
-            default -> throw new BusinessException("无效的用户类型");
+        String passwordHash = userDirectory.getPasswordHash(request.getUserType(), request.getUserId());
+        if (passwordHash == null) {
+            throw new BusinessException("用户不存在");
+        }
+        if (!passwordHashService.matches(request.getPasswd(), passwordHash)) {
+            throw new BusinessException("密码错误");
         }
+        // 旧明文密码首次登录时升级为哈希
+        if (passwordHashService.needsUpgrade(passwordHash)) {
+            userDirectory.updatePassword(request.getUserType(), request.getUserId(),
+                    passwordHashService.hash(request.getPasswd()));
+        }
+        // 最后登录时间写入缓冲区，由后台批量落库
+        userDirectory.recordLogin(request.getUserType(), request.getUserId(), LocalDateTime.now());
+
+        UserProfile user = userDirectory.requireProfile(request.getUserType(), request.getUserId());
+        LoginResponse response = new LoginResponse();
+        response.setUserId(user.getUserId());
+        response.setUserName(user.getUserName());
+        response.setUserType(user.getUserType());
+        response.setPhone(user.getPhone());
+        response.setEmail(user.getEmail());
+        response.setRole(user.getRole());  // 仅管理员有角色
 
         // 生成 JWT Token
         String token = jwtUtil.generateToken(response.getUserId(), response.getUserName(), response.getUserType());
@@ -131,22 +103,43 @@ public class LoginController {
         return Result.success(response);
     }
 
+    @Operation(summary = "退出登录")
+    @PostMapping("/logout")
+    public Result<Boolean> logout(HttpServletRequest httpRequest) {
+        String tokenId = (String) httpRequest.getAttribute("tokenId");
+        Date expiration = (Date) httpRequest.getAttribute("tokenExpiration");
+        if (tokenId != null && expiration != null) {
+            tokenRevocationRegistry.revokeToken(tokenId, expiration);
+        }
+        return Result.success(true);
+    }
+
+    @Operation(summary = "强制用户下线（吊销该用户已签发的全部Token）")
+    @PostMapping("/token/revoke/{userType}/{userId}")
+    public Result<Boolean> revokeUser(@PathVariable String userType, @PathVariable String userId,
+                                      HttpServletRequest httpRequest) {
+        if (!"admin".equals(httpRequest.getAttribute("userType"))) {
+            throw new BusinessException("没有相关权限");
+        }
+        userDirectory.requireProfile(userType, userId);
+        tokenRevocationRegistry.revokeUser(userType, userId);
+        return Result.success(true);
+    }
+
     /**
      * 记录登录日志（包含IP、设备等详细信息）
      */
     private void saveLoginLog(String userId, String userName, String userType, boolean success, String errorMessage, HttpServletRequest request) {
         try {
             Log log = new Log();
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-            String uuid = UUID.randomUUID().toString().replace("-", "").substring(0, 6);
-            log.setLogId("LOG" + timestamp + uuid);
+            log.setLogId(idGenerator.nextLogId());
             log.setUserId(userId);
             log.setUserName(userName);
             log.setUserType(userType);
             log.setOperation("登录");
             
             // 获取IP地址
-            String ipAddress = getClientIp(request);
+            String ipAddress = IpUtil.getClientIp(request);
             log.setIpAddress(ipAddress);
             
             // 获取User-Agent（浏览器/设备信息）
@@ -173,39 +166,6 @@ public class LoginController {
         }
     }
     
-    /**
-     * 获取客户端真实IP
-     */
-    private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("Proxy-Client-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("WL-Proxy-Client-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("HTTP_CLIENT_IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("HTTP_X_FORWARDED_FOR");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("X-Real-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
-            if ("0:0:0:0:0:0:0:1".equals(ip)) {
-                ip = "127.0.0.1";
-            }
-        }
-        // 多个代理时，取第一个IP
-        if (ip != null && ip.contains(",")) {
-            ip = ip.split(",")[0].trim();
-        }
-        return ip;
-    }
-    
     /**
      * 解析User-Agent获取设备信息
      */
@@ -1,19 +1,36 @@
 package is.smbackend.controller;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import is.smbackend.annotation.OperationLog;
+import is.smbackend.dto.BroadcastNoticeRequest;
+import is.smbackend.dto.NoticeBatchRequest;
 import is.smbackend.dto.NoticeRequest;
+import is.smbackend.exception.BusinessException;
 import is.smbackend.pojo.Notice;
+import is.smbackend.pojo.NoticeArchive;
+import is.smbackend.pojo.NoticeBroadcast;
+import is.smbackend.service.BroadcastNoticeRegistry;
+import is.smbackend.service.NoticeArchiveService;
 import is.smbackend.service.NoticeService;
+import is.smbackend.service.NoticeStreamRegistry;
+import is.smbackend.service.NoticeUnreadCounter;
+import is.smbackend.service.UserDirectory;
 import is.smbackend.response.Result;
+import is.smbackend.util.IdGenerator;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 @Tag(name = "通知管理")
@@ -24,6 +41,24 @@ public class NoticeController {
     @Autowired
     private NoticeService noticeService;
 
+    @Autowired
+    private BroadcastNoticeRegistry broadcastNoticeRegistry;
+
+    @Autowired
+    private NoticeUnreadCounter noticeUnreadCounter;
+
+    @Autowired
+    private NoticeStreamRegistry noticeStreamRegistry;
+
+    @Autowired
+    private NoticeArchiveService noticeArchiveService;
+
+    @Autowired
+    private UserDirectory userDirectory;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
     @Operation(summary = "获取所有通知")
     @GetMapping
     public Result<List<Notice>> getAll() {
@@ -38,13 +73,29 @@ public class NoticeController {
         return Result.success(noticeService.getById(id));
     }
 
-    @Operation(summary = "根据目标用户获取通知列表")
+    @Operation(summary = "根据目标用户获取通知列表（含广播通知）")
     @GetMapping("/user/{userId}")
-    public Result<List<Notice>> getByUserId(@PathVariable String userId) {
+    public Result<List<Notice>> getByUserId(@PathVariable String userId, HttpServletRequest request) {
         LambdaQueryWrapper<Notice> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(Notice::getTargetUser, userId);
         wrapper.orderByDesc(Notice::getPublishTime);
-        return Result.success(noticeService.list(wrapper));
+        List<Notice> notices = new ArrayList<>(noticeService.list(wrapper));
+        notices.addAll(broadcastNoticeRegistry.listForUser(resolveUserType(userId, request), userId));
+        notices.sort(Comparator.comparing(Notice::getPublishTime, Comparator.nullsLast(Comparator.reverseOrder())));
+        return Result.success(notices);
+    }
+
+    @Operation(summary = "订阅通知实时推送（SSE），重连时按 Last-Event-ID 补发")
+    @GetMapping(value = "/stream/{userId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@PathVariable String userId,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                             @RequestParam(value = "lastEventId", required = false) String lastEventIdParam,
+                             HttpServletRequest request) {
+        if (!userId.equals(request.getAttribute("userId"))) {
+            throw new BusinessException("只能订阅本人的通知");
+        }
+        // 浏览器自动重连时带请求头；Token 刷新后前端新建连接时通过参数传递
+        return noticeStreamRegistry.subscribe(userId, lastEventId != null ? lastEventId : lastEventIdParam);
     }
 
     @Operation(summary = "分页查询通知")
@@ -66,62 +117,209 @@ public class NoticeController {
         return Result.success(noticeService.page(page, wrapper));
     }
 
+    @Operation(summary = "分页查询用户的历史通知（已归档）")
+    @GetMapping("/history/{userId}")
+    public Result<Page<NoticeArchive>> getHistory(
+            @PathVariable String userId,
+            @RequestParam(defaultValue = "1") Integer pageNum,
+            @RequestParam(defaultValue = "10") Integer pageSize) {
+        Page<NoticeArchive> page = new Page<>(pageNum, pageSize);
+        LambdaQueryWrapper<NoticeArchive> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(NoticeArchive::getTargetUser, userId);
+        wrapper.orderByDesc(NoticeArchive::getNoticeId);
+        return Result.success(noticeArchiveService.page(page, wrapper));
+    }
+
     @Operation(summary = "新增通知")
     @OperationLog(operation = "新增", description = "发布系统通知")
     @PostMapping
     public Result<Boolean> save(@Valid @RequestBody NoticeRequest request) {
         Notice notice = new Notice();
         BeanUtils.copyProperties(request, notice);
-        return Result.success(noticeService.save(notice));
+        // 由服务端按生成时间分配ID，其他节点据此轮询推送
+        notice.setNoticeId(idGenerator.nextNoticeId());
+        boolean result = noticeService.save(notice);
+        if (result && !Boolean.TRUE.equals(notice.getIsRead())) {
+            noticeUnreadCounter.increment(notice.getTargetUser(), 1);
+        }
+        if (result) {
+            noticeStreamRegistry.publish(notice);
+        }
+        return Result.success(result);
+    }
+
+    @Operation(summary = "发布广播通知（按全体、角色、院系、专业、班级发送）")
+    @OperationLog(operation = "新增", description = "发布广播通知")
+    @PostMapping("/broadcast")
+    public Result<NoticeBroadcast> broadcast(@Valid @RequestBody BroadcastNoticeRequest request) {
+        if (!"all".equals(request.getScopeType())
+                && (request.getScopeValue() == null || request.getScopeValue().isEmpty())) {
+            return Result.validateFailed("范围取值不能为空");
+        }
+        NoticeBroadcast broadcast = new NoticeBroadcast();
+        BeanUtils.copyProperties(request, broadcast);
+        return Result.success(broadcastNoticeRegistry.publish(broadcast));
+    }
+
+    @Operation(summary = "获取所有广播通知")
+    @GetMapping("/broadcast")
+    public Result<List<NoticeBroadcast>> getBroadcasts() {
+        return Result.success(broadcastNoticeRegistry.list());
     }
 
     @Operation(summary = "更新通知")
     @OperationLog(operation = "更新", description = "更新通知信息")
     @PutMapping
     public Result<Boolean> update(@RequestBody Notice notice) {
-        return Result.success(noticeService.updateById(notice));
+        Notice oldNotice = noticeService.getById(notice.getNoticeId());
+        boolean result;
+        if (notice.getTitle() != null || notice.getContent() != null) {
+            // 修改了标题或内容的模板通知转为全文存储
+            notice.setTemplateCode(null);
+            notice.setTemplateParams(null);
+            result = noticeService.update(notice, new LambdaUpdateWrapper<Notice>()
+                    .eq(Notice::getNoticeId, notice.getNoticeId())
+                    .set(Notice::getTemplateCode, null)
+                    .set(Notice::getTemplateParams, null));
+        } else {
+            result = noticeService.updateById(notice);
+        }
+        // 目标用户或已读状态可能变化，重新统计相关用户的未读数
+        if (result && oldNotice != null) {
+            noticeUnreadCounter.invalidate(oldNotice.getTargetUser());
+            noticeUnreadCounter.invalidate(notice.getTargetUser());
+        }
+        return Result.success(result);
     }
 
     @Operation(summary = "删除通知")
     @OperationLog(operation = "删除", description = "删除系统通知")
     @DeleteMapping("/{id}")
     public Result<Boolean> remove(@PathVariable String id) {
-        return Result.success(noticeService.removeById(id));
+        if (BroadcastNoticeRegistry.isBroadcastId(id)) {
+            return Result.success(broadcastNoticeRegistry.remove(id));
+        }
+        Notice notice = noticeService.getById(id);
+        boolean result = noticeService.removeById(id);
+        if (result && notice != null && !Boolean.TRUE.equals(notice.getIsRead())) {
+            noticeUnreadCounter.decrement(notice.getTargetUser());
+        }
+        return Result.success(result);
     }
 
     @Operation(summary = "标记通知为已读")
     @PutMapping("/{id}/read")
-    public Result<Boolean> markAsRead(@PathVariable String id) {
+    public Result<Boolean> markAsRead(@PathVariable String id, HttpServletRequest request) {
+        if (BroadcastNoticeRegistry.isBroadcastId(id)) {
+            // 广播通知按当前登录用户记录已读
+            broadcastNoticeRegistry.markRead(id,
+                    (String) request.getAttribute("userType"), (String) request.getAttribute("userId"));
+            return Result.success(true);
+        }
         Notice notice = noticeService.getById(id);
         if (notice == null) {
             return Result.failed("通知不存在");
         }
-        notice.setIsRead(true);
-        notice.setReadTime(LocalDateTime.now());
-        return Result.success(noticeService.updateById(notice));
+        // 仅在未读时更新，并发重复标记不会重复扣减未读数
+        boolean marked = noticeService.lambdaUpdate()
+                .set(Notice::getIsRead, true)
+                .set(Notice::getReadTime, LocalDateTime.now())
+                .eq(Notice::getNoticeId, id)
+                .eq(Notice::getIsRead, false)
+                .update();
+        if (marked) {
+            noticeUnreadCounter.decrement(notice.getTargetUser());
+        }
+        return Result.success(true);
     }
 
-    @Operation(summary = "批量标记通知为已读")
+    @Operation(summary = "全部标记为已读，返回标记数量")
     @PutMapping("/read-all")
-    public Result<Boolean> markAllAsRead(@RequestParam String userId) {
-        LambdaQueryWrapper<Notice> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Notice::getTargetUser, userId)
-               .eq(Notice::getIsRead, false);
-        List<Notice> unreadList = noticeService.list(wrapper);
-        for (Notice notice : unreadList) {
-            notice.setIsRead(true);
-            notice.setReadTime(LocalDateTime.now());
-            noticeService.updateById(notice);
+    public Result<Integer> markAllAsRead(@RequestParam String userId, HttpServletRequest request) {
+        int marked = noticeService.markAllRead(userId, LocalDateTime.now());
+        noticeUnreadCounter.reset(userId);
+        marked += broadcastNoticeRegistry.markAllRead(resolveUserType(userId, request), userId);
+        return Result.success(marked);
+    }
+
+    @Operation(summary = "批量标记指定通知为已读，返回标记数量")
+    @PutMapping("/read-batch")
+    public Result<Integer> markBatchAsRead(@RequestParam String userId,
+                                           @Valid @RequestBody NoticeBatchRequest batch,
+                                           HttpServletRequest request) {
+        List<String> personalIds = new ArrayList<>();
+        int marked = 0;
+        for (String noticeId : batch.getNoticeIds()) {
+            if (BroadcastNoticeRegistry.isBroadcastId(noticeId)) {
+                if (broadcastNoticeRegistry.markRead(noticeId, resolveUserType(userId, request), userId)) {
+                    marked++;
+                }
+            } else {
+                personalIds.add(noticeId);
+            }
         }
-        return Result.success(true);
+        int personal = noticeService.markReadByIds(userId, personalIds, LocalDateTime.now());
+        noticeUnreadCounter.decrement(userId, personal);
+        return Result.success(marked + personal);
     }
 
-    @Operation(summary = "获取未读通知数量")
+    @Operation(summary = "批量删除通知，返回删除数量；指定 userId 时只删除该用户的通知")
+    @OperationLog(operation = "删除", description = "批量删除通知")
+    @DeleteMapping("/batch")
+    public Result<Integer> removeBatch(@RequestParam(required = false) String userId,
+                                       @Valid @RequestBody NoticeBatchRequest batch) {
+        List<String> personalIds = new ArrayList<>();
+        int removed = 0;
+        for (String noticeId : batch.getNoticeIds()) {
+            if (BroadcastNoticeRegistry.isBroadcastId(noticeId)) {
+                if (userId == null && broadcastNoticeRegistry.remove(noticeId)) {
+                    removed++;
+                }
+            } else {
+                personalIds.add(noticeId);
+            }
+        }
+        int personal = noticeService.deleteByIds(userId, personalIds);
+        if (personal > 0) {
+            // 删除的通知中有多少未读无从得知，重新统计
+            if (userId != null) {
+                noticeUnreadCounter.invalidate(userId);
+            } else {
+                noticeUnreadCounter.invalidateAll();
+            }
+        }
+        return Result.success(removed + personal);
+    }
+
+    @Operation(summary = "删除N天前已读的通知，返回删除数量")
+    @OperationLog(operation = "删除", description = "清理已读通知")
+    @DeleteMapping("/read-before")
+    public Result<Integer> removeReadBefore(@RequestParam Integer days) {
+        if (days < 0) {
+            return Result.validateFailed("天数不能为负数");
+        }
+        return Result.success(noticeService.deleteReadBefore(LocalDateTime.now().minusDays(days)));
+    }
+
+    @Operation(summary = "获取未读通知数量（含广播通知）")
     @GetMapping("/unread-count/{userId}")
-    public Result<Long> getUnreadCount(@PathVariable String userId) {
-        LambdaQueryWrapper<Notice> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Notice::getTargetUser, userId)
-               .eq(Notice::getIsRead, false);
-        return Result.success(noticeService.count(wrapper));
+    public Result<Long> getUnreadCount(@PathVariable String userId, HttpServletRequest request) {
+        long personal = noticeUnreadCounter.get(userId);
+        return Result.success(personal + broadcastNoticeRegistry.countUnread(resolveUserType(userId, request), userId));
+    }
+
+    /**
+     * 判断用户类型：查询本人时直接取 Token 中的类型，否则按学生、辅导员、管理员依次查找
+     */
+    private String resolveUserType(String userId, HttpServletRequest request) {
+        if (userId.equals(request.getAttribute("userId"))) {
+            return (String) request.getAttribute("userType");
+        }
+        for (String userType : List.of("student", "advisor", "admin")) {
+            if (userDirectory.getProfile(userType, userId) != null) {
+                return userType;
+            }
+        }
+        return "student";
     }
 }
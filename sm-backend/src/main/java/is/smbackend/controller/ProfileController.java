@@ -3,14 +3,11 @@ package is.smbackend.controller;
 import is.smbackend.annotation.OperationLog;
 import is.smbackend.dto.PasswordUpdateRequest;
 import is.smbackend.dto.ProfileUpdateRequest;
+import is.smbackend.dto.UserProfile;
 import is.smbackend.exception.BusinessException;
-import is.smbackend.pojo.UserAdmin;
-import is.smbackend.pojo.UserAdvisor;
-import is.smbackend.pojo.UserStudent;
 import is.smbackend.response.Result;
-import is.smbackend.service.UserAdminService;
-import is.smbackend.service.UserAdvisorService;
-import is.smbackend.service.UserStudentService;
+import is.smbackend.service.PasswordHashService;
+import is.smbackend.service.UserDirectory;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,14 +24,16 @@ import java.util.Map;
 @RequestMapping("/profile")
 public class ProfileController {
 
-    @Autowired
-    private UserStudentService userStudentService;
+    private static final Map<String, String> USER_TYPE_LABELS = Map.of(
+            "student", "学生",
+            "advisor", "辅导员",
+            "admin", "管理员");
 
     @Autowired
-    private UserAdvisorService userAdvisorService;
+    private UserDirectory userDirectory;
 
     @Autowired
-    private UserAdminService userAdminService;
+    private PasswordHashService passwordHashService;
 
     @Operation(summary = "获取用户信息")
     @GetMapping("/{userType}/{userId}")
@@ -42,57 +41,21 @@ public class ProfileController {
             @PathVariable String userType,
             @PathVariable String userId) {
         
+        UserProfile user = userDirectory.requireProfile(userType, userId);
+
         Map<String, Object> profile = new LinkedHashMap<>();
-        
-        switch (userType) {
-            case "student" -> {
-                UserStudent user = userStudentService.getById(userId);
-                if (user == null) {
-                    throw new BusinessException("用户不存在");
-                }
-                profile.put("userId", user.getUserId());
-                profile.put("userName", user.getUserName());
-                profile.put("phone", user.getPhone());
-                profile.put("email", user.getEmail());
-                profile.put("status", user.getStatus());
-                profile.put("lastLoginTime", user.getLastLoginTime());
-                profile.put("createTime", user.getCreateTime());
-                profile.put("userType", "student");
-                profile.put("userTypeLabel", "学生");
-            }
-            case "advisor" -> {
-                UserAdvisor user = userAdvisorService.getById(userId);
-                if (user == null) {
-                    throw new BusinessException("用户不存在");
-                }
-                profile.put("userId", user.getUserId());
-                profile.put("userName", user.getUserName());
-                profile.put("phone", user.getPhone());
-                profile.put("email", user.getEmail());
-                profile.put("status", user.getStatus());
-                profile.put("lastLoginTime", user.getLastLoginTime());
-                profile.put("createTime", user.getCreateTime());
-                profile.put("userType", "advisor");
-                profile.put("userTypeLabel", "辅导员");
-            }
-            case "admin" -> {
-                UserAdmin user = userAdminService.getById(userId);
-                if (user == null) {
-                    throw new BusinessException("用户不存在");
-                }
-                profile.put("userId", user.getUserId());
-                profile.put("userName", user.getUserName());
-                profile.put("role", user.getRole());  // 返回管理员角色
-                profile.put("phone", user.getPhone());
-                profile.put("email", user.getEmail());
-                profile.put("status", user.getStatus());
-                profile.put("lastLoginTime", user.getLastLoginTime());
-                profile.put("createTime", user.getCreateTime());
-                profile.put("userType", "admin");
-                profile.put("userTypeLabel", "管理员");
-            }
-            default -> throw new BusinessException("无效的用户类型");
+        profile.put("userId", user.getUserId());
+        profile.put("userName", user.getUserName());
+        if ("admin".equals(userType)) {
+            profile.put("role", user.getRole());  // 返回管理员角色
         }
+        profile.put("phone", user.getPhone());
+        profile.put("email", user.getEmail());
+        profile.put("status", user.getStatus());
+        profile.put("lastLoginTime", user.getLastLoginTime());
+        profile.put("createTime", user.getCreateTime());
+        profile.put("userType", userType);
+        profile.put("userTypeLabel", USER_TYPE_LABELS.get(userType));
         
         return Result.success(profile);
     }
@@ -105,48 +68,8 @@ public class ProfileController {
             @PathVariable String userId,
             @RequestBody ProfileUpdateRequest request) {
         
-        switch (userType) {
-            case "student" -> {
-                UserStudent user = userStudentService.getById(userId);
-                if (user == null) {
-                    throw new BusinessException("用户不存在");
-                }
-                if (request.getPhone() != null) {
-                    user.setPhone(request.getPhone());
-                }
-                if (request.getEmail() != null) {
-                    user.setEmail(request.getEmail());
-                }
-                userStudentService.updateById(user);
-            }
-            case "advisor" -> {
-                UserAdvisor user = userAdvisorService.getById(userId);
-                if (user == null) {
-                    throw new BusinessException("用户不存在");
-                }
-                if (request.getPhone() != null) {
-                    user.setPhone(request.getPhone());
-                }
-                if (request.getEmail() != null) {
-                    user.setEmail(request.getEmail());
-                }
-                userAdvisorService.updateById(user);
-            }
-            case "admin" -> {
-                UserAdmin user = userAdminService.getById(userId);
-                if (user == null) {
-                    throw new BusinessException("用户不存在");
-                }
-                if (request.getPhone() != null) {
-                    user.setPhone(request.getPhone());
-                }
-                if (request.getEmail() != null) {
-                    user.setEmail(request.getEmail());
-                }
-                userAdminService.updateById(user);
-            }
-            default -> throw new BusinessException("无效的用户类型");
-        }
+        userDirectory.requireProfile(userType, userId);
+        userDirectory.updateContact(userType, userId, request.getPhone(), request.getEmail());
         
         return Result.success(true);
     }
@@ -169,42 +92,14 @@ public class ProfileController {
             throw new BusinessException("新密码长度不能少于3位");
         }
         
-        switch (userType) {
-            case "student" -> {
-                UserStudent user = userStudentService.getById(userId);
-                if (user == null) {
-                    throw new BusinessException("用户不存在");
-                }
-                if (!request.getOldPassword().equals(user.getPasswd())) {
-                    throw new BusinessException("旧密码错误");
-                }
-                user.setPasswd(request.getNewPassword());
-                userStudentService.updateById(user);
-            }
-            case "advisor" -> {
-                UserAdvisor user = userAdvisorService.getById(userId);
-                if (user == null) {
-                    throw new BusinessException("用户不存在");
-                }
-                if (!request.getOldPassword().equals(user.getPasswd())) {
-                    throw new BusinessException("旧密码错误");
-                }
-                user.setPasswd(request.getNewPassword());
-                userAdvisorService.updateById(user);
-            }
-            case "admin" -> {
-                UserAdmin user = userAdminService.getById(userId);
-                if (user == null) {
-                    throw new BusinessException("用户不存在");
-                }
-                if (!request.getOldPassword().equals(user.getPasswd())) {
-                    throw new BusinessException("旧密码错误");
-                }
-                user.setPasswd(request.getNewPassword());
-                userAdminService.updateById(user);
-            }
-            default -> throw new BusinessException("无效的用户类型");
+        String passwordHash = userDirectory.getPasswordHash(userType, userId);
+        if (passwordHash == null) {
+            throw new BusinessException("用户不存在");
+        }
+        if (!passwordHashService.matches(request.getOldPassword(), passwordHash)) {
+            throw new BusinessException("旧密码错误");
         }
+        userDirectory.updatePassword(userType, userId, passwordHashService.hash(request.getNewPassword()));
         
         return Result.success(true);
     }
@@ -6,7 +6,6 @@ import is.smbackend.annotation.OperationLog;
 import is.smbackend.dto.PunishmentRequest;
 import is.smbackend.pojo.Punishment;
 import is.smbackend.service.PunishmentService;
-import is.smbackend.service.NotificationHelper;
 import is.smbackend.response.Result;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -24,9 +23,6 @@ public class PunishmentController {
     @Autowired
     private PunishmentService punishmentService;
 
-    @Autowired
-    private NotificationHelper notificationHelper;
-
     @Operation(summary = "获取所有处分")
     @GetMapping
     public Result<List<Punishment>> getAll() {
@@ -79,29 +75,7 @@ public class PunishmentController {
     @OperationLog(operation = "更新", description = "更新处分信息")
     @PutMapping
     public Result<Boolean> update(@RequestBody Punishment punishment) {
-        // 获取原记录以比较状态变化
-        Punishment oldPunishment = punishmentService.getById(punishment.getPunishmentId());
-        boolean result = punishmentService.updateById(punishment);
-        
-        // 状态变更时发送通知
-        if (result && oldPunishment != null) {
-            String oldStatus = oldPunishment.getPunishmentStatus();
-            String newStatus = punishment.getPunishmentStatus();
-            
-            if (!oldStatus.equals(newStatus)) {
-                // 处分生效或撤销时通知学生
-                if ("已生效".equals(newStatus) || "已撤销".equals(newStatus)) {
-                    notificationHelper.notifyPunishment(
-                        punishment.getStuId(),
-                        punishment.getPunishmentType(),
-                        newStatus,
-                        "教务处",
-                        null
-                    );
-                }
-            }
-        }
-        return Result.success(result);
+        return Result.success(punishmentService.updateWithNotice(punishment));
     }
 
     @Operation(summary = "删除处分")
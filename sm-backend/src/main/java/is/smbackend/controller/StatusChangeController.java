@@ -6,7 +6,6 @@ import is.smbackend.annotation.OperationLog;
 import is.smbackend.dto.StatusChangeRequest;
 import is.smbackend.pojo.StatusChange;
 import is.smbackend.service.StatusChangeService;
-import is.smbackend.service.NotificationHelper;
 import is.smbackend.response.Result;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -24,9 +23,6 @@ public class StatusChangeController {
     @Autowired
     private StatusChangeService statusChangeService;
 
-    @Autowired
-    private NotificationHelper notificationHelper;
-
     @Operation(summary = "获取所有学籍变动")
     @GetMapping
     public Result<List<StatusChange>> getAll() {
@@ -82,45 +78,7 @@ public class StatusChangeController {
     @OperationLog(operation = "更新", description = "更新学籍变动信息")
     @PutMapping
     public Result<Boolean> update(@RequestBody StatusChange statusChange) {
-        // 获取原记录以比较状态变化
-        StatusChange oldChange = statusChangeService.getById(statusChange.getChangeId());
-        boolean result = statusChangeService.updateById(statusChange);
-        
-        // 状态变更时发送通知
-        if (result && oldChange != null) {
-            // 辅导员审核状态变更
-            if (!oldChange.getAdvisorStatus().equals(statusChange.getAdvisorStatus()) 
-                && !"待审核".equals(statusChange.getAdvisorStatus())) {
-                notificationHelper.notifyStatusChangeReview(
-                    statusChange.getStuId(),
-                    statusChange.getChangeType(),
-                    statusChange.getAdvisorStatus(),
-                    "辅导员",
-                    statusChange.getAdvisorId()
-                );
-            }
-            // 教务审核状态变更
-            if (!oldChange.getAdminStatus().equals(statusChange.getAdminStatus()) 
-                && !"待审核".equals(statusChange.getAdminStatus())) {
-                notificationHelper.notifyStatusChangeReview(
-                    statusChange.getStuId(),
-                    statusChange.getChangeType(),
-                    statusChange.getAdminStatus(),
-                    "教务处",
-                    statusChange.getAdminId()
-                );
-            }
-            // 最终状态变更
-            if (!oldChange.getApplyStatus().equals(statusChange.getApplyStatus()) 
-                && !"审核中".equals(statusChange.getApplyStatus())) {
-                notificationHelper.notifyStatusChangeFinalReview(
-                    statusChange.getStuId(),
-                    statusChange.getChangeType(),
-                    statusChange.getApplyStatus()
-                );
-            }
-        }
-        return Result.success(result);
+        return Result.success(statusChangeService.updateWithNotice(statusChange));
     }
 
     @Operation(summary = "删除学籍变动")
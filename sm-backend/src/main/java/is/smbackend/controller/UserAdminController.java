@@ -1,6 +1,9 @@
 package is.smbackend.controller;
 
 import is.smbackend.pojo.UserAdmin;
+import is.smbackend.service.PasswordHashService;
+import is.smbackend.service.TokenRevocationRegistry;
+import is.smbackend.service.UserDirectory;
 import is.smbackend.service.UserAdminService;
 import is.smbackend.response.Result;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +17,15 @@ public class UserAdminController {
     @Autowired
     private UserAdminService userAdminService;
 
+    @Autowired
+    private PasswordHashService passwordHashService;
+
+    @Autowired
+    private UserDirectory userDirectory;
+
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
     @GetMapping
     public Result<List<UserAdmin>> getAll() {
         return Result.success(userAdminService.list());
@@ -26,16 +38,39 @@ public class UserAdminController {
 
     @PostMapping
     public Result<Boolean> save(@RequestBody UserAdmin userAdmin) {
+        hashPassword(userAdmin);
         return Result.success(userAdminService.save(userAdmin));
     }
 
     @PutMapping
     public Result<Boolean> update(@RequestBody UserAdmin userAdmin) {
-        return Result.success(userAdminService.updateById(userAdmin));
+        hashPassword(userAdmin);
+        boolean result = userAdminService.updateById(userAdmin);
+        userDirectory.invalidate("admin", userAdmin.getUserId());
+        // 账号停用后立即使已签发的 Token 失效
+        if (result && "inactive".equals(userAdmin.getStatus())) {
+            tokenRevocationRegistry.revokeUser("admin", userAdmin.getUserId());
+        }
+        return Result.success(result);
     }
 
     @DeleteMapping("/{id}")
     public Result<Boolean> remove(@PathVariable String id) {
-        return Result.success(userAdminService.removeById(id));
+        boolean result = userAdminService.removeById(id);
+        userDirectory.invalidate("admin", id);
+        if (result) {
+            tokenRevocationRegistry.revokeUser("admin", id);
+        }
+        return Result.success(result);
+    }
+
+    /**
+     * 明文密码入库前先哈希
+     */
+    private void hashPassword(UserAdmin userAdmin) {
+        String passwd = userAdmin.getPasswd();
+        if (passwd != null && !passwd.isEmpty() && !passwordHashService.isHashed(passwd)) {
+            userAdmin.setPasswd(passwordHashService.hash(passwd));
+        }
     }
 }
@@ -1,6 +1,9 @@
 package is.smbackend.controller;
 
 import is.smbackend.pojo.UserAdvisor;
+import is.smbackend.service.PasswordHashService;
+import is.smbackend.service.TokenRevocationRegistry;
+import is.smbackend.service.UserDirectory;
 import is.smbackend.service.UserAdvisorService;
 import is.smbackend.response.Result;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +17,15 @@ public class UserAdvisorController {
     @Autowired
     private UserAdvisorService userAdvisorService;
 
+    @Autowired
+    private PasswordHashService passwordHashService;
+
+    @Autowired
+    private UserDirectory userDirectory;
+
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
     @GetMapping
     public Result<List<UserAdvisor>> getAll() {
         return Result.success(userAdvisorService.list());
@@ -26,16 +38,39 @@ public class UserAdvisorController {
 
     @PostMapping
     public Result<Boolean> save(@RequestBody UserAdvisor userAdvisor) {
+        hashPassword(userAdvisor);
         return Result.success(userAdvisorService.save(userAdvisor));
     }
 
     @PutMapping
     public Result<Boolean> update(@RequestBody UserAdvisor userAdvisor) {
-        return Result.success(userAdvisorService.updateById(userAdvisor));
+        hashPassword(userAdvisor);
+        boolean result = userAdvisorService.updateById(userAdvisor);
+        userDirectory.invalidate("advisor", userAdvisor.getUserId());
+        // 账号停用后立即使已签发的 Token 失效
+        if (result && "inactive".equals(userAdvisor.getStatus())) {
+            tokenRevocationRegistry.revokeUser("advisor", userAdvisor.getUserId());
+        }
+        return Result.success(result);
     }
 
     @DeleteMapping("/{id}")
     public Result<Boolean> remove(@PathVariable String id) {
-        return Result.success(userAdvisorService.removeById(id));
+        boolean result = userAdvisorService.removeById(id);
+        userDirectory.invalidate("advisor", id);
+        if (result) {
+            tokenRevocationRegistry.revokeUser("advisor", id);
+        }
+        return Result.success(result);
+    }
+
+    /**
+     * 明文密码入库前先哈希
+     */
+    private void hashPassword(UserAdvisor userAdvisor) {
+        String passwd = userAdvisor.getPasswd();
+        if (passwd != null && !passwd.isEmpty() && !passwordHashService.isHashed(passwd)) {
+            userAdvisor.setPasswd(passwordHashService.hash(passwd));
+        }
     }
 }
@@ -1,6 +1,9 @@
 package is.smbackend.controller;
 
 import is.smbackend.pojo.UserStudent;
+import is.smbackend.service.PasswordHashService;
+import is.smbackend.service.TokenRevocationRegistry;
+import is.smbackend.service.UserDirectory;
 import is.smbackend.service.UserStudentService;
 import is.smbackend.response.Result;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +17,15 @@ public class UserStudentController {
     @Autowired
     private UserStudentService userStudentService;
 
+    @Autowired
+    private PasswordHashService passwordHashService;
+
+    @Autowired
+    private UserDirectory userDirectory;
+
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
     @GetMapping
     public Result<List<UserStudent>> getAll() {
         return Result.success(userStudentService.list());
@@ -26,16 +38,39 @@ public class UserStudentController {
 
     @PostMapping
     public Result<Boolean> save(@RequestBody UserStudent userStudent) {
+        hashPassword(userStudent);
         return Result.success(userStudentService.save(userStudent));
     }
 
     @PutMapping
     public Result<Boolean> update(@RequestBody UserStudent userStudent) {
-        return Result.success(userStudentService.updateById(userStudent));
+        hashPassword(userStudent);
+        boolean result = userStudentService.updateById(userStudent);
+        userDirectory.invalidate("student", userStudent.getUserId());
+        // 账号停用后立即使已签发的 Token 失效
+        if (result && "inactive".equals(userStudent.getStatus())) {
+            tokenRevocationRegistry.revokeUser("student", userStudent.getUserId());
+        }
+        return Result.success(result);
     }
 
     @DeleteMapping("/{id}")
     public Result<Boolean> remove(@PathVariable String id) {
-        return Result.success(userStudentService.removeById(id));
+        boolean result = userStudentService.removeById(id);
+        userDirectory.invalidate("student", id);
+        if (result) {
+            tokenRevocationRegistry.revokeUser("student", id);
+        }
+        return Result.success(result);
+    }
+
+    /**
+     * 明文密码入库前先哈希
+     */
+    private void hashPassword(UserStudent userStudent) {
+        String passwd = userStudent.getPasswd();
+        if (passwd != null && !passwd.isEmpty() && !passwordHashService.isHashed(passwd)) {
+            userStudent.setPasswd(passwordHashService.hash(passwd));
+        }
     }
 }
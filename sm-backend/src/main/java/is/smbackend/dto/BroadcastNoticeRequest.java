@@ -0,0 +1,37 @@
+package is.smbackend.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.Data;
+
+/**
+ * 广播通知发布请求
+ */
+@Data
+public class BroadcastNoticeRequest {
+
+    @NotBlank(message = "通知标题不能为空")
+    @Size(max = 20, message = "通知标题不能超过20个字符")
+    private String title;
+
+    @NotBlank(message = "通知内容不能为空")
+    private String content;
+
+    @NotBlank(message = "通知类型不能为空")
+    @Size(max = 20, message = "通知类型不能超过20个字符")
+    private String noticeType;
+
+    @NotBlank(message = "发送范围不能为空")
+    @Pattern(regexp = "all|role|department|major|class", message = "发送范围只能是 all/role/department/major/class")
+    private String scopeType;
+
+    @Size(max = 20, message = "范围取值不能超过20个字符")
+    private String scopeValue;
+
+    @NotBlank(message = "发布人不能为空")
+    @Size(max = 20, message = "发布人不能超过20个字符")
+    private String publishUser;
+
+    private String publishUserId;
+
+    private String priority;
+}
@@ -0,0 +1,32 @@
+package is.smbackend.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.Data;
+
+/**
+ * 分片上传初始化请求
+ */
+@Data
+public class ChunkUploadInitRequest {
+
+    @NotBlank(message = "文件名不能为空")
+    @Size(max = 100, message = "文件名不能超过100个字符")
+    private String fileName;
+
+    @NotBlank(message = "文件类型不能为空")
+    private String fileType;
+
+    @NotNull(message = "文件大小不能为空")
+    @Positive(message = "文件大小必须大于0")
+    private Long fileSize;
+
+    @NotBlank(message = "关联业务ID不能为空")
+    private String relatedId;
+
+    @NotBlank(message = "关联业务类型不能为空")
+    @Pattern(regexp = "award|punishment|statusChange|leaveSchool", message = "关联业务类型不正确")
+    private String relatedType;
+
+    @NotBlank(message = "上传用户不能为空")
+    private String uploadUserId;
+}
@@ -0,0 +1,18 @@
+package is.smbackend.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 通知批量操作请求
+ */
+@Data
+public class NoticeBatchRequest {
+
+    @NotEmpty(message = "通知ID列表不能为空")
+    @Size(max = 1000, message = "单次最多操作1000条通知")
+    private List<String> noticeIds;
+}
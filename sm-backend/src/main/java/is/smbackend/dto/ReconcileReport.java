@@ -0,0 +1,69 @@
+package is.smbackend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 附件对账报告（存储中的文件 vs attachment 表记录）
+ */
+@Data
+public class ReconcileReport {
+
+    /**
+     * 仅报告，不删除
+     */
+    private boolean dryRun;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startTime;
+
+    /**
+     * 完成时间，运行中为空
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime finishTime;
+
+    /**
+     * 失败原因，成功时为空
+     */
+    private String error;
+
+    private long scannedRows;
+
+    private long scannedFiles;
+
+    private long scannedBytes;
+
+    /**
+     * 没有任何记录引用的文件（含过期的上传临时文件和孤立缩略图）
+     */
+    private long orphanFiles;
+
+    private long orphanBytes;
+
+    private long deletedFiles;
+
+    /**
+     * 所属业务记录已不存在的附件记录
+     */
+    private long danglingRows;
+
+    private long deletedRows;
+
+    /**
+     * 记录存在但文件缺失的附件
+     */
+    private long missingFiles;
+
+    /**
+     * 各类问题的示例（各最多 100 条）
+     */
+    private List<String> orphanFileSamples;
+
+    private List<String> danglingRowSamples;
+
+    private List<String> missingFileSamples;
+}
@@ -0,0 +1,56 @@
+package is.smbackend.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户资料投影（三类用户统一视图，不含密码）
+ */
+@Data
+public class UserProfile {
+    /**
+     * 用户ID
+     */
+    private String userId;
+
+    /**
+     * 用户名
+     */
+    private String userName;
+
+    /**
+     * 用户类型：student, advisor, admin
+     */
+    private String userType;
+
+    /**
+     * 管理员角色（仅管理员有值）
+     */
+    private String role;
+
+    /**
+     * 手机号
+     */
+    private String phone;
+
+    /**
+     * 邮箱
+     */
+    private String email;
+
+    /**
+     * 账号状态
+     */
+    private String status;
+
+    /**
+     * 最后登录时间
+     */
+    private LocalDateTime lastLoginTime;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+}
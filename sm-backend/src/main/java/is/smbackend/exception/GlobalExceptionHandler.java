@@ -1,10 +1,13 @@
 package is.smbackend.exception;
 
 import is.smbackend.response.Result;
+import is.smbackend.response.ResultCode;
+import org.springframework.http.HttpStatus;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.util.stream.Collectors;
@@ -15,6 +18,15 @@ import java.util.stream.Collectors;
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    /**
+     * 处理限流异常
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public Result<Void> handleTooManyRequestsException(TooManyRequestsException e) {
+        return Result.failed(ResultCode.TOO_MANY_REQUESTS, e.getMessage());
+    }
+
     /**
      * 处理业务异常
      */
@@ -0,0 +1,11 @@
+package is.smbackend.exception;
+
+/**
+ * 请求过于频繁（限流、过载保护），返回 HTTP 429
+ */
+public class TooManyRequestsException extends BusinessException {
+
+    public TooManyRequestsException(String message) {
+        super(message);
+    }
+}
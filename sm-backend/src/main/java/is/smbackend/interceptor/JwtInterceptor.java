@@ -1,7 +1,10 @@
 package is.smbackend.interceptor;
 
+import io.jsonwebtoken.Claims;
 import is.smbackend.exception.BusinessException;
+import is.smbackend.service.TokenRevocationRegistry;
 import is.smbackend.util.JwtUtil;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +20,9 @@ public class JwtInterceptor implements HandlerInterceptor {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
         // 放行 OPTIONS 请求（CORS 预检）
@@ -24,6 +30,11 @@ public class JwtInterceptor implements HandlerInterceptor {
             return true;
         }
 
+        // 异步请求（通知推送）结束时的再次分发，初次请求已校验过
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+
         // 从请求头获取 Token
         String token = request.getHeader("Authorization");
         
@@ -41,24 +52,36 @@ public class JwtInterceptor implements HandlerInterceptor {
             token = token.substring(7);
         }
 
-        // 验证 Token
-        if (!jwtUtil.validateToken(token)) {
+        // 验证 Token（只解析一次）
+        Claims claims;
+        try {
+            claims = jwtUtil.parseToken(token);
+        } catch (Exception e) {
             throw new BusinessException("登录已过期，请重新登录");
         }
 
+        String userId = claims.get("userId", String.class);
+        String userType = claims.get("userType", String.class);
+
+        // 检查是否已被吊销（登出、强制下线）
+        if (tokenRevocationRegistry.isRevoked(claims.getId(), userType, userId,
+                JwtUtil.getIssuedAtMillis(claims))) {
+            throw new BusinessException("登录已失效，请重新登录");
+        }
+
         // 将用户信息存入请求属性，供后续使用
-        request.setAttribute("userId", jwtUtil.getUserId(token));
-        request.setAttribute("userName", jwtUtil.getUserName(token));
-        request.setAttribute("userType", jwtUtil.getUserType(token));
+        request.setAttribute("userId", userId);
+        request.setAttribute("userName", claims.get("userName", String.class));
+        request.setAttribute("userType", userType);
+        request.setAttribute("tokenId", claims.getId());
+        request.setAttribute("tokenExpiration", claims.getExpiration());
 
         // 检查 Token 是否需要刷新（即将过期）
-        if (jwtUtil.needRefresh(token)) {
-            String newToken = jwtUtil.refreshToken(token);
-            if (newToken != null) {
-                // 将新 Token 放入响应头，前端可以获取并更新
-                response.setHeader("X-New-Token", newToken);
-                response.setHeader("Access-Control-Expose-Headers", "X-New-Token");
-            }
+        if (jwtUtil.needRefresh(claims)) {
+            String newToken = jwtUtil.refreshToken(claims);
+            // 将新 Token 放入响应头，前端可以获取并更新
+            response.setHeader("X-New-Token", newToken);
+            response.setHeader("Access-Control-Expose-Headers", "X-New-Token");
         }
 
         return true;
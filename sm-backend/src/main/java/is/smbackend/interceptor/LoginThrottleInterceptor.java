@@ -0,0 +1,27 @@
+package is.smbackend.interceptor;
+
+import is.smbackend.service.LoginThrottle;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * 登录限流拦截器 - 在解析请求体之前按IP限流
+ */
+@Component
+public class LoginThrottleInterceptor implements HandlerInterceptor {
+
+    @Autowired
+    private LoginThrottle loginThrottle;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+        loginThrottle.checkIp(request);
+        return true;
+    }
+}
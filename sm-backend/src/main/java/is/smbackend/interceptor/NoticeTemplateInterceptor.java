@@ -0,0 +1,43 @@
+package is.smbackend.interceptor;
+
+import is.smbackend.pojo.Notice;
+import is.smbackend.pojo.NoticeArchive;
+import is.smbackend.service.NoticeTemplateRegistry;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * 通知模板渲染插件 - 查询 notice / notice_archive 后按模板填充标题和内容
+ * <p>
+ * 在 MyBatis 结果映射之后统一处理，所有查询通知的接口、推送补发和归档历史都无需单独渲染。
+ */
+@Component
+@Intercepts(@Signature(type = ResultSetHandler.class, method = "handleResultSets", args = Statement.class))
+public class NoticeTemplateInterceptor implements Interceptor {
+
+    @Autowired
+    private NoticeTemplateRegistry noticeTemplateRegistry;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        if (result instanceof List<?> rows) {
+            for (Object row : rows) {
+                if (row instanceof Notice notice) {
+                    noticeTemplateRegistry.render(notice);
+                } else if (row instanceof NoticeArchive archive) {
+                    noticeTemplateRegistry.render(archive);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,27 @@
+package is.smbackend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import is.smbackend.pojo.AttachmentUpload;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+
+@Mapper
+public interface AttachmentUploadMapper extends BaseMapper<AttachmentUpload> {
+
+    /**
+     * 分片写入后推进已接收字节数（重传已接收的分片时不回退）
+     */
+    @Update("UPDATE attachment_upload SET received = GREATEST(received, #{end}), update_time = #{updateTime} " +
+            "WHERE upload_id = #{uploadId} AND received >= #{offset}")
+    int advanceReceived(@Param("uploadId") String uploadId, @Param("offset") long offset,
+                        @Param("end") long end, @Param("updateTime") LocalDateTime updateTime);
+
+    /**
+     * 认领上传任务（尚未被任何节点认领时）
+     */
+    @Update("UPDATE attachment_upload SET owner_node = #{ownerNode} WHERE upload_id = #{uploadId} AND owner_node IS NULL")
+    int claimOwner(@Param("uploadId") String uploadId, @Param("ownerNode") int ownerNode);
+}
@@ -0,0 +1,28 @@
+package is.smbackend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import is.smbackend.pojo.NoticeArchive;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@Mapper
+public interface NoticeArchiveMapper extends BaseMapper<NoticeArchive> {
+
+    /**
+     * 将指定的已读通知复制到归档表（重复归档时忽略）
+     */
+    @Insert({"<script>",
+            "INSERT IGNORE INTO notice_archive (notice_id, title, content, template_code, template_params,",
+            "notice_type, target_user, target_type,",
+            "publish_user, publish_user_id, publish_time, priority, read_time, archive_time)",
+            "SELECT notice_id, title, content, template_code, template_params, notice_type, target_user, target_type,",
+            "publish_user, publish_user_id, publish_time, priority, read_time, #{archiveTime}",
+            "FROM notice WHERE is_read = 1 AND notice_id IN",
+            "<foreach collection='noticeIds' item='noticeId' open='(' separator=',' close=')'>#{noticeId}</foreach>",
+            "</script>"})
+    int copyFromNotice(@Param("noticeIds") Collection<String> noticeIds, @Param("archiveTime") LocalDateTime archiveTime);
+}
@@ -0,0 +1,21 @@
+package is.smbackend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import is.smbackend.pojo.NoticeBroadcast;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+@Mapper
+public interface NoticeBroadcastMapper extends BaseMapper<NoticeBroadcast> {
+
+    /**
+     * 锁定并读取已读位图（需在事务中调用）
+     */
+    @Select("SELECT read_bitmap FROM notice_broadcast WHERE broadcast_id = #{broadcastId} FOR UPDATE")
+    byte[] lockReadBitmap(@Param("broadcastId") String broadcastId);
+
+    @Update("UPDATE notice_broadcast SET read_bitmap = #{readBitmap} WHERE broadcast_id = #{broadcastId}")
+    int updateReadBitmap(@Param("broadcastId") String broadcastId, @Param("readBitmap") byte[] readBitmap);
+}
@@ -2,8 +2,78 @@ package is.smbackend.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import is.smbackend.pojo.Notice;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface NoticeMapper extends BaseMapper<Notice> {
+
+    /**
+     * 批量统计用户未读通知数量，每行包含 userId 和 unread（没有未读通知的用户不返回）
+     */
+    @Select({"<script>",
+            "SELECT target_user AS userId, COUNT(*) AS unread FROM notice",
+            "WHERE is_read = 0 AND target_user IN",
+            "<foreach collection='userIds' item='userId' open='(' separator=',' close=')'>#{userId}</foreach>",
+            "GROUP BY target_user",
+            "</script>"})
+    List<Map<String, Object>> countUnreadByUsers(@Param("userIds") Collection<String> userIds);
+
+    /**
+     * 将用户的未读通知全部标记已读
+     */
+    @Update("UPDATE notice SET is_read = 1, read_time = #{readTime} WHERE target_user = #{userId} AND is_read = 0")
+    int markAllRead(@Param("userId") String userId, @Param("readTime") LocalDateTime readTime);
+
+    /**
+     * 将用户的指定未读通知标记已读
+     */
+    @Update({"<script>",
+            "UPDATE notice SET is_read = 1, read_time = #{readTime}",
+            "WHERE target_user = #{userId} AND is_read = 0 AND notice_id IN",
+            "<foreach collection='noticeIds' item='noticeId' open='(' separator=',' close=')'>#{noticeId}</foreach>",
+            "</script>"})
+    int markReadByIds(@Param("userId") String userId, @Param("noticeIds") Collection<String> noticeIds,
+                      @Param("readTime") LocalDateTime readTime);
+
+    /**
+     * 删除指定通知，userId 不为空时只删除该用户的通知
+     */
+    @Delete({"<script>",
+            "DELETE FROM notice WHERE notice_id IN",
+            "<foreach collection='noticeIds' item='noticeId' open='(' separator=',' close=')'>#{noticeId}</foreach>",
+            "<if test='userId != null'>AND target_user = #{userId}</if>",
+            "</script>"})
+    int deleteByIds(@Param("userId") String userId, @Param("noticeIds") Collection<String> noticeIds);
+
+    /**
+     * 删除指定通知中的已读通知
+     */
+    @Delete({"<script>",
+            "DELETE FROM notice WHERE is_read = 1 AND notice_id IN",
+            "<foreach collection='noticeIds' item='noticeId' open='(' separator=',' close=')'>#{noticeId}</foreach>",
+            "</script>"})
+    int deleteReadByIds(@Param("noticeIds") Collection<String> noticeIds);
+
+    /**
+     * 按主键顺序查找在指定时间之前已读的通知ID，从 afterId 之后开始
+     */
+    @Select("SELECT notice_id FROM notice WHERE notice_id > #{afterId} AND is_read = 1 AND read_time < #{before} "
+            + "ORDER BY notice_id LIMIT #{limit}")
+    List<String> selectReadIdsBefore(@Param("before") LocalDateTime before, @Param("afterId") String afterId,
+                                     @Param("limit") int limit);
+
+    /**
+     * 删除在指定时间之前已读的通知
+     */
+    @Delete("DELETE FROM notice WHERE is_read = 1 AND read_time < #{before}")
+    int deleteReadBefore(@Param("before") LocalDateTime before);
 }
@@ -0,0 +1,39 @@
+package is.smbackend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import is.smbackend.pojo.NoticeOutbox;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Mapper
+public interface NoticeOutboxMapper extends BaseMapper<NoticeOutbox> {
+
+    /**
+     * 锁定一批写入时间不晚于 readyBefore、已到投递时间的待处理记录，已被其他节点锁定的记录直接跳过（需在事务中调用）
+     */
+    @Select("SELECT * FROM notice_outbox WHERE create_time <= #{readyBefore} AND next_attempt_at <= #{now} " +
+            "ORDER BY outbox_id LIMIT #{limit} FOR UPDATE SKIP LOCKED")
+    List<NoticeOutbox> lockBatch(@Param("readyBefore") LocalDateTime readyBefore, @Param("now") LocalDateTime now,
+                                 @Param("limit") int limit);
+
+    /**
+     * 锁定指定业务记录的全部未失败过的待处理记录（含未到合并窗口的），已被其他节点锁定的直接跳过（需在事务中调用）
+     */
+    @Select("<script>" +
+            "SELECT * FROM notice_outbox WHERE attempts = 0 AND biz_key IN " +
+            "<foreach collection='bizKeys' item='bizKey' open='(' separator=',' close=')'>#{bizKey}</foreach> " +
+            "ORDER BY outbox_id FOR UPDATE SKIP LOCKED" +
+            "</script>")
+    List<NoticeOutbox> lockByBizKeys(@Param("bizKeys") Collection<String> bizKeys);
+
+    /**
+     * 锁定单条已到投递时间的记录，已被其他节点锁定时返回 null（需在事务中调用）
+     */
+    @Select("SELECT * FROM notice_outbox WHERE outbox_id = #{outboxId} AND next_attempt_at <= #{now} FOR UPDATE SKIP LOCKED")
+    NoticeOutbox lockOne(@Param("outboxId") Long outboxId, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,17 @@
+package is.smbackend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import is.smbackend.pojo.NoticeUserIndex;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+@Mapper
+public interface NoticeUserIndexMapper extends BaseMapper<NoticeUserIndex> {
+
+    /**
+     * 分配用户序号，已存在时忽略（多节点并发分配时以先插入的为准）
+     */
+    @Insert("INSERT IGNORE INTO notice_user_index (user_type, user_id) VALUES (#{userType}, #{userId})")
+    int insertIgnore(@Param("userType") String userType, @Param("userId") String userId);
+}
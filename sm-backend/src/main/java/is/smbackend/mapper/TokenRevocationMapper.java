@@ -0,0 +1,9 @@
+package is.smbackend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import is.smbackend.pojo.TokenRevocation;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface TokenRevocationMapper extends BaseMapper<TokenRevocation> {
+}
@@ -3,7 +3,25 @@ package is.smbackend.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import is.smbackend.pojo.UserAdvisor;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.Map;
 
 @Mapper
 public interface UserAdvisorMapper extends BaseMapper<UserAdvisor> {
+
+    /**
+     * 批量更新最后登录时间，只写 last_login_time 一列，且不会回退到更早的时间
+     */
+    @Update({"<script>",
+            "UPDATE user_advisor SET last_login_time = CASE user_id",
+            "<foreach collection='times' index='userId' item='time'>",
+            "WHEN #{userId} THEN GREATEST(COALESCE(last_login_time, #{time}), #{time})",
+            "</foreach>",
+            "END WHERE user_id IN",
+            "<foreach collection='times' index='userId' open='(' separator=',' close=')'>#{userId}</foreach>",
+            "</script>"})
+    int batchUpdateLastLoginTime(@Param("times") Map<String, LocalDateTime> times);
 }
@@ -15,6 +15,7 @@ public class Attachment {
     private String filePath;
     private Long fileSize;
     private String fileType;
+    private String contentHash;  // 文件内容 SHA-256（下载时作为 ETag）
     private String relatedId;
     private String relatedType;  // award, punishment, statusChange, leaveSchool
     private String uploadUserId;
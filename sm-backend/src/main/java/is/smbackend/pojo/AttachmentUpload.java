@@ -0,0 +1,27 @@
+package is.smbackend.pojo;
+
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("attachment_upload")
+public class AttachmentUpload {
+    @TableId
+    private String uploadId;
+    private String fileName;
+    private String fileType;
+    private Long fileSize;
+    private Long chunkSize;  // 单个分片的最大字节数
+    private Long received;  // 已连续接收的字节数，断点续传从此处继续
+    private String relatedId;
+    private String relatedType;
+    private String uploadUserId;
+    private Integer ownerNode;  // 保存分片临时文件的节点号（id.node-id），首个分片写入时认领
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createTime;
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime updateTime;
+}
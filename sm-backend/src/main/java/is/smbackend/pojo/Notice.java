@@ -12,6 +12,8 @@ public class Notice {
     private String noticeId;
     private String title;
     private String content;
+    private String templateCode;  // 通知模板编码，不为空时标题和内容由模板渲染
+    private String templateParams;  // 模板参数（JSON 字符串数组）
     private String noticeType;
     private String targetUser;
     private String targetType;  // student 或 advisor
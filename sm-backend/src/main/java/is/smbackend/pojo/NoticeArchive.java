@@ -0,0 +1,26 @@
+package is.smbackend.pojo;
+
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("notice_archive")
+public class NoticeArchive {
+    @TableId
+    private String noticeId;
+    private String title;
+    private String content;
+    private String templateCode;  // 通知模板编码，不为空时标题和内容由模板渲染
+    private String templateParams;  // 模板参数（JSON 字符串数组）
+    private String noticeType;
+    private String targetUser;
+    private String targetType;
+    private String publishUser;
+    private String publishUserId;
+    private LocalDateTime publishTime;
+    private String priority;
+    private LocalDateTime readTime;
+    private LocalDateTime archiveTime;
+}
@@ -0,0 +1,25 @@
+package is.smbackend.pojo;
+
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("notice_broadcast")
+public class NoticeBroadcast {
+    @TableId
+    private String broadcastId;
+    private String title;
+    private String content;
+    private String noticeType;
+    private String scopeType;   // all, role, department, major, class
+    private String scopeValue;  // 角色为 student/advisor/admin，其余为院系、专业、班级名称
+    private String publishUser;
+    private String publishUserId;
+    private LocalDateTime publishTime;
+    private String priority;
+    @JsonIgnore
+    private byte[] readBitmap;  // 已读用户位图（RoaringBitmap 序列化）
+}
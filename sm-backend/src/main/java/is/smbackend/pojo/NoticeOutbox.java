@@ -0,0 +1,20 @@
+package is.smbackend.pojo;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("notice_outbox")
+public class NoticeOutbox {
+    @TableId(type = IdType.AUTO)
+    private Long outboxId;
+    private String payload;  // 待发送通知的 JSON 数组
+    private String bizKey;  // 业务记录标识，同一记录的通知合并为摘要
+    private Integer attempts;  // 投递失败次数
+    private LocalDateTime nextAttemptAt;  // 下次投递时间，为 null 时已搁置（失败次数超限）
+    private String lastError;  // 最近一次投递失败原因
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,15 @@
+package is.smbackend.pojo;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+@Data
+@TableName("notice_user_index")
+public class NoticeUserIndex {
+    @TableId(type = IdType.AUTO)
+    private Integer userIndex;  // 连续整数，用作已读位图下标
+    private String userType;
+    private String userId;
+}
@@ -0,0 +1,19 @@
+package is.smbackend.pojo;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("token_revocation")
+public class TokenRevocation {
+    @TableId(type = IdType.AUTO)
+    private Long revokeId;
+    private String revokeType;  // jti 或 user
+    private String revokeKey;   // jti 或 userType:userId
+    private LocalDateTime notBefore;  // 按用户吊销时，不晚于该时间签发的 Token 全部失效
+    private LocalDateTime expireTime;
+    private LocalDateTime createTime;
+}
@@ -4,4 +4,9 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import is.smbackend.pojo.Appeal;
 
 public interface AppealService extends IService<Appeal> {
+
+    /**
+     * 更新申诉记录，审批状态变化时在同一事务内写入待发送通知
+     */
+    boolean updateWithNotice(Appeal appeal);
 }
@@ -0,0 +1,151 @@
+package is.smbackend.service;
+
+import is.smbackend.pojo.Attachment;
+import is.smbackend.util.HashUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 附件下载 - 支持条件请求（ETag / Last-Modified 返回 304）和范围请求（206）
+ * <p>
+ * 完整下载且文件较大时交给 Tomcat sendfile（FileChannel.transferTo）发送，文件内容不经过 JVM 堆；
+ * 带 Range 的请求返回 FileSystemResource，由 Spring MVC 按 ResourceRegion 输出 206 响应。
+ * ETag 取文件内容的 SHA-256，上传时计算；旧附件在首次下载时计算并回写。
+ * 每个文件在本进程内首次下载时按哈希校验一次内容，发现损坏时拒绝下载。
+ * <p>
+ * 配置了 file.download.accel-prefix 时（前端有 Nginx），只返回 X-Accel-Redirect 头，
+ * 由 Nginx 从内部 location 读取文件发送（sendfile、Range 均由 Nginx 处理），不占用 Tomcat 线程。
+ * <p>
+ * 存储后端为对象存储时重定向到预签名地址，由客户端直接从存储下载（Range 由对象存储处理）。
+ */
+@Slf4j
+@Component
+public class AttachmentDownloader {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final String ACCEL_REDIRECT = "X-Accel-Redirect";
+
+    @Autowired
+    private AttachmentService attachmentService;
+
+    @Autowired
+    private AttachmentStorage attachmentStorage;
+
+    @Autowired
+    private FileStorage fileStorage;
+
+    // 不小于该大小（字节）的文件使用 sendfile 发送，小文件直接写出更快
+    @Value("${file.download.sendfile-min-size:49152}")
+    private long sendfileMinSize;
+
+    // 已校验的文件：存储路径 -> 校验时的修改时间
+    private final ConcurrentHashMap<String, Long> verified = new ConcurrentHashMap<>();
+
+    // Nginx 内部 location 前缀（如 /protected-files/），为空时由应用自身输出文件
+    @Value("${file.download.accel-prefix:}")
+    private String accelPrefix;
+
+    /**
+     * 输出附件内容
+     */
+    public ResponseEntity<Resource> download(Attachment attachment, HttpServletRequest request,
+                                             HttpServletResponse response) throws IOException {
+        AttachmentStorage.Located located = attachmentStorage.locate(attachment);
+        if (located == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String key = located.key();
+        long length = located.stat().size();
+        long lastModified = located.stat().lastModified();
+        Path file = fileStorage.localPath(key);
+        if (file != null && !verify(attachment, key, file, lastModified)) {
+            return ResponseEntity.internalServerError().build();
+        }
+        String etag = attachment.getContentHash() != null ? "\"" + attachment.getContentHash() + "\"" : null;
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        String encodedFilename = URLEncoder.encode(attachment.getFileName(), StandardCharsets.UTF_8)
+                .replaceAll("\\+", "%20");
+        String disposition = "attachment; filename*=UTF-8''" + encodedFilename;
+        if (file == null) {
+            // 对象存储：文件内容不经过应用服务器
+            URI location = fileStorage.presignDownload(key, attachment.getFileType(), disposition);
+            return ResponseEntity.status(HttpStatus.FOUND).location(location).build();
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(attachment.getFileType()));
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, disposition);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+        headers.setLastModified(lastModified);
+
+        if (!accelPrefix.isEmpty()) {
+            headers.set(ACCEL_REDIRECT, accelPrefix + UriUtils.encodePath(key, StandardCharsets.UTF_8));
+            return new ResponseEntity<>(headers, HttpStatus.OK);
+        }
+        if (request.getHeader(HttpHeaders.RANGE) == null
+                && "GET".equals(request.getMethod())
+                && length >= sendfileMinSize
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // 响应提交后由 Tomcat 直接从文件发送
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, length);
+            headers.setContentLength(length);
+            return new ResponseEntity<>(headers, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(new FileSystemResource(file), headers, HttpStatus.OK);
+    }
+
+    /**
+     * 惰性校验文件内容：每个文件（按修改时间区分）在本进程内首次下载时计算哈希，与记录不一致时拒绝下载；
+     * 未记录哈希的旧附件计算后回写
+     */
+    private boolean verify(Attachment attachment, String key, Path file, long lastModified) throws IOException {
+        Long verifiedAt = verified.get(key);
+        if (verifiedAt != null && verifiedAt == lastModified && attachment.getContentHash() != null) {
+            return true;
+        }
+        String hash = HashUtil.sha256(file);
+        if (attachment.getContentHash() == null) {
+            attachment.setContentHash(hash);
+            attachmentService.lambdaUpdate()
+                    .set(Attachment::getContentHash, hash)
+                    .eq(Attachment::getAttachmentId, attachment.getAttachmentId())
+                    .update();
+        } else if (!hash.equals(attachment.getContentHash())) {
+            log.error("附件 {} 文件校验失败：{} 的内容哈希为 {}，记录为 {}",
+                    attachment.getAttachmentId(), file, hash, attachment.getContentHash());
+            return false;
+        }
+        verified.put(key, lastModified);
+        return true;
+    }
+}
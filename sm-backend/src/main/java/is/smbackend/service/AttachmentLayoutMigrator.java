@@ -0,0 +1,143 @@
+package is.smbackend.service;
+
+import is.smbackend.pojo.Attachment;
+import is.smbackend.util.HashUtil;
+import is.smbackend.util.IoThrottle;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+
+/**
+ * 附件目录迁移 - 把旧路径（{relatedType}/{uuid}、objects/{sha256}）下的文件分批移到 objects/ab/cd/{sha256}
+ * <p>
+ * 每轮按附件编号顺序取一批未迁移的记录，逐个：沿用或计算内容哈希 → 在存储内复制到新路径（本地为硬链接，S3 为服务端复制）
+ * → 把引用旧路径的记录改到新路径 → 删除旧文件。复制和更新在该哈希的锁内进行，与上传、删除互斥；
+ * 迁移期间读取由 {@link AttachmentStorage#locate} 兼容新旧路径。相同内容的旧附件迁移后合并为一个文件。
+ * 默认关闭；多节点部署时只在一个节点开启。
+ */
+@Slf4j
+@Component
+public class AttachmentLayoutMigrator {
+
+    @Autowired
+    private AttachmentService attachmentService;
+
+    @Autowired
+    private AttachmentStorage attachmentStorage;
+
+    @Autowired
+    private FileStorage fileStorage;
+
+    @Value("${file.migration.enabled:false}")
+    private boolean enabled;
+
+    // 每轮处理的记录数
+    @Value("${file.migration.batch-size:200}")
+    private int batchSize;
+
+    // 限速：每秒迁移的文件数和读取的字节数（补算哈希时需读全文件）
+    @Value("${file.migration.files-per-second:20}")
+    private long filesPerSecond;
+
+    @Value("${file.migration.bytes-per-second:20971520}")
+    private long bytesPerSecond;
+
+    private IoThrottle throttle;
+
+    // 本轮扫描到的最后一个附件编号
+    private String cursor = "";
+
+    @PostConstruct
+    public void init() {
+        throttle = new IoThrottle(filesPerSecond, bytesPerSecond);
+    }
+
+    /**
+     * 迁移一批附件
+     */
+    @Scheduled(fixedDelayString = "${file.migration.interval:60000}")
+    public void migrateBatch() {
+        if (!enabled) {
+            return;
+        }
+        List<Attachment> batch = attachmentService.listLegacyLayout(cursor, batchSize);
+        if (batch.isEmpty()) {
+            if (!cursor.isEmpty()) {
+                log.info("附件目录迁移完成一轮扫描");
+                cursor = "";
+            }
+            return;
+        }
+
+        int migrated = 0;
+        for (Attachment attachment : batch) {
+            cursor = attachment.getAttachmentId();
+            try {
+                if (migrate(attachment)) {
+                    migrated++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("迁移附件 {} 失败：{}", attachment.getAttachmentId(), attachment.getFilePath(), e);
+            }
+        }
+        log.info("附件目录迁移：本批 {} 条记录，迁移 {} 个文件", batch.size(), migrated);
+    }
+
+    /**
+     * 迁移一个附件的文件，返回是否移动了文件
+     */
+    private boolean migrate(Attachment attachment) throws IOException, InterruptedException {
+        String oldPath = attachment.getFilePath();
+        FileStorage.FileStat stat = fileStorage.stat(oldPath);
+        if (stat == null) {
+            log.warn("附件 {} 的文件不存在，跳过迁移：{}", attachment.getAttachmentId(), oldPath);
+            return false;
+        }
+        throttle.acquire(attachment.getContentHash() == null ? stat.size() : 0);
+
+        String hash = attachment.getContentHash();
+        if (hash == null) {
+            try (InputStream in = Channels.newInputStream(fileStorage.open(oldPath))) {
+                hash = HashUtil.sha256(in);
+            }
+        }
+        String target = attachmentStorage.objectKey(hash);
+
+        try (AttachmentStorage.HashLock lock = attachmentStorage.lock(hash)) {
+            boolean created = fileStorage.copyIfAbsent(oldPath, target);
+            // 旧的 objects/{sha256} 可能被多条记录共用，一并更新
+            boolean updated = attachmentService.repointFile(oldPath, target, hash);
+            if (!updated) {
+                // 记录已被删除
+                if (created) {
+                    attachmentStorage.delete(target);
+                }
+                return false;
+            }
+            try {
+                fileStorage.copyIfAbsent(attachmentStorage.thumbnailKey(oldPath), attachmentStorage.thumbnailKey(target));
+            } catch (NoSuchFileException e) {
+                // 没有缩略图
+            }
+            try {
+                fileStorage.copyIfAbsent(attachmentStorage.noThumbnailKey(oldPath), attachmentStorage.noThumbnailKey(target));
+            } catch (NoSuchFileException e) {
+                // 没有无缩略图标记
+            }
+            attachmentStorage.delete(oldPath);
+            return true;
+        }
+    }
+}
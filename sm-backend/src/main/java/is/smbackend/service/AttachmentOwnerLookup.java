@@ -0,0 +1,65 @@
+package is.smbackend.service;
+
+import is.smbackend.pojo.Appeal;
+import is.smbackend.pojo.Award;
+import is.smbackend.pojo.LeaveSchool;
+import is.smbackend.pojo.Punishment;
+import is.smbackend.pojo.StatusChange;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 附件所属业务记录查询 - 按 relatedType 批量核对奖励、处分（含申诉）、学籍异动、离校记录是否仍存在
+ */
+@Component
+public class AttachmentOwnerLookup {
+
+    @Autowired
+    private AwardService awardService;
+
+    @Autowired
+    private PunishmentService punishmentService;
+
+    @Autowired
+    private AppealService appealService;
+
+    @Autowired
+    private StatusChangeService statusChangeService;
+
+    @Autowired
+    private LeaveSchoolService leaveSchoolService;
+
+    /**
+     * 仍存在的业务记录编号；申诉材料以 punishment 类型关联申诉编号
+     */
+    public Set<String> existingOwners(String relatedType, Collection<String> ids) {
+        return switch (relatedType) {
+            case "award" -> ids(awardService.lambdaQuery().select(Award::getAwardId)
+                    .in(Award::getAwardId, ids).list(), Award::getAwardId);
+            case "punishment" -> {
+                Set<String> owners = ids(punishmentService.lambdaQuery().select(Punishment::getPunishmentId)
+                        .in(Punishment::getPunishmentId, ids).list(), Punishment::getPunishmentId);
+                owners.addAll(ids(appealService.lambdaQuery().select(Appeal::getAppealId)
+                        .in(Appeal::getAppealId, ids).list(), Appeal::getAppealId));
+                yield owners;
+            }
+            case "statusChange" -> ids(statusChangeService.lambdaQuery().select(StatusChange::getChangeId)
+                    .in(StatusChange::getChangeId, ids).list(), StatusChange::getChangeId);
+            case "leaveSchool" -> ids(leaveSchoolService.lambdaQuery().select(LeaveSchool::getLeaveId)
+                    .in(LeaveSchool::getLeaveId, ids).list(), LeaveSchool::getLeaveId);
+            // 未知类型不判定为无主
+            default -> new HashSet<>(ids);
+        };
+    }
+
+    private static <T> Set<String> ids(List<T> rows, Function<T, String> id) {
+        return rows.stream().map(id).collect(Collectors.toCollection(HashSet::new));
+    }
+}
@@ -0,0 +1,332 @@
+package is.smbackend.service;
+
+import is.smbackend.dto.ReconcileReport;
+import is.smbackend.pojo.Attachment;
+import is.smbackend.util.IoThrottle;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 附件对账 - 找出存储中没有记录引用的文件，以及所属业务记录已删除的附件记录
+ * <p>
+ * 先按附件编号分页读取 attachment 表，收集被引用的存储路径并批量核对所属业务记录；
+ * 再遍历存储（本地按目录 ForkJoin 并行），未被引用的文件即孤立文件，被引用但未遍历到的路径即缺失文件。
+ * 最近 grace-hours 内修改的文件和上传的记录跳过，避免误删正在上传、尚未保存业务记录的附件。
+ * 默认只报告（dry-run）；清理时逐个复查后再删除：对象文件在其哈希锁（s3 时为跨节点锁）内复查引用，
+ * 与上传、删除、目录迁移互斥。读取记录和遍历文件均按配置限速。
+ */
+@Slf4j
+@Component
+public class AttachmentReconciler {
+
+    private static final int SAMPLE_LIMIT = 100;
+
+    @Autowired
+    private AttachmentService attachmentService;
+
+    @Autowired
+    private AttachmentUploadService attachmentUploadService;
+
+    @Autowired
+    private AttachmentStorage attachmentStorage;
+
+    @Autowired
+    private FileStorage fileStorage;
+
+    @Autowired
+    private AttachmentOwnerLookup attachmentOwnerLookup;
+
+    // 是否按 cron 定时执行
+    @Value("${file.reconcile.enabled:false}")
+    private boolean enabled;
+
+    // 定时执行时是否只报告不删除
+    @Value("${file.reconcile.dry-run:true}")
+    private boolean dryRun;
+
+    // 最近该时长内修改的文件、上传的记录不参与对账（小时）
+    @Value("${file.reconcile.grace-hours:24}")
+    private long graceHours;
+
+    // 本地存储遍历的并行度
+    @Value("${file.reconcile.parallelism:4}")
+    private int parallelism;
+
+    // 限速：每秒遍历的文件数、读取的记录数
+    @Value("${file.reconcile.files-per-second:2000}")
+    private long filesPerSecond;
+
+    @Value("${file.reconcile.rows-per-second:5000}")
+    private long rowsPerSecond;
+
+    @Value("${file.reconcile.batch-size:1000}")
+    private int batchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // 最近一次（或正在进行的）对账
+    private volatile Run current;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "attachment-reconciler");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(cron = "${file.reconcile.cron:0 30 3 * * ?}")
+    public void scheduledRun() {
+        if (enabled) {
+            start(dryRun);
+        }
+    }
+
+    /**
+     * 在后台启动对账，已有对账在运行时返回 false
+     */
+    public boolean start(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Run run = new Run(dryRun);
+        current = run;
+        executor.execute(() -> {
+            try {
+                reconcile(run);
+            } catch (Exception e) {
+                run.error = e.getMessage();
+                log.error("附件对账失败", e);
+            } finally {
+                run.finishTime = LocalDateTime.now();
+                running.set(false);
+                log.info("附件对账完成（{}）：记录 {} 条，文件 {} 个；孤立文件 {} 个（删除 {}），无主记录 {} 条（删除 {}），缺失文件 {} 个",
+                        run.dryRun ? "仅报告" : "清理", run.scannedRows, run.scannedFiles, run.orphanFiles,
+                        run.deletedFiles, run.danglingRows, run.deletedRows, run.missingFiles);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 最近一次对账的报告，从未运行时返回 null
+     */
+    public ReconcileReport report() {
+        Run run = current;
+        return run != null ? run.snapshot() : null;
+    }
+
+    private void reconcile(Run run) throws Exception {
+        LocalDateTime cutoffTime = LocalDateTime.now().minusHours(graceHours);
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(graceHours);
+
+        Set<String> referenced = new HashSet<>();
+        List<Attachment> dangling = new ArrayList<>();
+        scanRows(run, referenced, dangling, cutoffTime);
+
+        Set<String> activeUploads = attachmentUploadService.listUploadIds();
+        Set<String> unseen = ConcurrentHashMap.newKeySet();
+        unseen.addAll(referenced);
+        Queue<String> orphans = new ConcurrentLinkedQueue<>();
+        IoThrottle throttle = new IoThrottle(filesPerSecond, 0);
+        fileStorage.walk(parallelism, (key, stat) -> {
+            try {
+                throttle.acquire(0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("附件对账被中断", e);
+            }
+            run.scannedFiles.incrementAndGet();
+            run.scannedBytes.addAndGet(stat.size());
+            unseen.remove(key);
+            // 新文件可能刚放入存储、记录尚未保存
+            if (stat.lastModified() < cutoff && isOrphan(key, referenced, activeUploads)) {
+                orphans.add(key);
+                run.orphanFiles.incrementAndGet();
+                run.orphanBytes.addAndGet(stat.size());
+                run.sample(run.orphanFileSamples, key);
+            }
+        });
+        for (String key : unseen) {
+            run.missingFiles.incrementAndGet();
+            run.sample(run.missingFileSamples, key);
+        }
+
+        if (run.dryRun) {
+            return;
+        }
+        for (Attachment attachment : dangling) {
+            throttle.acquire(0);
+            // 复查：业务记录可能刚刚保存
+            if (attachmentOwnerLookup.existingOwners(attachment.getRelatedType(), List.of(attachment.getRelatedId())).isEmpty()
+                    && attachmentService.removeWithContent(attachment)) {
+                run.deletedRows.incrementAndGet();
+            }
+        }
+        for (String key : orphans) {
+            throttle.acquire(0);
+            if (deleteOrphan(key)) {
+                run.deletedFiles.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 分页读取附件记录：收集被引用的存储路径，找出所属业务记录已不存在的记录
+     */
+    private void scanRows(Run run, Set<String> referenced, List<Attachment> dangling,
+                          LocalDateTime cutoffTime) throws InterruptedException {
+        IoThrottle throttle = new IoThrottle(rowsPerSecond, 0);
+        String cursor = "";
+        while (true) {
+            List<Attachment> page = attachmentService.listReferences(cursor, batchSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            throttle.acquire(page.size(), 0);
+            cursor = page.get(page.size() - 1).getAttachmentId();
+            run.scannedRows.addAndGet(page.size());
+
+            Map<String, List<Attachment>> byType = page.stream()
+                    .peek(attachment -> referenced.add(attachment.getFilePath()))
+                    .collect(Collectors.groupingBy(Attachment::getRelatedType));
+            for (Map.Entry<String, List<Attachment>> entry : byType.entrySet()) {
+                Set<String> owners = attachmentOwnerLookup.existingOwners(entry.getKey(),
+                        entry.getValue().stream().map(Attachment::getRelatedId).collect(Collectors.toSet()));
+                for (Attachment attachment : entry.getValue()) {
+                    boolean old = attachment.getUploadTime() == null || attachment.getUploadTime().isBefore(cutoffTime);
+                    if (old && !owners.contains(attachment.getRelatedId())) {
+                        dangling.add(attachment);
+                        run.danglingRows.incrementAndGet();
+                        run.sample(run.danglingRowSamples, attachment.getAttachmentId());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 存储中的文件是否没有被任何记录引用
+     */
+    private boolean isOrphan(String key, Set<String> referenced, Set<String> activeUploads) {
+        if (attachmentStorage.isTemp(key)) {
+            // 分片上传任务仍在进行时保留其临时文件，其余临时文件超过宽限期即为残留
+            String name = key.substring(key.lastIndexOf('/') + 1);
+            return !(name.endsWith(".part") && activeUploads.contains(name.substring(0, name.length() - 5)));
+        }
+        if (attachmentStorage.isThumbnail(key)) {
+            return !referenced.contains(attachmentStorage.thumbnailSource(key));
+        }
+        return !referenced.contains(key);
+    }
+
+    /**
+     * 删除孤立文件：对象文件在其哈希锁内复查没有记录引用后删除
+     */
+    private boolean deleteOrphan(String key) throws Exception {
+        if (attachmentStorage.isTemp(key)) {
+            String name = key.substring(key.lastIndexOf('/') + 1);
+            if (name.endsWith(".part") && attachmentUploadService.getById(name.substring(0, name.length() - 5)) != null) {
+                return false;
+            }
+            fileStorage.delete(key);
+            return true;
+        }
+        String source = attachmentStorage.isThumbnail(key) ? attachmentStorage.thumbnailSource(key) : key;
+        try (AttachmentStorage.HashLock lock = attachmentStorage.isObject(source)
+                ? attachmentStorage.lock(attachmentStorage.objectHash(source))
+                : null) {
+            if (attachmentService.isReferenced(source)) {
+                return false;
+            }
+            fileStorage.delete(key);
+            return true;
+        }
+    }
+
+    /**
+     * 一次对账的进度和结果
+     */
+    private static final class Run {
+
+        private final boolean dryRun;
+        private final LocalDateTime startTime = LocalDateTime.now();
+        private volatile LocalDateTime finishTime;
+        private volatile String error;
+
+        private final AtomicLong scannedRows = new AtomicLong();
+        private final AtomicLong scannedFiles = new AtomicLong();
+        private final AtomicLong scannedBytes = new AtomicLong();
+        private final AtomicLong orphanFiles = new AtomicLong();
+        private final AtomicLong orphanBytes = new AtomicLong();
+        private final AtomicLong deletedFiles = new AtomicLong();
+        private final AtomicLong danglingRows = new AtomicLong();
+        private final AtomicLong deletedRows = new AtomicLong();
+        private final AtomicLong missingFiles = new AtomicLong();
+
+        private final Queue<String> orphanFileSamples = new ConcurrentLinkedQueue<>();
+        private final Queue<String> danglingRowSamples = new ConcurrentLinkedQueue<>();
+        private final Queue<String> missingFileSamples = new ConcurrentLinkedQueue<>();
+
+        Run(boolean dryRun) {
+            this.dryRun = dryRun;
+        }
+
+        void sample(Queue<String> samples, String value) {
+            if (samples.size() < SAMPLE_LIMIT) {
+                samples.add(value);
+            }
+        }
+
+        ReconcileReport snapshot() {
+            ReconcileReport report = new ReconcileReport();
+            report.setDryRun(dryRun);
+            report.setStartTime(startTime);
+            report.setFinishTime(finishTime);
+            report.setError(error);
+            report.setScannedRows(scannedRows.get());
+            report.setScannedFiles(scannedFiles.get());
+            report.setScannedBytes(scannedBytes.get());
+            report.setOrphanFiles(orphanFiles.get());
+            report.setOrphanBytes(orphanBytes.get());
+            report.setDeletedFiles(deletedFiles.get());
+            report.setDanglingRows(danglingRows.get());
+            report.setDeletedRows(deletedRows.get());
+            report.setMissingFiles(missingFiles.get());
+            report.setOrphanFileSamples(List.copyOf(orphanFileSamples));
+            report.setDanglingRowSamples(List.copyOf(danglingRowSamples));
+            report.setMissingFileSamples(List.copyOf(missingFileSamples));
+            return report;
+        }
+    }
+}
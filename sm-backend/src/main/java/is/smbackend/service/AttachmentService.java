@@ -3,5 +3,44 @@ package is.smbackend.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import is.smbackend.pojo.Attachment;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
 public interface AttachmentService extends IService<Attachment> {
+
+    /**
+     * 保存附件内容和记录：相同内容只存一份文件，记录的路径、大小、哈希由内容决定
+     */
+    boolean saveWithContent(Attachment attachment, InputStream content) throws IOException;
+
+    /**
+     * 保存已写入临时文件并计算过哈希的附件内容和记录
+     */
+    boolean saveWithStagedFile(Attachment attachment, AttachmentStorage.StagedFile staged) throws IOException;
+
+    /**
+     * 删除附件记录，文件没有其他引用时一并删除
+     */
+    boolean removeWithContent(Attachment attachment) throws IOException;
+
+    /**
+     * 按附件编号分页读取记录的引用信息（编号、存储路径、哈希、所属业务记录、上传时间）
+     */
+    List<Attachment> listReferences(String afterId, int limit);
+
+    /**
+     * 是否有记录引用该存储路径
+     */
+    boolean isReferenced(String filePath);
+
+    /**
+     * 按附件编号顺序取一批尚未迁移到分级目录（objects/ab/cd/）的记录
+     */
+    List<Attachment> listLegacyLayout(String afterId, int limit);
+
+    /**
+     * 把引用旧存储路径的记录全部改到新路径并写入内容哈希，返回是否有记录被更新
+     */
+    boolean repointFile(String oldPath, String newPath, String contentHash);
 }
@@ -0,0 +1,344 @@
+package is.smbackend.service;
+
+import is.smbackend.mapper.AttachmentMapper;
+import is.smbackend.pojo.Attachment;
+import is.smbackend.util.HashUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 附件文件存储（按内容寻址）
+ * <p>
+ * 上传内容边写入临时文件边计算 SHA-256，完成后放入存储后端 {@link FileStorage} 的 objects/ab/cd/{sha256}
+ * （按哈希前两级分目录，避免单目录文件过多）；相同内容只存一份，
+ * 引用关系即 attachment 表中 content_hash 相同的记录。写入和删除同一对象时需持有 {@link #lock} 返回的锁，
+ * 保证“最后一个引用删除文件”和“新引用复用文件”不会交错；存储为 s3（多节点共用）时该锁通过
+ * MySQL 命名锁（GET_LOCK）跨节点互斥。
+ * 旧附件位于 {relatedType}/{uuid} 或 objects/{sha256} 下，按原路径读取和删除，
+ * 由 {@link AttachmentLayoutMigrator} 逐步迁移到分级目录。
+ * 图片缩略图与原文件放在同一目录，文件名追加 .thumb.jpg；无法生成缩略图时写入 .thumb.none 标记，
+ * 不再重复尝试。两者都随原文件一起删除。
+ * 临时文件总是写在本地 file.upload-dir/tmp 下。
+ */
+@Slf4j
+@Component
+public class AttachmentStorage {
+
+    private static final String OBJECT_DIR = "objects";
+    private static final String TEMP_DIR = "tmp";
+    private static final String THUMBNAIL_SUFFIX = ".thumb.jpg";
+    private static final String NO_THUMBNAIL_SUFFIX = ".thumb.none";
+    private static final int LOCK_STRIPES = 64;
+    // MySQL 命名锁的名称最长 64 个字符，取哈希前 60 位
+    private static final String LOCK_PREFIX = "att:";
+    private static final int LOCK_NAME_HASH_LENGTH = 60;
+
+    @Autowired
+    private FileStorage fileStorage;
+
+    @Autowired
+    private DataSource dataSource;
+
+    // 直接使用 Mapper 重新读取记录，AttachmentService 依赖本类
+    @Autowired
+    private AttachmentMapper attachmentMapper;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    // 存储后端类型，s3 时多个节点共用存储，哈希锁需跨节点
+    @Value("${file.storage.type:local}")
+    private String storageType;
+
+    // 等待跨节点哈希锁的超时（秒）
+    @Value("${file.storage.lock-timeout:30}")
+    private int lockTimeout;
+
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public AttachmentStorage() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 内容哈希 -> 附件记录中的存储路径（objects/ab/cd/{sha256}）
+     */
+    public String objectKey(String contentHash) {
+        return OBJECT_DIR + "/" + contentHash.substring(0, 2) + "/" + contentHash.substring(2, 4) + "/" + contentHash;
+    }
+
+    /**
+     * 是否为按内容寻址存储的对象（含未分级的旧对象）
+     */
+    public boolean isObject(String filePath) {
+        return filePath.startsWith(OBJECT_DIR + "/");
+    }
+
+    /**
+     * 查找附件文件：先按记录中的路径；找不到时迁移任务可能在读取记录之后移走了文件，
+     * 有内容哈希的按哈希查分级目录，没有哈希的旧记录重新读取记录中的新路径；都不存在时返回 null
+     */
+    public Located locate(Attachment attachment) throws IOException {
+        FileStorage.FileStat stat = fileStorage.stat(attachment.getFilePath());
+        if (stat != null) {
+            return new Located(attachment.getFilePath(), stat);
+        }
+        String key;
+        if (attachment.getContentHash() != null) {
+            key = objectKey(attachment.getContentHash());
+        } else {
+            Attachment current = attachmentMapper.selectById(attachment.getAttachmentId());
+            key = current != null ? current.getFilePath() : null;
+        }
+        stat = key == null || key.equals(attachment.getFilePath()) ? null : fileStorage.stat(key);
+        return stat != null ? new Located(key, stat) : null;
+    }
+
+    /**
+     * 原文件存储路径 -> 缩略图存储路径
+     */
+    public String thumbnailKey(String filePath) {
+        return filePath + THUMBNAIL_SUFFIX;
+    }
+
+    /**
+     * 原文件存储路径 -> 无法生成缩略图的标记路径
+     */
+    public String noThumbnailKey(String filePath) {
+        return filePath + NO_THUMBNAIL_SUFFIX;
+    }
+
+    /**
+     * 是否为缩略图或无缩略图标记
+     */
+    public boolean isThumbnail(String key) {
+        return key.endsWith(THUMBNAIL_SUFFIX) || key.endsWith(NO_THUMBNAIL_SUFFIX);
+    }
+
+    /**
+     * 缩略图（或无缩略图标记）存储路径 -> 原文件存储路径
+     */
+    public String thumbnailSource(String key) {
+        String suffix = key.endsWith(THUMBNAIL_SUFFIX) ? THUMBNAIL_SUFFIX : NO_THUMBNAIL_SUFFIX;
+        return key.substring(0, key.length() - suffix.length());
+    }
+
+    /**
+     * 是否为本地临时目录下的文件（存储路径 tmp/...）
+     */
+    public boolean isTemp(String key) {
+        return key.startsWith(TEMP_DIR + "/");
+    }
+
+    /**
+     * 对象存储路径中的内容哈希（最后一级文件名）
+     */
+    public String objectHash(String key) {
+        return key.substring(key.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * 获取同一内容哈希的写入/删除锁，用完后 close 释放
+     * <p>
+     * 先在进程内按哈希分段加锁，同一节点的线程在本地排队；存储为 s3 时再用一条数据库连接获取 MySQL 命名锁，
+     * 与其他节点互斥。该连接在释放前绑定到当前线程，持锁期间的记录读写（MyBatis 经 DataSourceUtils 取连接）
+     * 复用同一条连接，每个持锁线程只占用一条连接，不会因持锁者各自再等一条连接而耗尽连接池；
+     * 当前线程已有绑定的连接（如处于事务中）时直接在该连接上加锁。
+     */
+    public HashLock lock(String contentHash) throws IOException {
+        ReentrantLock local = locks[(contentHash.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+        local.lock();
+        if (!"s3".equals(storageType)) {
+            return new HashLock(local, null, null, null, false);
+        }
+        String name = LOCK_PREFIX + contentHash.substring(0, Math.min(contentHash.length(), LOCK_NAME_HASH_LENGTH));
+        boolean inherited = TransactionSynchronizationManager.hasResource(dataSource);
+        Connection connection = null;
+        try {
+            connection = inherited ? DataSourceUtils.getConnection(dataSource) : dataSource.getConnection();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+                statement.setString(1, name);
+                statement.setInt(2, lockTimeout);
+                try (ResultSet rs = statement.executeQuery()) {
+                    // 1 为获得锁，0 为超时，NULL 为出错
+                    if (!rs.next() || rs.getInt(1) != 1) {
+                        throw new IOException("等待附件锁超时：" + contentHash);
+                    }
+                }
+            }
+            HashLock lock = new HashLock(local, connection, name, dataSource, !inherited);
+            if (!inherited) {
+                TransactionSynchronizationManager.bindResource(dataSource, new ConnectionHolder(connection));
+            }
+            return lock;
+        } catch (SQLException | IOException | RuntimeException e) {
+            if (inherited) {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            } else {
+                closeQuietly(connection);
+            }
+            local.unlock();
+            if (e instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("获取附件锁失败：" + contentHash, e);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("关闭数据库连接失败", e);
+        }
+    }
+
+    /**
+     * 本地临时目录下的文件
+     */
+    public Path tempFile(String name) throws IOException {
+        Path tempDir = Paths.get(uploadDir, TEMP_DIR);
+        Files.createDirectories(tempDir);
+        return tempDir.resolve(name);
+    }
+
+    /**
+     * 分片上传任务的临时文件
+     */
+    public Path uploadPart(String uploadId) throws IOException {
+        return tempFile(uploadId + ".part");
+    }
+
+    /**
+     * 将上传内容写入临时文件并计算哈希
+     */
+    public StagedFile stage(InputStream content) throws IOException {
+        Path temp = tempFile(UUID.randomUUID() + ".part");
+        MessageDigest digest = HashUtil.sha256();
+        try (InputStream in = new DigestInputStream(content, digest)) {
+            long size = Files.copy(in, temp);
+            return new StagedFile(temp, HashUtil.hex(digest), size);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * 将临时文件放入存储后端（需持有该哈希的锁），对象已存在时不写入；返回是否新建了对象
+     */
+    public boolean commit(StagedFile staged) throws IOException {
+        return fileStorage.putIfAbsent(objectKey(staged.contentHash()), staged.path());
+    }
+
+    /**
+     * 丢弃临时文件（已移入存储后端时忽略）
+     */
+    public void discard(StagedFile staged) {
+        try {
+            Files.deleteIfExists(staged.path());
+        } catch (IOException e) {
+            log.warn("删除上传临时文件失败：{}", staged.path(), e);
+        }
+    }
+
+    /**
+     * 删除文件及其缩略图（对象文件需持有该哈希的锁，且已确认没有引用）
+     */
+    public void delete(String filePath) throws IOException {
+        fileStorage.delete(filePath);
+        fileStorage.delete(thumbnailKey(filePath));
+        fileStorage.delete(noThumbnailKey(filePath));
+    }
+
+    /**
+     * 附件文件的实际存储路径和文件信息
+     */
+    public record Located(String key, FileStorage.FileStat stat) {
+    }
+
+    /**
+     * 已获得的内容哈希锁，close 时释放（先释放数据库命名锁并解除连接绑定，再释放进程内的锁）
+     */
+    public static final class HashLock implements AutoCloseable {
+
+        private final ReentrantLock local;
+        private final Connection connection;
+        private final String name;
+        private final DataSource dataSource;
+        // 是否由本锁把连接绑定到线程；沿用调用方已绑定的连接时为 false，连接由调用方归还
+        private final boolean bound;
+
+        private HashLock(ReentrantLock local, Connection connection, String name, DataSource dataSource, boolean bound) {
+            this.local = local;
+            this.connection = connection;
+            this.name = name;
+            this.dataSource = dataSource;
+            this.bound = bound;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (connection != null) {
+                    release();
+                }
+            } finally {
+                local.unlock();
+            }
+        }
+
+        private void release() {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+                statement.setString(1, name);
+                statement.executeQuery().close();
+            } catch (SQLException e) {
+                // 命名锁随会话存在，释放失败时断开物理连接，由数据库回收锁，避免连接池中的连接一直持有
+                log.warn("释放附件锁 {} 失败，断开数据库连接", name, e);
+                try {
+                    connection.abort(Runnable::run);
+                } catch (SQLException ex) {
+                    log.debug("断开数据库连接失败", ex);
+                }
+            } finally {
+                if (bound) {
+                    TransactionSynchronizationManager.unbindResource(dataSource);
+                    closeQuietly(connection);
+                } else {
+                    DataSourceUtils.releaseConnection(connection, dataSource);
+                }
+            }
+        }
+    }
+
+    /**
+     * 已写入临时文件的上传内容
+     */
+    public record StagedFile(Path path, String contentHash, long size) {
+    }
+}
@@ -0,0 +1,271 @@
+package is.smbackend.service;
+
+import is.smbackend.pojo.Attachment;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 图片附件缩略图 - 上传后提交到有界后台线程池生成，缓存在原文件旁（{@link AttachmentStorage#thumbnailKey}）
+ * <p>
+ * 大图按缩略图尺寸隔行采样解码，不把整张原图读入内存；无法解码或像素数超过上限的图片写入无缩略图标记
+ * （{@link AttachmentStorage#noThumbnailKey}），之后直接返回占位图，不再提交（删除标记即可重新生成）。
+ * 线程池满时丢弃任务，首次请求缩略图时会重新提交；缩略图生成前返回占位图。
+ */
+@Slf4j
+@Component
+public class AttachmentThumbnailer {
+
+    private static final String FORMAT = "jpg";
+
+    @Autowired
+    private AttachmentStorage attachmentStorage;
+
+    @Autowired
+    private FileStorage fileStorage;
+
+    // 缩略图最长边（像素）
+    @Value("${file.thumbnail.size:240}")
+    private int size;
+
+    @Value("${file.thumbnail.workers:2}")
+    private int workers;
+
+    @Value("${file.thumbnail.queue-capacity:200}")
+    private int queueCapacity;
+
+    // 原图像素数上限，超过时不生成缩略图
+    @Value("${file.thumbnail.max-pixels:50000000}")
+    private long maxPixels;
+
+    private ThreadPoolExecutor executor;
+
+    // 排队或生成中的原文件存储路径，避免重复提交
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private byte[] placeholder;
+
+    @PostConstruct
+    public void init() throws IOException {
+        AtomicInteger index = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "attachment-thumbnail-" + index.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        placeholder = renderPlaceholder();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 是否为可生成缩略图的附件
+     */
+    public boolean supports(Attachment attachment) {
+        return attachment.getFileType() != null && attachment.getFileType().startsWith("image/");
+    }
+
+    /**
+     * 输出缩略图：已生成时返回文件（对象存储时重定向到预签名地址），尚未生成时提交任务并返回占位图
+     */
+    public ResponseEntity<Resource> thumbnail(Attachment attachment) throws IOException {
+        AttachmentStorage.Located located = attachmentStorage.locate(attachment);
+        if (located == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String key = attachmentStorage.thumbnailKey(located.key());
+        // 附件内容不可修改，缩略图（以及无法生成时的占位图）可长期缓存
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofDays(30)).cachePrivate();
+        if (fileStorage.stat(key) == null) {
+            boolean unavailable = fileStorage.stat(attachmentStorage.noThumbnailKey(located.key())) != null;
+            if (!unavailable) {
+                // 旧附件或排队被丢弃的任务在此补提交
+                submit(attachment.getAttachmentId(), located.key());
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_PNG)
+                    .cacheControl(unavailable ? cacheControl : CacheControl.noStore())
+                    .body(new ByteArrayResource(placeholder));
+        }
+        Path file = fileStorage.localPath(key);
+        if (file == null) {
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(fileStorage.presignDownload(key, MediaType.IMAGE_JPEG_VALUE, "inline"))
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .cacheControl(cacheControl)
+                .body(new FileSystemResource(file));
+    }
+
+    /**
+     * 提交缩略图生成任务（线程池满时放弃，下次请求缩略图时再提交）
+     */
+    public void submit(Attachment attachment) {
+        if (supports(attachment)) {
+            submit(attachment.getAttachmentId(), attachment.getFilePath());
+        }
+    }
+
+    private void submit(String attachmentId, String filePath) {
+        if (!pending.add(filePath)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(filePath);
+                } catch (Exception e) {
+                    log.warn("生成附件 {} 的缩略图失败", attachmentId, e);
+                } finally {
+                    pending.remove(filePath);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(filePath);
+            log.debug("缩略图队列已满，跳过 {}", filePath);
+        }
+    }
+
+    private void generate(String filePath) throws IOException {
+        String key = attachmentStorage.thumbnailKey(filePath);
+        String noneKey = attachmentStorage.noThumbnailKey(filePath);
+        if (fileStorage.stat(key) != null || fileStorage.stat(noneKey) != null || fileStorage.stat(filePath) == null) {
+            return;
+        }
+        BufferedImage image;
+        try (InputStream in = Channels.newInputStream(fileStorage.open(filePath))) {
+            image = read(in, filePath);
+        }
+        if (image == null) {
+            // 写入空的标记文件，之后不再尝试
+            Path marker = attachmentStorage.tempFile(UUID.randomUUID() + ".thumb");
+            try {
+                Files.createFile(marker);
+                fileStorage.put(noneKey, marker);
+            } finally {
+                Files.deleteIfExists(marker);
+            }
+            return;
+        }
+
+        double scale = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = thumbnail.createGraphics();
+        try {
+            // JPEG 没有透明通道，透明区域填白色
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+
+        // 先写本地临时文件再整体放入存储，下载方不会读到写了一半的缩略图
+        Path temp = attachmentStorage.tempFile(UUID.randomUUID() + ".thumb");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                ImageIO.write(thumbnail, FORMAT, out);
+            }
+            fileStorage.put(key, temp);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 解码原图：按目标尺寸设置采样步长，不支持的格式、无法解码或超大图片返回 null
+     */
+    private BufferedImage read(InputStream source, String filePath) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.info("图片 {} 尺寸 {}x{} 超过上限，不生成缩略图", filePath, width, height);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (size * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } catch (IIOException | RuntimeException e) {
+                // 文件损坏或解码器不支持其中的编码方式
+                log.info("图片 {} 无法解码，不生成缩略图：{}", filePath, e.getMessage());
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private byte[] renderPlaceholder() throws IOException {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(new Color(0xF5, 0xF7, 0xFA));
+            g.fillRect(0, 0, size, size);
+        } finally {
+            g.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,39 @@
+package is.smbackend.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import is.smbackend.dto.ChunkUploadInitRequest;
+import is.smbackend.pojo.Attachment;
+import is.smbackend.pojo.AttachmentUpload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+public interface AttachmentUploadService extends IService<AttachmentUpload> {
+
+    /**
+     * 创建分片上传任务
+     */
+    AttachmentUpload init(ChunkUploadInitRequest request);
+
+    /**
+     * 将分片直接写入临时文件的 offset 处，offset 不能超过已接收字节数；
+     * 临时文件在本节点本地，同一任务的分片和完成请求需到达同一节点
+     */
+    AttachmentUpload writeChunk(String uploadId, long offset, InputStream content) throws IOException;
+
+    /**
+     * 校验全部内容的 SHA-256 并生成附件记录
+     */
+    Attachment complete(String uploadId, String sha256) throws IOException;
+
+    /**
+     * 取消上传任务并删除临时文件
+     */
+    boolean abort(String uploadId) throws IOException;
+
+    /**
+     * 进行中的上传任务编号
+     */
+    Set<String> listUploadIds();
+}
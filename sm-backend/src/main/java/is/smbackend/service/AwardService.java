@@ -4,4 +4,9 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import is.smbackend.pojo.Award;
 
 public interface AwardService extends IService<Award> {
+
+    /**
+     * 更新奖励记录，审批状态变化时在同一事务内写入待发送通知
+     */
+    boolean updateWithNotice(Award award);
 }
@@ -0,0 +1,383 @@
+package is.smbackend.service;
+
+import is.smbackend.exception.BusinessException;
+import is.smbackend.pojo.Notice;
+import is.smbackend.pojo.NoticeBroadcast;
+import is.smbackend.pojo.NoticeUserIndex;
+import is.smbackend.pojo.StudentStatusInfo;
+import is.smbackend.util.IdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 广播通知登记表 - 按范围（全体、角色、院系、专业、班级）发送的通知只存一份，读取时按用户展开
+ * <p>
+ * 广播通知列表缓存在内存中定时刷新。每条广播的已读用户记为 RoaringBitmap，下标为 notice_user_index
+ * 分配的连续用户序号；标记已读只改内存并记为待落库，定时与数据库中的位图按位或合并后写回
+ * （已读状态只增不减，多节点合并不会丢失）。
+ */
+@Slf4j
+@Component
+public class BroadcastNoticeRegistry {
+
+    private static final String ID_PREFIX = "B";
+
+    @Autowired
+    private NoticeBroadcastService noticeBroadcastService;
+
+    @Autowired
+    private NoticeUserIndexService noticeUserIndexService;
+
+    @Autowired
+    private StudentStatusInfoService studentStatusInfoService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    // 学生院系/专业/班级缓存有效期（毫秒），与用户资料缓存一致
+    @Value("${user.directory.cache-ttl:600000}")
+    private long scopeCacheTtl;
+
+    // 广播通知列表（按发布时间倒序），首次访问时加载
+    private volatile List<NoticeBroadcast> broadcasts;
+
+    // 广播ID -> 已读用户位图，访问时需对位图加锁
+    private final ConcurrentHashMap<String, RoaringBitmap> readers = new ConcurrentHashMap<>();
+
+    // 有未落库已读记录的广播ID
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    // "userType:userId" -> 用户序号
+    private final ConcurrentHashMap<String, Integer> userIndexes = new ConcurrentHashMap<>();
+
+    // 学号 -> 院系/专业/班级
+    private final ConcurrentHashMap<String, StudentScope> studentScopes = new ConcurrentHashMap<>();
+
+    public static boolean isBroadcastId(String id) {
+        return id != null && id.startsWith(ID_PREFIX);
+    }
+
+    /**
+     * 发布广播通知
+     */
+    public NoticeBroadcast publish(NoticeBroadcast broadcast) {
+        broadcast.setBroadcastId(idGenerator.nextBroadcastId());
+        if (broadcast.getPublishTime() == null) {
+            broadcast.setPublishTime(LocalDateTime.now());
+        }
+        broadcast.setReadBitmap(null);
+        noticeBroadcastService.save(broadcast);
+        refresh();
+        return broadcast;
+    }
+
+    /**
+     * 删除广播通知
+     */
+    public boolean remove(String broadcastId) {
+        boolean removed = noticeBroadcastService.removeById(broadcastId);
+        dirty.remove(broadcastId);
+        readers.remove(broadcastId);
+        refresh();
+        return removed;
+    }
+
+    /**
+     * 全部广播通知（管理端查看）
+     */
+    public List<NoticeBroadcast> list() {
+        return broadcasts();
+    }
+
+    /**
+     * 发给指定用户的广播通知，展开为个人通知的形式（含该用户的已读状态）
+     */
+    public List<Notice> listForUser(String userType, String userId) {
+        List<NoticeBroadcast> matched = match(userType, userId);
+        if (matched.isEmpty()) {
+            return List.of();
+        }
+        int index = userIndex(userType, userId);
+        List<Notice> notices = new ArrayList<>(matched.size());
+        for (NoticeBroadcast broadcast : matched) {
+            notices.add(toNotice(broadcast, userType, userId, isRead(broadcast.getBroadcastId(), index)));
+        }
+        return notices;
+    }
+
+    /**
+     * 指定用户未读的广播通知数量
+     */
+    public long countUnread(String userType, String userId) {
+        List<NoticeBroadcast> matched = match(userType, userId);
+        if (matched.isEmpty()) {
+            return 0;
+        }
+        int index = userIndex(userType, userId);
+        return matched.stream().filter(broadcast -> !isRead(broadcast.getBroadcastId(), index)).count();
+    }
+
+    /**
+     * 标记已读，返回此前是否未读；广播不存在时抛出业务异常
+     */
+    public boolean markRead(String broadcastId, String userType, String userId) {
+        if (broadcasts().stream().noneMatch(broadcast -> broadcast.getBroadcastId().equals(broadcastId))) {
+            throw new BusinessException("通知不存在");
+        }
+        return markRead(broadcastId, userIndex(userType, userId));
+    }
+
+    /**
+     * 将发给指定用户的广播通知全部标记已读，返回新标记的数量
+     */
+    public int markAllRead(String userType, String userId) {
+        List<NoticeBroadcast> matched = match(userType, userId);
+        if (matched.isEmpty()) {
+            return 0;
+        }
+        int index = userIndex(userType, userId);
+        int marked = 0;
+        for (NoticeBroadcast broadcast : matched) {
+            if (markRead(broadcast.getBroadcastId(), index)) {
+                marked++;
+            }
+        }
+        return marked;
+    }
+
+    /**
+     * 定时把内存中的已读记录合并写回数据库
+     */
+    @Scheduled(fixedDelayString = "${notice.broadcast.flush-interval:5000}")
+    public void flush() {
+        for (String broadcastId : List.copyOf(dirty)) {
+            dirty.remove(broadcastId);
+            try {
+                transactionTemplate.executeWithoutResult(status -> flush(broadcastId));
+            } catch (Exception e) {
+                dirty.add(broadcastId);
+                log.error("广播通知 {} 已读状态落库失败，稍后重试", broadcastId, e);
+            }
+        }
+    }
+
+    /**
+     * 定时刷新广播通知列表，同时合并其他节点写入的已读状态
+     */
+    @Scheduled(fixedDelayString = "${notice.broadcast.refresh-interval:30000}",
+            initialDelayString = "${notice.broadcast.refresh-interval:30000}")
+    public void scheduledRefresh() {
+        if (broadcasts == null) {
+            return;
+        }
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.error("刷新广播通知失败", e);
+        }
+    }
+
+    private List<NoticeBroadcast> broadcasts() {
+        List<NoticeBroadcast> current = broadcasts;
+        if (current == null) {
+            synchronized (this) {
+                current = broadcasts;
+                if (current == null) {
+                    current = refresh();
+                }
+            }
+        }
+        return current;
+    }
+
+    private synchronized List<NoticeBroadcast> refresh() {
+        List<NoticeBroadcast> loaded = noticeBroadcastService.lambdaQuery()
+                .orderByDesc(NoticeBroadcast::getPublishTime)
+                .list();
+        for (NoticeBroadcast broadcast : loaded) {
+            RoaringBitmap bitmap = readers.computeIfAbsent(broadcast.getBroadcastId(), id -> new RoaringBitmap());
+            if (broadcast.getReadBitmap() != null) {
+                RoaringBitmap stored = deserialize(broadcast.getReadBitmap());
+                synchronized (bitmap) {
+                    bitmap.or(stored);
+                }
+            }
+            // 位图已进入内存，不在列表中重复持有
+            broadcast.setReadBitmap(null);
+        }
+        Set<String> ids = new HashSet<>();
+        loaded.forEach(broadcast -> ids.add(broadcast.getBroadcastId()));
+        readers.keySet().retainAll(ids);
+        broadcasts = List.copyOf(loaded);
+        return broadcasts;
+    }
+
+    private void flush(String broadcastId) {
+        RoaringBitmap bitmap = readers.get(broadcastId);
+        if (bitmap == null) {
+            return;
+        }
+        byte[] stored = noticeBroadcastService.lockReadBitmap(broadcastId);
+        byte[] merged;
+        synchronized (bitmap) {
+            if (stored != null) {
+                bitmap.or(deserialize(stored));
+            }
+            merged = serialize(bitmap);
+        }
+        noticeBroadcastService.updateReadBitmap(broadcastId, merged);
+    }
+
+    private boolean isRead(String broadcastId, int userIndex) {
+        RoaringBitmap bitmap = readers.get(broadcastId);
+        if (bitmap == null) {
+            return false;
+        }
+        synchronized (bitmap) {
+            return bitmap.contains(userIndex);
+        }
+    }
+
+    private boolean markRead(String broadcastId, int userIndex) {
+        RoaringBitmap bitmap = readers.computeIfAbsent(broadcastId, id -> new RoaringBitmap());
+        boolean added;
+        synchronized (bitmap) {
+            added = bitmap.checkedAdd(userIndex);
+        }
+        if (added) {
+            dirty.add(broadcastId);
+        }
+        return added;
+    }
+
+    private List<NoticeBroadcast> match(String userType, String userId) {
+        List<NoticeBroadcast> all = broadcasts();
+        if (all.isEmpty()) {
+            return List.of();
+        }
+        StudentScope scope = null;
+        List<NoticeBroadcast> matched = new ArrayList<>();
+        for (NoticeBroadcast broadcast : all) {
+            String value = broadcast.getScopeValue();
+            boolean hit = switch (broadcast.getScopeType()) {
+                case "all" -> true;
+                case "role" -> userType.equals(value);
+                default -> {
+                    if (!"student".equals(userType)) {
+                        yield false;
+                    }
+                    if (scope == null) {
+                        scope = studentScope(userId);
+                    }
+                    yield switch (broadcast.getScopeType()) {
+                        case "department" -> value != null && value.equals(scope.department);
+                        case "major" -> value != null && value.equals(scope.major);
+                        case "class" -> value != null && value.equals(scope.className);
+                        default -> false;
+                    };
+                }
+            };
+            if (hit) {
+                matched.add(broadcast);
+            }
+        }
+        return matched;
+    }
+
+    private StudentScope studentScope(String stuId) {
+        long now = System.currentTimeMillis();
+        StudentScope cached = studentScopes.get(stuId);
+        if (cached != null && cached.expireAt > now) {
+            return cached;
+        }
+        StudentStatusInfo info = studentStatusInfoService.lambdaQuery()
+                .select(StudentStatusInfo::getStuId, StudentStatusInfo::getDepartment,
+                        StudentStatusInfo::getMajor, StudentStatusInfo::getClassName)
+                .eq(StudentStatusInfo::getStuId, stuId)
+                .one();
+        StudentScope scope = info == null
+                ? new StudentScope(null, null, null, now + scopeCacheTtl)
+                : new StudentScope(info.getDepartment(), info.getMajor(), info.getClassName(), now + scopeCacheTtl);
+        studentScopes.put(stuId, scope);
+        return scope;
+    }
+
+    /**
+     * 获取用户序号，首次访问时分配
+     */
+    private int userIndex(String userType, String userId) {
+        String key = userType + ":" + userId;
+        Integer cached = userIndexes.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        NoticeUserIndex row = findUserIndex(userType, userId);
+        if (row == null) {
+            noticeUserIndexService.insertIgnore(userType, userId);
+            row = findUserIndex(userType, userId);
+        }
+        userIndexes.put(key, row.getUserIndex());
+        return row.getUserIndex();
+    }
+
+    private NoticeUserIndex findUserIndex(String userType, String userId) {
+        return noticeUserIndexService.lambdaQuery()
+                .eq(NoticeUserIndex::getUserType, userType)
+                .eq(NoticeUserIndex::getUserId, userId)
+                .one();
+    }
+
+    private static Notice toNotice(NoticeBroadcast broadcast, String userType, String userId, boolean read) {
+        Notice notice = new Notice();
+        notice.setNoticeId(broadcast.getBroadcastId());
+        notice.setTitle(broadcast.getTitle());
+        notice.setContent(broadcast.getContent());
+        notice.setNoticeType(broadcast.getNoticeType());
+        notice.setTargetUser(userId);
+        notice.setTargetType(userType);
+        notice.setPublishUser(broadcast.getPublishUser());
+        notice.setPublishUserId(broadcast.getPublishUserId());
+        notice.setPublishTime(broadcast.getPublishTime());
+        notice.setPriority(broadcast.getPriority());
+        notice.setIsRead(read);
+        return notice;
+    }
+
+    private static byte[] serialize(RoaringBitmap bitmap) {
+        bitmap.runOptimize();
+        ByteBuffer buffer = ByteBuffer.allocate(bitmap.serializedSizeInBytes());
+        bitmap.serialize(buffer);
+        return buffer.array();
+    }
+
+    private static RoaringBitmap deserialize(byte[] bytes) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        try {
+            bitmap.deserialize(ByteBuffer.wrap(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException("已读位图解析失败", e);
+        }
+        return bitmap;
+    }
+
+    private record StudentScope(String department, String major, String className, long expireAt) {
+    }
+}
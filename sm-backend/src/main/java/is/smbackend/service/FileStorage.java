@@ -0,0 +1,69 @@
+package is.smbackend.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.function.BiConsumer;
+
+/**
+ * 附件文件存储后端，按 file.storage.type 选择实现：
+ * local（默认，file.upload-dir 下的本地目录）或 s3（S3 兼容对象存储，多节点共用）
+ * <p>
+ * key 即附件记录中的 filePath（如 objects/{sha256}）。写入的源文件总是本地临时文件，
+ * 实现可以移动或保留它，调用方随后负责清理。
+ */
+public interface FileStorage {
+
+    /**
+     * 文件大小和修改时间，不存在时返回 null
+     */
+    FileStat stat(String key) throws IOException;
+
+    /**
+     * 读取文件内容
+     */
+    ReadableByteChannel open(String key) throws IOException;
+
+    /**
+     * 写入文件，key 已存在时不覆盖；返回是否写入
+     */
+    boolean putIfAbsent(String key, Path source) throws IOException;
+
+    /**
+     * 写入文件，覆盖已有内容
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * 在存储内部复制文件（不经过应用），target 已存在时不覆盖；返回是否复制
+     */
+    boolean copyIfAbsent(String source, String target) throws IOException;
+
+    /**
+     * 删除文件，不存在时忽略
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * 遍历存储中的全部文件；本地存储按目录并行遍历，visitor 可能被多个线程同时调用
+     */
+    void walk(int parallelism, BiConsumer<String, FileStat> visitor) throws IOException;
+
+    /**
+     * 本地磁盘路径（可用 sendfile / X-Accel-Redirect 发送），远程存储返回 null
+     */
+    default Path localPath(String key) {
+        return null;
+    }
+
+    /**
+     * 预签名下载地址，客户端直接从存储下载；不支持时返回 null
+     */
+    default URI presignDownload(String key, String contentType, String contentDisposition) {
+        return null;
+    }
+
+    record FileStat(long size, long lastModified) {
+    }
+}
@@ -0,0 +1,84 @@
+package is.smbackend.service;
+
+import is.smbackend.exception.TooManyRequestsException;
+import is.smbackend.util.IpUtil;
+import is.smbackend.util.TokenBucketLimiter;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * 登录限流 - 按客户端IP和账号分别使用令牌桶，超限时在调用任何服务前直接返回 429
+ */
+@Component
+public class LoginThrottle {
+
+    @Value("${login.throttle.ip-capacity:20}")
+    private int ipCapacity;
+
+    @Value("${login.throttle.ip-refill-per-minute:20}")
+    private int ipRefillPerMinute;
+
+    @Value("${login.throttle.user-capacity:5}")
+    private int userCapacity;
+
+    @Value("${login.throttle.user-refill-per-minute:5}")
+    private int userRefillPerMinute;
+
+    @Value("${login.throttle.stripes:16}")
+    private int stripes;
+
+    // 超过该时长未访问的桶将被清理（毫秒）
+    @Value("${login.throttle.idle-timeout:600000}")
+    private long idleTimeout;
+
+    // 受信任的反向代理地址，仅来自这些地址的请求才采信 X-Real-IP / X-Forwarded-For
+    @Value("${login.throttle.trusted-proxies:127.0.0.1,0:0:0:0:0:0:0:1}")
+    private String[] trustedProxies;
+
+    private Set<String> trustedProxySet;
+
+    private TokenBucketLimiter ipLimiter;
+
+    private TokenBucketLimiter userLimiter;
+
+    @PostConstruct
+    public void init() {
+        ipLimiter = new TokenBucketLimiter(ipCapacity, ipRefillPerMinute, stripes);
+        userLimiter = new TokenBucketLimiter(userCapacity, userRefillPerMinute, stripes);
+        trustedProxySet = Set.copyOf(Arrays.asList(trustedProxies));
+    }
+
+    /**
+     * 按客户端IP限流，IP 取自直连地址或受信任代理设置的代理头，客户端无法通过伪造请求头换用新的令牌桶
+     */
+    public void checkIp(HttpServletRequest request) {
+        String ip = IpUtil.getTrustedClientIp(request, trustedProxySet);
+        if (ip != null && !ipLimiter.tryAcquire(ip)) {
+            throw new TooManyRequestsException("登录请求过于频繁，请稍后再试");
+        }
+    }
+
+    /**
+     * 按账号限流
+     */
+    public void checkUser(String userType, String userId) {
+        if (userId != null && !userLimiter.tryAcquire(userType + ":" + userId)) {
+            throw new TooManyRequestsException("该账号登录尝试过于频繁，请稍后再试");
+        }
+    }
+
+    /**
+     * 定时清理空闲的令牌桶
+     */
+    @Scheduled(fixedDelayString = "${login.throttle.idle-timeout:600000}")
+    public void evictIdle() {
+        ipLimiter.evictIdle(idleTimeout);
+        userLimiter.evictIdle(idleTimeout);
+    }
+}
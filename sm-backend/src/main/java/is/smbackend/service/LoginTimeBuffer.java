@@ -0,0 +1,107 @@
+package is.smbackend.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 最后登录时间写缓冲 - 登录请求只写内存，后台定时批量落库
+ * <p>
+ * 每个用户只保留最新一次登录时间，刷新时每张用户表一条 UPDATE ... CASE 语句，只更新 last_login_time 列。
+ */
+@Slf4j
+@Component
+public class LoginTimeBuffer {
+
+    @Autowired
+    private UserStudentService userStudentService;
+
+    @Autowired
+    private UserAdvisorService userAdvisorService;
+
+    @Autowired
+    private UserAdminService userAdminService;
+
+    // 单条 UPDATE 语句最多包含的用户数
+    @Value("${login.last-time-batch-size:500}")
+    private int batchSize;
+
+    // userType -> (userId -> 最新登录时间)
+    private final Map<String, ConcurrentHashMap<String, LocalDateTime>> pending = Map.of(
+            "student", new ConcurrentHashMap<>(),
+            "advisor", new ConcurrentHashMap<>(),
+            "admin", new ConcurrentHashMap<>());
+
+    /**
+     * 记录一次登录
+     */
+    public void record(String userType, String userId, LocalDateTime time) {
+        ConcurrentHashMap<String, LocalDateTime> times = pending.get(userType);
+        if (times != null) {
+            times.merge(userId, time, LoginTimeBuffer::latest);
+        }
+    }
+
+    /**
+     * 尚未落库的最后登录时间，没有则返回 null
+     */
+    public LocalDateTime getPending(String userType, String userId) {
+        ConcurrentHashMap<String, LocalDateTime> times = pending.get(userType);
+        return times == null ? null : times.get(userId);
+    }
+
+    /**
+     * 定时批量刷新到数据库
+     */
+    @Scheduled(fixedDelayString = "${login.last-time-flush-interval:5000}")
+    public void flush() {
+        flush("student", userStudentService::batchUpdateLastLoginTime);
+        flush("advisor", userAdvisorService::batchUpdateLastLoginTime);
+        flush("admin", userAdminService::batchUpdateLastLoginTime);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void flush(String userType, Function<Map<String, LocalDateTime>, Integer> writer) {
+        ConcurrentHashMap<String, LocalDateTime> times = pending.get(userType);
+        Iterator<Map.Entry<String, LocalDateTime>> iterator = times.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map<String, LocalDateTime> batch = new LinkedHashMap<>();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                Map.Entry<String, LocalDateTime> entry = iterator.next();
+                // 只有值未被并发更新时才取走，否则留到下一轮
+                if (times.remove(entry.getKey(), entry.getValue())) {
+                    batch.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                writer.apply(batch);
+            } catch (Exception e) {
+                // 写库失败时放回缓冲区，下一轮重试
+                batch.forEach((userId, time) -> times.merge(userId, time, LoginTimeBuffer::latest));
+                log.error("刷新最后登录时间失败，{} 条记录将在下一轮重试", batch.size(), e);
+                return;
+            }
+        }
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
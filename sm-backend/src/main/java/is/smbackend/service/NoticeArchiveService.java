@@ -0,0 +1,14 @@
+package is.smbackend.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import is.smbackend.pojo.NoticeArchive;
+
+import java.util.Collection;
+
+public interface NoticeArchiveService extends IService<NoticeArchive> {
+
+    /**
+     * 将指定的已读通知迁入归档表，返回归档数量（复制与删除在同一事务中）
+     */
+    int archive(Collection<String> noticeIds);
+}
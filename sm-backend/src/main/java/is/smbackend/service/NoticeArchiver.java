@@ -0,0 +1,68 @@
+package is.smbackend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 通知归档任务 - 定时把超过保留期的已读通知迁入 notice_archive 表
+ * <p>
+ * 按主键顺序分小批处理，每批在独立的短事务中复制并删除，批次之间短暂停顿，避免长时间锁表。
+ * 复制时忽略已归档的记录，多节点同时执行或中途失败重跑都不会重复归档。
+ */
+@Slf4j
+@Component
+public class NoticeArchiver {
+
+    @Autowired
+    private NoticeService noticeService;
+
+    @Autowired
+    private NoticeArchiveService noticeArchiveService;
+
+    // 已读通知保留天数
+    @Value("${notice.archive.retention-days:90}")
+    private int retentionDays;
+
+    // 每批归档的通知数
+    @Value("${notice.archive.batch-size:500}")
+    private int batchSize;
+
+    // 批次间停顿（毫秒）
+    @Value("${notice.archive.batch-pause:200}")
+    private long batchPause;
+
+    @Scheduled(cron = "${notice.archive.cron:0 30 3 * * ?}")
+    public void archive() {
+        LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+        String afterId = "";
+        int archived = 0;
+        try {
+            while (true) {
+                List<String> ids = noticeService.selectReadIdsBefore(before, afterId, batchSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                archived += noticeArchiveService.archive(ids);
+                afterId = ids.get(ids.size() - 1);
+                if (ids.size() < batchSize) {
+                    break;
+                }
+                Thread.sleep(batchPause);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("归档通知失败，已归档 {} 条", archived, e);
+            return;
+        }
+        if (archived > 0) {
+            log.info("归档已读通知 {} 条（{} 之前已读）", archived, before);
+        }
+    }
+}
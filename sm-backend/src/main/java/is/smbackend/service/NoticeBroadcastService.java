@@ -0,0 +1,17 @@
+package is.smbackend.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import is.smbackend.pojo.NoticeBroadcast;
+
+public interface NoticeBroadcastService extends IService<NoticeBroadcast> {
+
+    /**
+     * 锁定并读取已读位图（需在事务中调用）
+     */
+    byte[] lockReadBitmap(String broadcastId);
+
+    /**
+     * 更新已读位图
+     */
+    int updateReadBitmap(String broadcastId, byte[] readBitmap);
+}
@@ -0,0 +1,310 @@
+package is.smbackend.service;
+
+import is.smbackend.pojo.Notice;
+import is.smbackend.util.TokenBucketLimiter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 通知邮件发送通道 - 通知入库后异步抄送到用户邮箱
+ * <p>
+ * 通知投递任务只把通知放入内存队列，不等待发送；固定数量的发送线程各自持有一条 SMTP 连接，
+ * 连接在批次之间保持，空闲超时后关闭。每批从队列取出多封邮件，批量查询收件人邮箱后在同一连接上依次发送。
+ * 发送失败的邮件按指数退避重新入队，超过最大次数后放弃；每分钟发送量受令牌桶限制，超出时发送线程等待
+ * （桶容量为一秒的发送量，任意一分钟内最多超出预算 1/60）。
+ * 队列不落库，进程重启时未发送的邮件丢失（通知本身已入库，不受影响）。
+ */
+@Slf4j
+@Component
+public class NoticeMailChannel {
+
+    private static final String BUDGET_KEY = "mail";
+    // 令牌桶容量不超过 1000，即每秒 1000 封
+    private static final int MAX_BUDGET_PER_MINUTE = 60000;
+
+    @Autowired
+    private UserDirectory userDirectory;
+
+    // 是否启用邮件通知
+    @Value("${notice.mail.enabled:false}")
+    private boolean enabled;
+
+    @Value("${notice.mail.host:localhost}")
+    private String host;
+
+    @Value("${notice.mail.port:25}")
+    private int port;
+
+    @Value("${notice.mail.username:}")
+    private String username;
+
+    @Value("${notice.mail.password:}")
+    private String password;
+
+    // 是否启用 STARTTLS
+    @Value("${notice.mail.starttls:false}")
+    private boolean starttls;
+
+    // 发件人地址
+    @Value("${notice.mail.from:}")
+    private String from;
+
+    // 邮件主题前缀
+    @Value("${notice.mail.subject-prefix:【学籍管理系统】}")
+    private String subjectPrefix;
+
+    // 发送线程数（即 SMTP 连接数）
+    @Value("${notice.mail.workers:2}")
+    private int workers;
+
+    // 每批发送的邮件数
+    @Value("${notice.mail.batch-size:50}")
+    private int batchSize;
+
+    // 队列容量，超出时丢弃新邮件
+    @Value("${notice.mail.queue-capacity:10000}")
+    private int queueCapacity;
+
+    // 每分钟最多发送的邮件数
+    @Value("${notice.mail.budget-per-minute:120}")
+    private int budgetPerMinute;
+
+    // 最大发送次数（含首次）
+    @Value("${notice.mail.max-attempts:5}")
+    private int maxAttempts;
+
+    // 首次重试间隔（毫秒），之后每次翻倍
+    @Value("${notice.mail.retry-backoff:30000}")
+    private long retryBackoff;
+
+    // 连接空闲超过该时长后关闭（毫秒）
+    @Value("${notice.mail.idle-timeout:60000}")
+    private long idleTimeout;
+
+    // 连接和读写超时（毫秒）
+    @Value("${notice.mail.timeout:10000}")
+    private long timeout;
+
+    private final DelayQueue<MailTask> queue = new DelayQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private Session session;
+    private TokenBucketLimiter budget;
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (from.isEmpty()) {
+            throw new IllegalStateException("启用邮件通知时必须配置 notice.mail.from");
+        }
+        if (budgetPerMinute <= 0 || budgetPerMinute > MAX_BUDGET_PER_MINUTE) {
+            throw new IllegalStateException("notice.mail.budget-per-minute 必须在 1-" + MAX_BUDGET_PER_MINUTE + " 之间");
+        }
+        Properties props = new Properties();
+        props.put("mail.smtp.host", host);
+        props.put("mail.smtp.port", String.valueOf(port));
+        props.put("mail.smtp.auth", String.valueOf(!username.isEmpty()));
+        props.put("mail.smtp.starttls.enable", String.valueOf(starttls));
+        props.put("mail.smtp.connectiontimeout", String.valueOf(timeout));
+        props.put("mail.smtp.timeout", String.valueOf(timeout));
+        props.put("mail.smtp.writetimeout", String.valueOf(timeout));
+        session = Session.getInstance(props);
+        budget = new TokenBucketLimiter(Math.max(1, budgetPerMinute / 60), budgetPerMinute, 1);
+        running = true;
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "notice-mail-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+        log.info("邮件通知已启用：{}:{}，发送线程 {} 个，每分钟最多 {} 封", host, port, workers, budgetPerMinute);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 提交待发送的通知（不阻塞，未启用时忽略）
+     */
+    public void submit(List<Notice> notices) {
+        if (!running) {
+            return;
+        }
+        int dropped = 0;
+        for (Notice notice : notices) {
+            if (queued.incrementAndGet() > queueCapacity) {
+                queued.decrementAndGet();
+                dropped++;
+                continue;
+            }
+            queue.offer(new MailTask(notice, 0, System.currentTimeMillis()));
+        }
+        if (dropped > 0) {
+            log.warn("邮件队列已满，丢弃 {} 封通知邮件", dropped);
+        }
+    }
+
+    /**
+     * 发送线程：取一批到期邮件，在本线程持有的连接上发送
+     */
+    private void work() {
+        Transport transport = null;
+        try {
+            while (running) {
+                MailTask first = queue.poll(idleTimeout, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    transport = close(transport);
+                    continue;
+                }
+                List<MailTask> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                queued.addAndGet(-batch.size());
+                transport = send(transport, batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close(transport);
+        }
+    }
+
+    private Transport send(Transport transport, List<MailTask> batch) throws InterruptedException {
+        Map<String, String> emails;
+        try {
+            emails = lookupEmails(batch);
+        } catch (Exception e) {
+            log.error("查询通知邮件收件人失败", e);
+            batch.forEach(this::retry);
+            return transport;
+        }
+        for (MailTask task : batch) {
+            Notice notice = task.notice();
+            String email = emails.get(recipientType(notice) + ":" + notice.getTargetUser());
+            if (email == null) {
+                continue;
+            }
+            while (!budget.tryAcquire(BUDGET_KEY)) {
+                Thread.sleep(200);
+            }
+            try {
+                if (transport == null || !transport.isConnected()) {
+                    transport = session.getTransport("smtp");
+                    transport.connect(host, port, username.isEmpty() ? null : username, password.isEmpty() ? null : password);
+                }
+                MimeMessage message = buildMessage(notice, email);
+                transport.sendMessage(message, message.getAllRecipients());
+            } catch (SendFailedException e) {
+                // 地址无效等永久错误，重试无意义
+                log.warn("通知邮件 {} 发送到 {} 失败：{}", notice.getNoticeId(), email, e.getMessage());
+            } catch (MessagingException e) {
+                log.warn("通知邮件 {} 发送失败（第 {} 次）：{}", notice.getNoticeId(), task.attempts() + 1, e.getMessage());
+                transport = close(transport);
+                retry(task);
+            }
+        }
+        return transport;
+    }
+
+    private MimeMessage buildMessage(Notice notice, String email) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(from));
+        message.setRecipient(MimeMessage.RecipientType.TO, new InternetAddress(email));
+        message.setSubject(subjectPrefix + notice.getTitle(), "UTF-8");
+        message.setText(notice.getContent(), "UTF-8");
+        message.setSentDate(new Date());
+        return message;
+    }
+
+    /**
+     * 按用户类型批量查询收件人邮箱，key 为 用户类型:用户ID
+     */
+    private Map<String, String> lookupEmails(List<MailTask> batch) {
+        Map<String, List<String>> userIds = new HashMap<>();
+        for (MailTask task : batch) {
+            Notice notice = task.notice();
+            userIds.computeIfAbsent(recipientType(notice), type -> new ArrayList<>()).add(notice.getTargetUser());
+        }
+        Map<String, String> emails = new HashMap<>();
+        userIds.forEach((userType, ids) -> userDirectory.getEmails(userType, ids)
+                .forEach((userId, email) -> emails.put(userType + ":" + userId, email)));
+        return emails;
+    }
+
+    private static String recipientType(Notice notice) {
+        return "advisor".equals(notice.getTargetType()) ? "advisor" : "student";
+    }
+
+    private void retry(MailTask task) {
+        int attempts = task.attempts() + 1;
+        if (attempts >= maxAttempts) {
+            log.error("通知邮件 {} 发送 {} 次均失败，已放弃", task.notice().getNoticeId(), attempts);
+            return;
+        }
+        long delay = retryBackoff << Math.min(attempts - 1, 10);
+        queued.incrementAndGet();
+        queue.offer(new MailTask(task.notice(), attempts, System.currentTimeMillis() + delay));
+    }
+
+    private Transport close(Transport transport) {
+        if (transport != null) {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("关闭 SMTP 连接失败", e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 待发送邮件，dueAt 前不会被取出
+     */
+    private record MailTask(Notice notice, int attempts, long dueAt) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((MailTask) other).dueAt);
+        }
+    }
+}
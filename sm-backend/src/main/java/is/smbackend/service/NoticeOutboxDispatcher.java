@@ -0,0 +1,221 @@
+package is.smbackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import is.smbackend.pojo.Notice;
+import is.smbackend.pojo.NoticeOutbox;
+import is.smbackend.util.IdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 通知发件箱投递任务 - 定时把发件箱记录批量转换为通知
+ * <p>
+ * 每批在一个事务内完成：锁定发件箱记录（SKIP LOCKED，多节点互不阻塞）、批量插入通知、删除已处理记录。
+ * 整批失败时改为逐条投递，出错的记录累计失败次数并按指数退避推迟下次投递，不阻塞其后的记录；
+ * 连续失败 max-attempts 次后搁置（next_attempt_at 置空），需排查后手工恢复。
+ * <p>
+ * 记录写入后等待一个合并窗口再投递；关联了业务记录的通知按（业务记录，学生）合并为一条摘要通知，
+ * 一次多级审批只产生一条通知、一次推送和一次未读数变化。
+ */
+@Slf4j
+@Component
+public class NoticeOutboxDispatcher {
+
+    @Autowired
+    private NoticeOutboxService noticeOutboxService;
+
+    @Autowired
+    private NoticeService noticeService;
+
+    @Autowired
+    private NotificationHelper notificationHelper;
+
+    @Autowired
+    private NoticeUnreadCounter noticeUnreadCounter;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private NoticeStreamRegistry noticeStreamRegistry;
+
+    @Autowired
+    private NoticeTemplateRegistry noticeTemplateRegistry;
+
+    @Autowired
+    private NoticeMailChannel noticeMailChannel;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // 每批处理的发件箱记录数
+    @Value("${notice.outbox.batch-size:200}")
+    private int batchSize;
+
+    // 合并窗口（毫秒）：记录写入后至少等待该时长再投递，期间同一业务记录的通知合并为一条摘要
+    @Value("${notice.outbox.coalesce-window:5000}")
+    private long coalesceWindow;
+
+    // 连续失败该次数后搁置记录，不再自动重试
+    @Value("${notice.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    // 失败后首次重试的等待时长（毫秒），之后每次翻倍
+    @Value("${notice.outbox.retry-backoff:30000}")
+    private long retryBackoff;
+
+    @Scheduled(fixedDelayString = "${notice.outbox.dispatch-interval:1000}")
+    public void dispatch() {
+        try {
+            Batch batch;
+            do {
+                List<NoticeOutbox> attempted = new ArrayList<>();
+                try {
+                    batch = transactionTemplate.execute(status -> dispatchBatch(attempted));
+                } catch (RuntimeException e) {
+                    if (attempted.isEmpty()) {
+                        throw e;
+                    }
+                    log.warn("通知发件箱批量投递失败，改为逐条投递", e);
+                    batch = dispatchEach(attempted);
+                }
+                afterDelivery(batch.notices());
+            } while (batch.handled() == batchSize);
+        } catch (Exception e) {
+            log.error("投递通知发件箱失败", e);
+        }
+    }
+
+    /**
+     * 锁定并投递一批记录；锁定的记录放入 attempted，事务失败时由调用方逐条重试
+     */
+    private Batch dispatchBatch(List<NoticeOutbox> attempted) {
+        List<NoticeOutbox> ready = noticeOutboxService.lockBatch(
+                LocalDateTime.now().minus(coalesceWindow, ChronoUnit.MILLIS), batchSize);
+        if (ready.isEmpty()) {
+            return new Batch(0, List.of());
+        }
+        // 同一业务记录尚在窗口内的后续记录一并取出，合并到本次摘要中
+        Map<Long, NoticeOutbox> records = new TreeMap<>();
+        Set<String> bizKeys = new HashSet<>();
+        for (NoticeOutbox record : ready) {
+            records.put(record.getOutboxId(), record);
+            if (record.getBizKey() != null) {
+                bizKeys.add(record.getBizKey());
+            }
+        }
+        if (!bizKeys.isEmpty()) {
+            for (NoticeOutbox record : noticeOutboxService.lockByBizKeys(bizKeys)) {
+                records.putIfAbsent(record.getOutboxId(), record);
+            }
+        }
+        attempted.addAll(records.values());
+        return new Batch(ready.size(), deliver(records.values()));
+    }
+
+    /**
+     * 逐条投递整批失败的记录，每条一个事务；出错的记录推迟重试或搁置。
+     * 出错后本轮不再取下一批，下次轮询继续
+     */
+    private Batch dispatchEach(List<NoticeOutbox> records) {
+        List<Notice> delivered = new ArrayList<>();
+        for (NoticeOutbox record : records) {
+            try {
+                delivered.addAll(transactionTemplate.execute(status -> {
+                    NoticeOutbox locked = noticeOutboxService.lockOne(record.getOutboxId());
+                    return locked != null ? deliver(List.of(locked)) : List.<Notice>of();
+                }));
+            } catch (RuntimeException e) {
+                markFailed(record, e);
+            }
+        }
+        return new Batch(0, delivered);
+    }
+
+    /**
+     * 记录一次投递失败：按指数退避推迟下次投递，超过最大次数时搁置
+     */
+    private void markFailed(NoticeOutbox record, Exception error) {
+        int attempts = record.getAttempts() + 1;
+        LocalDateTime nextAttemptAt = attempts >= maxAttempts ? null
+                : LocalDateTime.now().plus(retryBackoff << Math.min(attempts - 1, 20), ChronoUnit.MILLIS);
+        String message = String.valueOf(error.getMessage());
+        noticeOutboxService.lambdaUpdate()
+                .set(NoticeOutbox::getAttempts, attempts)
+                .set(NoticeOutbox::getNextAttemptAt, nextAttemptAt)
+                .set(NoticeOutbox::getLastError, message.length() > 500 ? message.substring(0, 500) : message)
+                .eq(NoticeOutbox::getOutboxId, record.getOutboxId())
+                .update();
+        if (nextAttemptAt == null) {
+            log.error("通知发件箱记录 {} 连续投递失败 {} 次，已搁置", record.getOutboxId(), attempts, error);
+        } else {
+            log.warn("通知发件箱记录 {} 投递失败（第 {} 次），{} 后重试", record.getOutboxId(), attempts, nextAttemptAt);
+        }
+    }
+
+    /**
+     * 将发件箱记录转换为通知入库并删除记录（需在事务中调用），返回生成的通知
+     */
+    private List<Notice> deliver(Collection<NoticeOutbox> records) {
+        List<Notice> notices = new ArrayList<>();
+        // 业务记录 + 目标学生 -> 待合并的通知（按写入顺序）
+        Map<String, List<Notice>> groups = new LinkedHashMap<>();
+        for (NoticeOutbox record : records) {
+            try {
+                for (Notice notice : notificationHelper.readPayload(record.getPayload())) {
+                    if (record.getBizKey() == null) {
+                        notices.add(notice);
+                    } else {
+                        groups.computeIfAbsent(record.getBizKey() + "|" + notice.getTargetUser(),
+                                key -> new ArrayList<>()).add(notice);
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                // 无法解析的记录重试也不会成功，记录日志后丢弃
+                log.error("通知发件箱记录 {} 解析失败，已丢弃", record.getOutboxId(), e);
+            }
+        }
+        for (List<Notice> group : groups.values()) {
+            notices.add(notificationHelper.digest(group));
+        }
+        for (Notice notice : notices) {
+            notice.setNoticeId(idGenerator.nextNoticeId());
+            notice.setIsRead(false);
+        }
+        if (!notices.isEmpty()) {
+            noticeService.saveBatch(notices);
+        }
+        noticeOutboxService.removeByIds(records.stream().map(NoticeOutbox::getOutboxId).toList());
+        return notices;
+    }
+
+    /**
+     * 通知已提交入库后的处理
+     */
+    private void afterDelivery(List<Notice> notices) {
+        for (Notice notice : notices) {
+            noticeUnreadCounter.increment(notice.getTargetUser(), 1);
+            noticeTemplateRegistry.render(notice);
+            noticeStreamRegistry.publish(notice);
+        }
+        noticeMailChannel.submit(notices);
+    }
+
+    private record Batch(int handled, List<Notice> notices) {
+    }
+}
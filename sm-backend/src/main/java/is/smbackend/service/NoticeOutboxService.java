@@ -0,0 +1,26 @@
+package is.smbackend.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import is.smbackend.pojo.NoticeOutbox;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface NoticeOutboxService extends IService<NoticeOutbox> {
+
+    /**
+     * 锁定一批写入时间不晚于 readyBefore、已到投递时间的待处理记录（需在事务中调用）
+     */
+    List<NoticeOutbox> lockBatch(LocalDateTime readyBefore, int limit);
+
+    /**
+     * 锁定指定业务记录的全部待处理记录（需在事务中调用）
+     */
+    List<NoticeOutbox> lockByBizKeys(Collection<String> bizKeys);
+
+    /**
+     * 锁定单条已到投递时间的记录，已被其他节点锁定时返回 null（需在事务中调用）
+     */
+    NoticeOutbox lockOne(Long outboxId);
+}
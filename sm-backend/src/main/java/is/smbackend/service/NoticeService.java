@@ -3,5 +3,45 @@ package is.smbackend.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import is.smbackend.pojo.Notice;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 public interface NoticeService extends IService<Notice> {
+
+    /**
+     * 批量统计用户未读通知数量，没有未读通知的用户不在结果中
+     */
+    Map<String, Long> countUnreadByUsers(Collection<String> userIds);
+
+    /**
+     * 将用户的未读通知全部标记已读，返回标记数量
+     */
+    int markAllRead(String userId, LocalDateTime readTime);
+
+    /**
+     * 将用户的指定未读通知标记已读，返回标记数量
+     */
+    int markReadByIds(String userId, Collection<String> noticeIds, LocalDateTime readTime);
+
+    /**
+     * 删除指定通知（userId 不为空时只删除该用户的通知），返回删除数量
+     */
+    int deleteByIds(String userId, Collection<String> noticeIds);
+
+    /**
+     * 删除指定通知中的已读通知，返回删除数量
+     */
+    int deleteReadByIds(Collection<String> noticeIds);
+
+    /**
+     * 按主键顺序查找在指定时间之前已读的通知ID，从 afterId 之后开始
+     */
+    List<String> selectReadIdsBefore(LocalDateTime before, String afterId, int limit);
+
+    /**
+     * 删除在指定时间之前已读的通知，返回删除数量
+     */
+    int deleteReadBefore(LocalDateTime before);
 }
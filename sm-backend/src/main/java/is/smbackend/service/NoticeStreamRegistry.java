@@ -0,0 +1,309 @@
+package is.smbackend.service;
+
+import is.smbackend.pojo.Notice;
+import is.smbackend.util.IdGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 通知实时推送（Server-Sent Events）连接登记表
+ * <p>
+ * 连接基于异步 Servlet，空闲连接不占用请求线程，数量只受 Tomcat 最大连接数限制。
+ * 事件 ID 即通知 ID（按时间递增），客户端断线重连时携带 Last-Event-ID，从 notice 表补发之后的通知。
+ * <p>
+ * 本节点生成的通知直接推送；各节点另外定时按通知 ID 范围轮询 notice 表，推送其他节点生成、
+ * 目标用户连接在本节点的通知。每次从上次轮询时间往前回退 poll-overlap 重读，补上提交较晚的通知，
+ * 已推送的通知按 ID 去重。
+ * <p>
+ * 推送、补发和心跳只把事件放入各连接的有界队列，由少量发送线程写入连接，调用方（通知投递、请求线程、
+ * 定时任务）不会阻塞在客户端的网络写入上；客户端停止读取导致队列写满时关闭该连接，客户端重连后按
+ * Last-Event-ID 补发。
+ */
+@Slf4j
+@Component
+public class NoticeStreamRegistry {
+
+    private static final String EVENT_NOTICE = "notice";
+
+    @Autowired
+    private NoticeService noticeService;
+
+    @Autowired
+    private NoticeTemplateRegistry noticeTemplateRegistry;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    // 连接超时（毫秒），超时后客户端自动重连
+    @Value("${notice.stream.timeout:1800000}")
+    private long timeout;
+
+    // 客户端断线后的重连等待时间（毫秒）
+    @Value("${notice.stream.reconnect-time:3000}")
+    private long reconnectTime;
+
+    // 重连时最多补发的通知数
+    @Value("${notice.stream.replay-limit:100}")
+    private int replayLimit;
+
+    // 轮询其他节点通知时回退重读的时长（毫秒），需大于通知入库的提交延迟和节点间时钟偏差
+    @Value("${notice.stream.poll-overlap:30000}")
+    private long pollOverlap;
+
+    // 每次轮询读取的通知数
+    @Value("${notice.stream.poll-batch-size:500}")
+    private int pollBatchSize;
+
+    // 每个连接最多排队的事件数，写满时关闭连接，需大于 replay-limit
+    @Value("${notice.stream.queue-capacity:256}")
+    private int queueCapacity;
+
+    // 写入连接的发送线程数
+    @Value("${notice.stream.send-threads:4}")
+    private int sendThreads;
+
+    // 连接用户数不超过该值时按用户过滤轮询，否则读取全部新通知后在内存中过滤
+    private static final int POLL_USER_FILTER_LIMIT = 1000;
+
+    // userId -> 该用户的连接（同一用户可能打开多个页面）
+    private final ConcurrentHashMap<String, Set<Subscriber>> emitters = new ConcurrentHashMap<>();
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    // 最近已推送的通知：通知ID -> 推送时间，超出轮询重叠窗口后清除
+    private final ConcurrentHashMap<String, Long> pushed = new ConcurrentHashMap<>();
+
+    // 上次轮询时间（毫秒）
+    private long lastPollAt = System.currentTimeMillis();
+
+    private ExecutorService sender;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger index = new AtomicInteger();
+        // 每个连接同一时刻最多一个发送任务，任务数不超过连接数
+        sender = Executors.newFixedThreadPool(sendThreads, r -> {
+            Thread t = new Thread(r, "notice-stream-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+    }
+
+    /**
+     * 建立推送连接，lastEventId 不为空时补发其后的通知
+     */
+    public SseEmitter subscribe(String userId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout);
+        Subscriber subscriber = new Subscriber(userId, emitter);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        // 先登记再补发：补发期间产生的新通知不会遗漏（可能重复，客户端按 ID 去重）
+        emitters.compute(userId, (id, userEmitters) -> {
+            Set<Subscriber> registered = userEmitters == null ? ConcurrentHashMap.newKeySet() : userEmitters;
+            registered.add(subscriber);
+            return registered;
+        });
+        connections.incrementAndGet();
+        try {
+            subscriber.enqueue(SseEmitter.event().reconnectTime(reconnectTime).comment("connected"));
+            if (lastEventId != null && lastEventId.startsWith("N")) {
+                List<Notice> missed = noticeService.lambdaQuery()
+                        .eq(Notice::getTargetUser, userId)
+                        .gt(Notice::getNoticeId, lastEventId)
+                        .orderByAsc(Notice::getNoticeId)
+                        .last("LIMIT " + replayLimit)
+                        .list();
+                for (Notice notice : missed) {
+                    noticeTemplateRegistry.render(notice);
+                    subscriber.enqueue(event(notice));
+                }
+            }
+        } catch (Exception e) {
+            subscriber.close(e);
+        }
+        return emitter;
+    }
+
+    /**
+     * 推送新通知给目标用户的全部连接（只放入发送队列，不等待写入）
+     */
+    public void publish(Notice notice) {
+        Set<Subscriber> userEmitters = emitters.get(notice.getTargetUser());
+        if (userEmitters == null || pushed.putIfAbsent(notice.getNoticeId(), System.currentTimeMillis()) != null) {
+            return;
+        }
+        for (Subscriber subscriber : userEmitters) {
+            subscriber.enqueue(event(notice));
+        }
+    }
+
+    /**
+     * 轮询其他节点生成的新通知，推送给连接在本节点的用户
+     */
+    @Scheduled(fixedDelayString = "${notice.stream.poll-interval:2000}")
+    public void pollOtherNodes() {
+        long now = System.currentTimeMillis();
+        long from = lastPollAt - pollOverlap;
+        // 推送早于重读起点的通知不会再被读到
+        pushed.values().removeIf(time -> time < from);
+        List<String> users = new ArrayList<>(emitters.keySet());
+        if (users.isEmpty()) {
+            lastPollAt = now;
+            return;
+        }
+        try {
+            String cursor = idGenerator.noticeIdAt(from);
+            List<Notice> notices;
+            do {
+                notices = noticeService.lambdaQuery()
+                        .gt(Notice::getNoticeId, cursor)
+                        .in(users.size() <= POLL_USER_FILTER_LIMIT, Notice::getTargetUser, users)
+                        .orderByAsc(Notice::getNoticeId)
+                        .last("LIMIT " + pollBatchSize)
+                        .list();
+                for (Notice notice : notices) {
+                    cursor = notice.getNoticeId();
+                    if (emitters.containsKey(notice.getTargetUser()) && !pushed.containsKey(notice.getNoticeId())) {
+                        noticeTemplateRegistry.render(notice);
+                        publish(notice);
+                    }
+                }
+            } while (notices.size() == pollBatchSize);
+            lastPollAt = now;
+        } catch (Exception e) {
+            log.error("轮询新通知失败", e);
+        }
+    }
+
+    /**
+     * 定时发送心跳，防止代理断开空闲连接，同时清理已断开的连接
+     */
+    @Scheduled(fixedDelayString = "${notice.stream.heartbeat-interval:25000}")
+    public void heartbeat() {
+        log.debug("通知推送连接数：{}", connections.get());
+        emitters.forEach((userId, userEmitters) -> {
+            for (Subscriber subscriber : userEmitters) {
+                subscriber.enqueue(SseEmitter.event().comment("ping"));
+            }
+        });
+    }
+
+    private void remove(Subscriber subscriber) {
+        emitters.computeIfPresent(subscriber.userId, (id, userEmitters) -> {
+            if (userEmitters.remove(subscriber)) {
+                connections.decrementAndGet();
+            }
+            return userEmitters.isEmpty() ? null : userEmitters;
+        });
+    }
+
+    private static SseEmitter.SseEventBuilder event(Notice notice) {
+        return SseEmitter.event()
+                .id(notice.getNoticeId())
+                .name(EVENT_NOTICE)
+                .data(notice, MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * 一个推送连接及其待发送事件
+     * <p>
+     * 事件按入队顺序由发送线程写入，同一连接同一时刻最多一个发送任务；关闭时移出登记表，
+     * 由发送线程在当前写入结束后完成连接（SseEmitter 的发送与完成互斥，不能在调用方线程上等待）。
+     */
+    private final class Subscriber {
+
+        private final String userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private volatile boolean closed;
+        private volatile Throwable error;
+
+        private Subscriber(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                log.debug("通知推送连接 {} 的发送队列已满，关闭连接", userId);
+                close(null);
+                return;
+            }
+            schedule();
+        }
+
+        void close(Throwable cause) {
+            error = cause;
+            closed = true;
+            remove(this);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    sender.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // 应用关闭中
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = queue.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (Exception e) {
+                closed = true;
+                remove(this);
+            } finally {
+                scheduled.set(false);
+            }
+            if (closed) {
+                queue.clear();
+                if (completed.compareAndSet(false, true)) {
+                    if (error != null) {
+                        emitter.completeWithError(error);
+                    } else {
+                        emitter.complete();
+                    }
+                }
+            } else if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package is.smbackend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import is.smbackend.pojo.Notice;
+import is.smbackend.pojo.NoticeArchive;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 通知模板登记表 - 审批通知只存模板编码和参数，读取时渲染为标题和内容
+ * <p>
+ * 模板在类加载时编译为“文本片段 + 参数序号”，渲染只做字符串拼接；参数以 JSON 字符串数组存储，
+ * 占位符写作 {0}、{1}...。未使用模板的通知（管理员手工发布、合并后的摘要）直接存储全文。
+ * 模板编码一经使用不可修改或删除，只能新增。
+ */
+@Slf4j
+@Component
+public class NoticeTemplateRegistry {
+
+    public static final String AWARD_APPROVED = "award.approved";
+    public static final String AWARD_REJECTED = "award.rejected";
+    public static final String AWARD_FINAL_APPROVED = "award.final.approved";
+    public static final String AWARD_FINAL_REJECTED = "award.final.rejected";
+    public static final String PUNISHMENT_EFFECTIVE = "punishment.effective";
+    public static final String PUNISHMENT_REVOKED = "punishment.revoked";
+    public static final String PUNISHMENT_CHANGED = "punishment.changed";
+    public static final String APPEAL_APPROVED = "appeal.approved";
+    public static final String APPEAL_REJECTED = "appeal.rejected";
+    public static final String APPEAL_FINAL_APPROVED = "appeal.final.approved";
+    public static final String APPEAL_FINAL_REJECTED = "appeal.final.rejected";
+    public static final String STATUS_CHANGE_APPROVED = "statusChange.approved";
+    public static final String STATUS_CHANGE_REJECTED = "statusChange.rejected";
+    public static final String STATUS_CHANGE_FINAL_APPROVED = "statusChange.final.approved";
+    public static final String STATUS_CHANGE_FINAL_REJECTED = "statusChange.final.rejected";
+    public static final String LEAVE_SCHOOL_APPROVED = "leaveSchool.approved";
+    public static final String LEAVE_SCHOOL_REJECTED = "leaveSchool.rejected";
+    public static final String LEAVE_SCHOOL_FINAL_APPROVED = "leaveSchool.final.approved";
+    public static final String LEAVE_SCHOOL_FINAL_REJECTED = "leaveSchool.final.rejected";
+
+    // 模板编码 -> 编译后的标题和内容
+    private static final Map<String, Template> TEMPLATES = Map.ofEntries(
+            template(AWARD_APPROVED, "奖励申请通过", "您申请的奖励「{0}」已被{1}审批通过。"),
+            template(AWARD_REJECTED, "奖励申请未通过", "您申请的奖励「{0}」已被{1}审批拒绝。"),
+            template(AWARD_FINAL_APPROVED, "奖励申请已通过", "您申请的奖励「{0}」最终审批结果：{1}。"),
+            template(AWARD_FINAL_REJECTED, "奖励申请未通过", "您申请的奖励「{0}」最终审批结果：{1}。"),
+            template(PUNISHMENT_EFFECTIVE, "处分通知", "您有一项「{0}」处分已生效，请及时查看详情。"),
+            template(PUNISHMENT_REVOKED, "处分撤销通知", "您的「{0}」处分已被撤销。"),
+            template(PUNISHMENT_CHANGED, "处分状态变更", "您的「{0}」处分状态已变更为：{1}。"),
+            template(APPEAL_APPROVED, "申诉通过", "您的处分申诉已被{0}审理通过，相关处分将被撤销。"),
+            template(APPEAL_REJECTED, "申诉未通过", "您的处分申诉已被{0}驳回。"),
+            template(APPEAL_FINAL_APPROVED, "申诉最终结果", "您的处分申诉已通过最终审理，相关处分已被撤销。"),
+            template(APPEAL_FINAL_REJECTED, "申诉最终结果", "您的处分申诉最终审理结果：未通过。"),
+            template(STATUS_CHANGE_APPROVED, "学籍变动申请通过", "您的「{0}」申请已被{1}审核通过。"),
+            template(STATUS_CHANGE_REJECTED, "学籍变动申请未通过", "您的「{0}」申请已被{1}审核拒绝。"),
+            template(STATUS_CHANGE_FINAL_APPROVED, "学籍变动申请已通过", "您的「{0}」申请最终审核结果：{1}。"),
+            template(STATUS_CHANGE_FINAL_REJECTED, "学籍变动申请未通过", "您的「{0}」申请最终审核结果：{1}。"),
+            template(LEAVE_SCHOOL_APPROVED, "{0}通过", "您的离校申请{0}已审核通过。"),
+            template(LEAVE_SCHOOL_REJECTED, "{0}未通过", "您的离校申请{0}已被拒绝。"),
+            template(LEAVE_SCHOOL_FINAL_APPROVED, "离校申请已通过", "您的离校申请已全部审核通过，请按时办理离校手续。"),
+            template(LEAVE_SCHOOL_FINAL_REJECTED, "离校申请未通过", "您的离校申请审核未通过，请查看详情了解原因。")
+    );
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 参数序列化为存储格式（JSON 字符串数组），无参数时返回 null
+     */
+    public String writeParams(String... params) {
+        if (params.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(params);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("通知模板参数序列化失败", e);
+        }
+    }
+
+    /**
+     * 渲染使用模板的通知，填充标题和内容；未使用模板的通知不做处理
+     */
+    public void render(Notice notice) {
+        Rendered rendered = render(notice.getTemplateCode(), notice.getTemplateParams());
+        if (rendered != null) {
+            notice.setTitle(rendered.title());
+            notice.setContent(rendered.content());
+        }
+    }
+
+    /**
+     * 渲染使用模板的归档通知
+     */
+    public void render(NoticeArchive notice) {
+        Rendered rendered = render(notice.getTemplateCode(), notice.getTemplateParams());
+        if (rendered != null) {
+            notice.setTitle(rendered.title());
+            notice.setContent(rendered.content());
+        }
+    }
+
+    private Rendered render(String code, String params) {
+        if (code == null) {
+            return null;
+        }
+        Template template = TEMPLATES.get(code);
+        if (template == null) {
+            log.warn("通知模板 {} 不存在", code);
+            return null;
+        }
+        String[] args;
+        try {
+            args = params == null ? new String[0] : objectMapper.readValue(params, String[].class);
+        } catch (JsonProcessingException e) {
+            log.warn("通知模板 {} 参数解析失败：{}", code, params);
+            args = new String[0];
+        }
+        return new Rendered(template.title().render(args), template.content().render(args));
+    }
+
+    private static Map.Entry<String, Template> template(String code, String title, String content) {
+        return Map.entry(code, new Template(CompiledPattern.compile(title), CompiledPattern.compile(content)));
+    }
+
+    private record Template(CompiledPattern title, CompiledPattern content) {
+    }
+
+    private record Rendered(String title, String content) {
+    }
+
+    /**
+     * 编译后的模板：texts 比 slots 多一项，依次为 文本0 参数slots[0] 文本1 参数slots[1] ... 文本n
+     */
+    private record CompiledPattern(String[] texts, int[] slots) {
+
+        static CompiledPattern compile(String pattern) {
+            List<String> texts = new ArrayList<>();
+            List<Integer> slots = new ArrayList<>();
+            int start = 0;
+            int open;
+            while ((open = pattern.indexOf('{', start)) >= 0) {
+                int close = pattern.indexOf('}', open);
+                texts.add(pattern.substring(start, open));
+                slots.add(Integer.parseInt(pattern.substring(open + 1, close)));
+                start = close + 1;
+            }
+            texts.add(pattern.substring(start));
+            return new CompiledPattern(texts.toArray(new String[0]), slots.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        String render(String[] args) {
+            if (slots.length == 0) {
+                return texts[0];
+            }
+            StringBuilder sb = new StringBuilder(texts[0]);
+            for (int i = 0; i < slots.length; i++) {
+                int slot = slots[i];
+                if (slot < args.length && args[slot] != null) {
+                    sb.append(args[slot]);
+                }
+                sb.append(texts[i + 1]);
+            }
+            return sb.toString();
+        }
+    }
+}
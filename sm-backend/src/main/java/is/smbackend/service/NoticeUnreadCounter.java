@@ -0,0 +1,148 @@
+package is.smbackend.service;
+
+import is.smbackend.pojo.Notice;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 个人通知未读数计数器 - 未读数查询直接读内存，不执行 SQL
+ * <p>
+ * 计数在用户第一次查询时从数据库加载，之后由通知写入、标记已读、删除等操作增减；
+ * 只维护已加载的用户，未加载的用户在下次查询时重新统计。
+ * 其他节点的写入和并发加载时的竞争可能造成偏差，由定时校准修正。
+ */
+@Slf4j
+@Component
+public class NoticeUnreadCounter {
+
+    @Autowired
+    private NoticeService noticeService;
+
+    // 超过该时长未查询的计数移出内存（毫秒）
+    @Value("${notice.unread.idle-timeout:1800000}")
+    private long idleTimeout;
+
+    // 校准时每条 SQL 统计的用户数
+    @Value("${notice.unread.reconcile-batch-size:500}")
+    private int reconcileBatchSize;
+
+    // userId -> 未读数
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 获取未读数，未加载时从数据库统计
+     */
+    public long get(String userId) {
+        Counter counter = counters.get(userId);
+        if (counter == null) {
+            long unread = noticeService.lambdaQuery()
+                    .eq(Notice::getTargetUser, userId)
+                    .eq(Notice::getIsRead, false)
+                    .count();
+            Counter loaded = new Counter(unread);
+            counter = counters.putIfAbsent(userId, loaded);
+            if (counter == null) {
+                counter = loaded;
+            }
+        }
+        counter.lastAccess = System.currentTimeMillis();
+        return counter.value.get();
+    }
+
+    /**
+     * 新增未读通知
+     */
+    public void increment(String userId, long delta) {
+        Counter counter = counters.get(userId);
+        if (counter != null) {
+            counter.value.addAndGet(delta);
+        }
+    }
+
+    /**
+     * 一条通知由未读变为已读或被删除
+     */
+    public void decrement(String userId) {
+        decrement(userId, 1);
+    }
+
+    /**
+     * 多条通知由未读变为已读或被删除
+     */
+    public void decrement(String userId, long delta) {
+        Counter counter = counters.get(userId);
+        if (counter != null) {
+            counter.value.getAndUpdate(value -> Math.max(0, value - delta));
+        }
+    }
+
+    /**
+     * 用户通知已全部标记已读
+     */
+    public void reset(String userId) {
+        Counter counter = counters.get(userId);
+        if (counter != null) {
+            counter.value.set(0);
+        }
+    }
+
+    /**
+     * 丢弃计数，下次查询时重新统计
+     */
+    public void invalidate(String userId) {
+        if (userId != null) {
+            counters.remove(userId);
+        }
+    }
+
+    /**
+     * 丢弃全部计数（无法确定受影响用户的批量操作后调用）
+     */
+    public void invalidateAll() {
+        counters.clear();
+    }
+
+    /**
+     * 定时按数据库校准已加载的计数，并移除长时间未查询的计数
+     */
+    @Scheduled(fixedDelayString = "${notice.unread.reconcile-interval:60000}",
+            initialDelayString = "${notice.unread.reconcile-interval:60000}")
+    public void reconcile() {
+        long threshold = System.currentTimeMillis() - idleTimeout;
+        counters.values().removeIf(counter -> counter.lastAccess < threshold);
+        List<String> userIds = new ArrayList<>(counters.keySet());
+        for (int from = 0; from < userIds.size(); from += reconcileBatchSize) {
+            List<String> batch = userIds.subList(from, Math.min(from + reconcileBatchSize, userIds.size()));
+            try {
+                Map<String, Long> unread = noticeService.countUnreadByUsers(batch);
+                for (String userId : batch) {
+                    Counter counter = counters.get(userId);
+                    if (counter != null) {
+                        counter.value.set(unread.getOrDefault(userId, 0L));
+                    }
+                }
+            } catch (Exception e) {
+                log.error("校准通知未读数失败", e);
+                return;
+            }
+        }
+    }
+
+    private static final class Counter {
+        private final AtomicLong value;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        Counter(long value) {
+            this.value = new AtomicLong(value);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package is.smbackend.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import is.smbackend.pojo.NoticeUserIndex;
+
+public interface NoticeUserIndexService extends IService<NoticeUserIndex> {
+
+    /**
+     * 分配用户序号，已存在时忽略
+     */
+    int insertIgnore(String userType, String userId);
+}
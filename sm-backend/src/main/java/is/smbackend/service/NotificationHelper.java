@@ -1,42 +1,81 @@
 package is.smbackend.service;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import is.smbackend.pojo.Notice;
+import is.smbackend.pojo.NoticeOutbox;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * 通知助手类 - 用于审批状态变更时自动发送通知
+ * <p>
+ * 通知不直接写入 notice 表：同一事务内产生的通知先缓存在事务上，提交前合并写入一条发件箱记录，
+ * 与审批更新一起提交，再由 {@link NoticeOutboxDispatcher} 在后台批量生成通知。
+ * 关联了业务记录的通知会在合并窗口内合并为每个学生一条摘要通知。
  */
 @Component
 public class NotificationHelper {
 
     @Autowired
-    private NoticeService noticeService;
-    
-    // 用于生成唯一ID的计数器
-    private static final AtomicInteger counter = new AtomicInteger(0);
+    private NoticeOutboxService noticeOutboxService;
+
+    @Autowired
+    private NoticeTemplateRegistry noticeTemplateRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // 发件箱序列化（省略空字段，压缩记录体积）
+    private ObjectMapper payloadMapper;
+
+    // 当前事务待写入通知列表的绑定键
+    private final Object transactionKey = new Object();
+
+    @PostConstruct
+    public void init() {
+        payloadMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
 
     /**
-     * 生成通知ID - 时间戳 + 3位序列号，避免同一秒内主键冲突
+     * 解析发件箱记录中的通知
      */
-    private String generateNoticeId() {
-        int seq = counter.incrementAndGet() % 1000;
-        return "N" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) 
-               + String.format("%03d", seq);
+    public List<Notice> readPayload(String payload) throws JsonProcessingException {
+        return List.of(payloadMapper.readValue(payload, Notice[].class));
     }
 
     /**
-     * 发送通知给学生
+     * 发送通知给学生（写入发件箱，由后台任务生成通知）
      */
     public void notifyStudent(String stuId, String title, String content, String noticeType, String publishUser, String publishUserId) {
-        Notice notice = new Notice();
-        notice.setNoticeId(generateNoticeId());
+        Notice notice = studentNotice(stuId, noticeType, publishUser, publishUserId);
         notice.setTitle(title);
         notice.setContent(content);
+        enqueue(notice);
+    }
+
+    /**
+     * 按模板发送通知给学生，只存储模板编码和参数，读取时渲染
+     */
+    public void notifyStudentWithTemplate(String stuId, String templateCode, String noticeType,
+                                          String publishUser, String publishUserId, String... params) {
+        Notice notice = studentNotice(stuId, noticeType, publishUser, publishUserId);
+        notice.setTemplateCode(templateCode);
+        notice.setTemplateParams(noticeTemplateRegistry.writeParams(params));
+        enqueue(notice);
+    }
+
+    private Notice studentNotice(String stuId, String noticeType, String publishUser, String publishUserId) {
+        Notice notice = new Notice();
         notice.setNoticeType(noticeType);
         notice.setTargetUser(stuId);
         notice.setTargetType("student");
@@ -44,115 +83,196 @@ public class NotificationHelper {
         notice.setPublishUserId(publishUserId);
         notice.setPublishTime(LocalDateTime.now());
         notice.setPriority("重要");
-        notice.setIsRead(false);
-        noticeService.save(notice);
+        return notice;
+    }
+
+    /**
+     * 将当前事务产生的通知关联到一条业务记录，同一记录在合并窗口内的通知由后台任务合并为一条摘要通知
+     * （不在事务中时不合并）
+     */
+    public void bindRecord(String bizType, String bizId) {
+        PendingNotices pending = pending();
+        if (pending != null) {
+            pending.bizKey = bizType + ":" + bizId;
+        }
+    }
+
+    /**
+     * 在事务中时合并到当前事务的发件箱记录，否则直接写入一条发件箱记录
+     */
+    private void enqueue(Notice notice) {
+        PendingNotices pending = pending();
+        if (pending == null) {
+            writeOutbox(List.of(notice), null);
+            return;
+        }
+        pending.notices.add(notice);
+    }
+
+    /**
+     * 当前事务待写入的通知，首次调用时绑定到事务；不在事务中时返回 null
+     */
+    private PendingNotices pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingNotices pending = (PendingNotices) TransactionSynchronizationManager.getResource(transactionKey);
+        if (pending == null) {
+            PendingNotices batch = new PendingNotices();
+            TransactionSynchronizationManager.bindResource(transactionKey, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    if (!batch.notices.isEmpty()) {
+                        writeOutbox(batch.notices, batch.bizKey);
+                    }
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(transactionKey);
+                }
+            });
+            pending = batch;
+        }
+        return pending;
+    }
+
+    private void writeOutbox(List<Notice> notices, String bizKey) {
+        NoticeOutbox outbox = new NoticeOutbox();
+        try {
+            outbox.setPayload(payloadMapper.writeValueAsString(notices));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("通知序列化失败", e);
+        }
+        outbox.setBizKey(bizKey);
+        outbox.setCreateTime(LocalDateTime.now());
+        noticeOutboxService.save(outbox);
+    }
+
+    /**
+     * 将同一业务记录发给同一学生的多条通知合并为一条摘要通知
+     * <p>
+     * 标题取最后一条（即最新状态），内容按时间顺序逐条列出；发布人不一致时记为系统。
+     * 摘要以全文存储，不使用模板。
+     */
+    public Notice digest(List<Notice> notices) {
+        Notice last = notices.get(notices.size() - 1);
+        if (notices.size() == 1) {
+            return last;
+        }
+        StringBuilder content = new StringBuilder();
+        boolean samePublisher = true;
+        for (Notice notice : notices) {
+            noticeTemplateRegistry.render(notice);
+            if (content.length() > 0) {
+                content.append('\n');
+            }
+            content.append('【').append(notice.getTitle()).append('】').append(notice.getContent());
+            samePublisher &= Objects.equals(notice.getPublishUserId(), last.getPublishUserId())
+                    && Objects.equals(notice.getPublishUser(), last.getPublishUser());
+        }
+        Notice digest = new Notice();
+        digest.setTitle(last.getTitle());
+        digest.setContent(content.toString());
+        digest.setNoticeType(last.getNoticeType());
+        digest.setTargetUser(last.getTargetUser());
+        digest.setTargetType(last.getTargetType());
+        digest.setPublishUser(samePublisher ? last.getPublishUser() : "系统");
+        digest.setPublishUserId(samePublisher ? last.getPublishUserId() : null);
+        digest.setPublishTime(last.getPublishTime());
+        digest.setPriority("重要");
+        return digest;
+    }
+
+    private static final class PendingNotices {
+        private final List<Notice> notices = new ArrayList<>();
+        private String bizKey;
     }
 
     /**
      * 奖励审批通知
      */
     public void notifyAwardApproval(String stuId, String awardName, String status, String reviewerRole, String reviewerId) {
-        String title = "奖励申请" + (status.equals("已通过") ? "通过" : "未通过");
-        String content = String.format("您申请的奖励「%s」已被%s%s。", 
-            awardName, reviewerRole, status.equals("已通过") ? "审批通过" : "审批拒绝");
-        notifyStudent(stuId, title, content, "奖励审批", reviewerRole, reviewerId);
+        String code = status.equals("已通过") ? NoticeTemplateRegistry.AWARD_APPROVED : NoticeTemplateRegistry.AWARD_REJECTED;
+        notifyStudentWithTemplate(stuId, code, "奖励审批", reviewerRole, reviewerId, awardName, reviewerRole);
     }
 
     /**
      * 奖励最终审批通知
      */
     public void notifyAwardFinalApproval(String stuId, String awardName, String finalStatus) {
-        String title = "奖励申请" + (finalStatus.equals("已通过") ? "已通过" : "未通过");
-        String content = String.format("您申请的奖励「%s」最终审批结果：%s。", awardName, finalStatus);
-        notifyStudent(stuId, title, content, "奖励审批", "系统", null);
+        String code = finalStatus.equals("已通过")
+                ? NoticeTemplateRegistry.AWARD_FINAL_APPROVED : NoticeTemplateRegistry.AWARD_FINAL_REJECTED;
+        notifyStudentWithTemplate(stuId, code, "奖励审批", "系统", null, awardName, finalStatus);
     }
 
     /**
      * 处分通知
      */
     public void notifyPunishment(String stuId, String punishmentType, String status, String reviewerRole, String reviewerId) {
-        String title;
-        String content;
         if (status.equals("已生效")) {
-            title = "处分通知";
-            content = String.format("您有一项「%s」处分已生效，请及时查看详情。", punishmentType);
+            notifyStudentWithTemplate(stuId, NoticeTemplateRegistry.PUNISHMENT_EFFECTIVE, "处分通知",
+                    reviewerRole, reviewerId, punishmentType);
         } else if (status.equals("已撤销")) {
-            title = "处分撤销通知";
-            content = String.format("您的「%s」处分已被撤销。", punishmentType);
+            notifyStudentWithTemplate(stuId, NoticeTemplateRegistry.PUNISHMENT_REVOKED, "处分通知",
+                    reviewerRole, reviewerId, punishmentType);
         } else {
-            title = "处分状态变更";
-            content = String.format("您的「%s」处分状态已变更为：%s。", punishmentType, status);
+            notifyStudentWithTemplate(stuId, NoticeTemplateRegistry.PUNISHMENT_CHANGED, "处分通知",
+                    reviewerRole, reviewerId, punishmentType, status);
         }
-        notifyStudent(stuId, title, content, "处分通知", reviewerRole, reviewerId);
     }
 
     /**
      * 申诉审理通知
      */
     public void notifyAppealReview(String stuId, String status, String reviewerRole, String reviewerId) {
-        String title = "申诉" + (status.equals("已通过") ? "通过" : "未通过");
-        String content;
-        if (status.equals("已通过")) {
-            content = String.format("您的处分申诉已被%s审理通过，相关处分将被撤销。", reviewerRole);
-        } else {
-            content = String.format("您的处分申诉已被%s驳回。", reviewerRole);
-        }
-        notifyStudent(stuId, title, content, "申诉审理", reviewerRole, reviewerId);
+        String code = status.equals("已通过") ? NoticeTemplateRegistry.APPEAL_APPROVED : NoticeTemplateRegistry.APPEAL_REJECTED;
+        notifyStudentWithTemplate(stuId, code, "申诉审理", reviewerRole, reviewerId, reviewerRole);
     }
 
     /**
      * 申诉最终审理通知
      */
     public void notifyAppealFinalReview(String stuId, String finalStatus) {
-        String title = "申诉最终结果";
-        String content;
-        if (finalStatus.equals("已通过")) {
-            content = "您的处分申诉已通过最终审理，相关处分已被撤销。";
-        } else {
-            content = "您的处分申诉最终审理结果：未通过。";
-        }
-        notifyStudent(stuId, title, content, "申诉审理", "系统", null);
+        String code = finalStatus.equals("已通过")
+                ? NoticeTemplateRegistry.APPEAL_FINAL_APPROVED : NoticeTemplateRegistry.APPEAL_FINAL_REJECTED;
+        notifyStudentWithTemplate(stuId, code, "申诉审理", "系统", null);
     }
 
     /**
      * 学籍变动审核通知
      */
     public void notifyStatusChangeReview(String stuId, String changeType, String status, String reviewerRole, String reviewerId) {
-        String title = "学籍变动申请" + (status.equals("已通过") ? "通过" : "未通过");
-        String content = String.format("您的「%s」申请已被%s%s。", 
-            changeType, reviewerRole, status.equals("已通过") ? "审核通过" : "审核拒绝");
-        notifyStudent(stuId, title, content, "学籍变动", reviewerRole, reviewerId);
+        String code = status.equals("已通过")
+                ? NoticeTemplateRegistry.STATUS_CHANGE_APPROVED : NoticeTemplateRegistry.STATUS_CHANGE_REJECTED;
+        notifyStudentWithTemplate(stuId, code, "学籍变动", reviewerRole, reviewerId, changeType, reviewerRole);
     }
 
     /**
      * 学籍变动最终审核通知
      */
     public void notifyStatusChangeFinalReview(String stuId, String changeType, String finalStatus) {
-        String title = "学籍变动申请" + (finalStatus.equals("已通过") ? "已通过" : "未通过");
-        String content = String.format("您的「%s」申请最终审核结果：%s。", changeType, finalStatus);
-        notifyStudent(stuId, title, content, "学籍变动", "系统", null);
+        String code = finalStatus.equals("已通过")
+                ? NoticeTemplateRegistry.STATUS_CHANGE_FINAL_APPROVED : NoticeTemplateRegistry.STATUS_CHANGE_FINAL_REJECTED;
+        notifyStudentWithTemplate(stuId, code, "学籍变动", "系统", null, changeType, finalStatus);
     }
 
     /**
      * 离校审核通知
      */
     public void notifyLeaveSchoolReview(String stuId, String reviewStep, String status, String reviewerRole, String reviewerId) {
-        String title = reviewStep + (status.equals("已通过") ? "通过" : "未通过");
-        String content = String.format("您的离校申请%s已%s。", reviewStep, status.equals("已通过") ? "审核通过" : "被拒绝");
-        notifyStudent(stuId, title, content, "离校审核", reviewerRole, reviewerId);
+        String code = status.equals("已通过")
+                ? NoticeTemplateRegistry.LEAVE_SCHOOL_APPROVED : NoticeTemplateRegistry.LEAVE_SCHOOL_REJECTED;
+        notifyStudentWithTemplate(stuId, code, "离校审核", reviewerRole, reviewerId, reviewStep);
     }
 
     /**
      * 离校最终审核通知
      */
     public void notifyLeaveSchoolFinalReview(String stuId, String finalStatus) {
-        String title = "离校申请" + (finalStatus.equals("已通过") ? "已通过" : "未通过");
-        String content;
-        if (finalStatus.equals("已通过")) {
-            content = "您的离校申请已全部审核通过，请按时办理离校手续。";
-        } else {
-            content = "您的离校申请审核未通过，请查看详情了解原因。";
-        }
-        notifyStudent(stuId, title, content, "离校审核", "系统", null);
+        String code = finalStatus.equals("已通过")
+                ? NoticeTemplateRegistry.LEAVE_SCHOOL_FINAL_APPROVED : NoticeTemplateRegistry.LEAVE_SCHOOL_FINAL_REJECTED;
+        notifyStudentWithTemplate(stuId, code, "离校审核", "系统", null);
     }
 }
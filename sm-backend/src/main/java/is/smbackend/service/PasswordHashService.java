@@ -0,0 +1,139 @@
+package is.smbackend.service;
+
+import is.smbackend.exception.BusinessException;
+import is.smbackend.exception.TooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * 密码哈希服务 - BCrypt 计算在独立的有界线程池中执行，避免登录高峰占满 Tomcat 工作线程
+ * <p>
+ * 线程池满或排队超时时快速失败，提示用户稍后重试；数据库中的旧明文密码在首次登录时透明升级为哈希。
+ */
+@Component
+public class PasswordHashService {
+
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("^\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}$");
+
+    @Value("${security.password.bcrypt-strength:10}")
+    private int strength;
+
+    // 哈希线程数，0 表示 CPU 核数
+    @Value("${security.password.pool-size:0}")
+    private int poolSize;
+
+    @Value("${security.password.queue-capacity:64}")
+    private int queueCapacity;
+
+    // 任务最长排队时间（毫秒），超过后直接放弃，不再占用 CPU
+    @Value("${security.password.max-queue-wait:2000}")
+    private long maxQueueWait;
+
+    private BCryptPasswordEncoder encoder;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        encoder = new BCryptPasswordEncoder(strength);
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        AtomicInteger index = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + index.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 是否已是 BCrypt 哈希
+     */
+    public boolean isHashed(String stored) {
+        return stored != null && BCRYPT_PATTERN.matcher(stored).matches();
+    }
+
+    /**
+     * 校验密码，兼容旧明文密码
+     */
+    public boolean matches(String raw, String stored) {
+        if (raw == null || stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            // 旧明文密码：常量时间比较
+            return MessageDigest.isEqual(raw.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        return submit(() -> encoder.matches(raw, stored));
+    }
+
+    /**
+     * 是否需要重新哈希（明文密码或哈希强度低于当前配置）
+     */
+    public boolean needsUpgrade(String stored) {
+        return !isHashed(stored) || encoder.upgradeEncoding(stored);
+    }
+
+    /**
+     * 计算密码哈希
+     */
+    public String hash(String raw) {
+        return submit(() -> encoder.encode(raw));
+    }
+
+    /**
+     * 提交到哈希线程池并等待结果，线程池饱和或排队超时时快速失败
+     */
+    private <T> T submit(Callable<T> task) {
+        long enqueuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                if (System.nanoTime() - enqueuedAt > TimeUnit.MILLISECONDS.toNanos(maxQueueWait)) {
+                    throw new TimeoutException("排队超时");
+                }
+                return task.call();
+            });
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsException("登录人数过多，请稍后重试");
+        }
+        try {
+            // 额外给哈希计算本身留出时间
+            return future.get(maxQueueWait * 2, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new TooManyRequestsException("登录人数过多，请稍后重试");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new TooManyRequestsException("登录人数过多，请稍后重试");
+            }
+            throw new BusinessException("密码校验失败", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("密码校验被中断");
+        }
+    }
+}
@@ -4,4 +4,9 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import is.smbackend.pojo.Punishment;
 
 public interface PunishmentService extends IService<Punishment> {
+
+    /**
+     * 更新处分记录，审批状态变化时在同一事务内写入待发送通知
+     */
+    boolean updateWithNotice(Punishment punishment);
 }
@@ -4,4 +4,9 @@ import com.baomidou.mybatisplus.extension.service.IService;
 import is.smbackend.pojo.StatusChange;
 
 public interface StatusChangeService extends IService<StatusChange> {
+
+    /**
+     * 更新学籍变动记录，审批状态变化时在同一事务内写入待发送通知
+     */
+    boolean updateWithNotice(StatusChange statusChange);
 }
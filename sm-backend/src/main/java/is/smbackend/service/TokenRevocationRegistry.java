@@ -0,0 +1,208 @@
+package is.smbackend.service;
+
+import is.smbackend.pojo.TokenRevocation;
+import is.smbackend.util.BloomFilter;
+import is.smbackend.util.JwtUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token 吊销登记表
+ * <p>
+ * 吊销记录持久化在 token_revocation 表，各节点定时按吊销时间轮询增量同步到内存。
+ * 每次从已同步的最大吊销时间往前回退 sync-overlap 重新读取，补上提交较晚或时钟稍慢的节点写入的记录，
+ * 重叠部分按吊销编号去重。按用户吊销时比较毫秒精度的签发时间，吊销之后签发的 Token 不受影响。
+ * 校验时先查布隆过滤器，绝大多数未吊销的 Token 在这一步即可放行，不访问数据库；
+ * 布隆过滤器命中后再查精确集合排除误判。
+ */
+@Slf4j
+@Component
+public class TokenRevocationRegistry {
+
+    private static final String TYPE_JTI = "jti";
+    private static final String TYPE_USER = "user";
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    // 布隆过滤器预计容量，实际数量超过后按两倍扩容重建
+    @Value("${token.revocation.expected-size:100000}")
+    private long expectedSize;
+
+    @Value("${token.revocation.sync-batch-size:1000}")
+    private int syncBatchSize;
+
+    // 每次同步回退重读的时长（毫秒），需大于吊销写入的提交延迟和节点间时钟偏差
+    @Value("${token.revocation.sync-overlap:60000}")
+    private long syncOverlap;
+
+    // 吊销键 -> 吊销记录
+    private final ConcurrentHashMap<String, Revocation> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter bloomFilter = new BloomFilter(1024, 0.01);
+
+    // 已同步的最大吊销时间，首次同步前为 null
+    private LocalDateTime watermark;
+
+    // 重叠窗口内已同步的记录：吊销编号 -> 吊销时间（仅同步线程访问）
+    private final Map<Long, LocalDateTime> recentlySynced = new HashMap<>();
+
+    /**
+     * Token 是否已被吊销
+     */
+    public boolean isRevoked(String jti, String userType, String userId, long issuedAt) {
+        BloomFilter filter = bloomFilter;
+        if (jti != null) {
+            String key = jtiKey(jti);
+            if (filter.mightContain(key) && revoked.containsKey(key)) {
+                return true;
+            }
+        }
+        String key = userKey(userType, userId);
+        if (filter.mightContain(key)) {
+            Revocation revocation = revoked.get(key);
+            return revocation != null && issuedAt <= revocation.notBefore;
+        }
+        return false;
+    }
+
+    /**
+     * 吊销单个 Token（登出）
+     */
+    public void revokeToken(String jti, Date expiration) {
+        TokenRevocation record = new TokenRevocation();
+        record.setRevokeType(TYPE_JTI);
+        record.setRevokeKey(jti);
+        record.setExpireTime(toLocalDateTime(expiration.getTime()));
+        record.setCreateTime(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+        tokenRevocationService.save(record);
+        apply(record);
+    }
+
+    /**
+     * 吊销用户当前已签发的全部 Token（账号停用、强制下线）
+     */
+    public void revokeUser(String userType, String userId) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        TokenRevocation record = new TokenRevocation();
+        record.setRevokeType(TYPE_USER);
+        record.setRevokeKey(userType + ":" + userId);
+        record.setNotBefore(now);
+        // 超过 Token 最长有效期后，吊销前签发的 Token 已全部过期
+        record.setExpireTime(now.plus(JwtUtil.EXPIRATION, ChronoUnit.MILLIS));
+        record.setCreateTime(now);
+        tokenRevocationService.save(record);
+        apply(record);
+    }
+
+    /**
+     * 轮询同步其他节点写入的吊销记录
+     */
+    @Scheduled(fixedDelayString = "${token.revocation.sync-interval:5000}")
+    public void sync() {
+        try {
+            // 按 (吊销时间, 吊销编号) 分页，从 watermark - overlap 开始
+            LocalDateTime cursorTime = watermark != null ? watermark.minus(syncOverlap, ChronoUnit.MILLIS) : null;
+            long cursorId = 0;
+            List<TokenRevocation> records;
+            do {
+                LocalDateTime afterTime = cursorTime;
+                long afterId = cursorId;
+                records = tokenRevocationService.lambdaQuery()
+                        .gt(TokenRevocation::getExpireTime, LocalDateTime.now())
+                        .and(afterTime != null, w -> w.gt(TokenRevocation::getCreateTime, afterTime)
+                                .or(o -> o.eq(TokenRevocation::getCreateTime, afterTime)
+                                        .gt(TokenRevocation::getRevokeId, afterId)))
+                        .orderByAsc(TokenRevocation::getCreateTime, TokenRevocation::getRevokeId)
+                        .last("LIMIT " + syncBatchSize)
+                        .list();
+                for (TokenRevocation record : records) {
+                    if (recentlySynced.putIfAbsent(record.getRevokeId(), record.getCreateTime()) == null) {
+                        apply(record);
+                    }
+                    cursorTime = record.getCreateTime();
+                    cursorId = record.getRevokeId();
+                    if (watermark == null || cursorTime.isAfter(watermark)) {
+                        watermark = cursorTime;
+                    }
+                }
+            } while (records.size() == syncBatchSize);
+            if (watermark != null) {
+                LocalDateTime floor = watermark.minus(syncOverlap, ChronoUnit.MILLIS);
+                recentlySynced.values().removeIf(time -> time.isBefore(floor));
+            }
+        } catch (Exception e) {
+            log.error("同步 Token 吊销记录失败", e);
+        }
+    }
+
+    /**
+     * 定时清理过期记录并重建布隆过滤器（布隆过滤器不支持删除）
+     */
+    @Scheduled(fixedDelayString = "${token.revocation.rebuild-interval:600000}",
+            initialDelayString = "${token.revocation.rebuild-interval:600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(revocation -> revocation.expireAt <= now);
+        rebuild();
+        try {
+            tokenRevocationService.lambdaUpdate()
+                    .le(TokenRevocation::getExpireTime, LocalDateTime.now())
+                    .remove();
+        } catch (Exception e) {
+            log.error("清理过期 Token 吊销记录失败", e);
+        }
+    }
+
+    private synchronized void apply(TokenRevocation record) {
+        String key = TYPE_USER.equals(record.getRevokeType())
+                ? TYPE_USER + ":" + record.getRevokeKey()
+                : jtiKey(record.getRevokeKey());
+        long notBefore = record.getNotBefore() == null ? Long.MIN_VALUE : toEpochMilli(record.getNotBefore());
+        Revocation revocation = new Revocation(notBefore, toEpochMilli(record.getExpireTime()));
+        revoked.merge(key, revocation, (a, b) -> a.notBefore >= b.notBefore ? a : b);
+        bloomFilter.put(key);
+        if (revoked.size() > expectedSize) {
+            rebuild();
+        }
+    }
+
+    private synchronized void rebuild() {
+        BloomFilter filter = new BloomFilter(Math.max(expectedSize, revoked.size() * 2L), 0.01);
+        revoked.keySet().forEach(filter::put);
+        expectedSize = Math.max(expectedSize, revoked.size() * 2L);
+        bloomFilter = filter;
+    }
+
+    private static String jtiKey(String jti) {
+        return TYPE_JTI + ":" + jti;
+    }
+
+    private static String userKey(String userType, String userId) {
+        return TYPE_USER + ":" + userType + ":" + userId;
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault());
+    }
+
+    private record Revocation(long notBefore, long expireAt) {
+    }
+}
@@ -0,0 +1,7 @@
+package is.smbackend.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import is.smbackend.pojo.TokenRevocation;
+
+public interface TokenRevocationService extends IService<TokenRevocation> {
+}
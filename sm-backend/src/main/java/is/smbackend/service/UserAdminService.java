@@ -3,5 +3,13 @@ package is.smbackend.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import is.smbackend.pojo.UserAdmin;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+
 public interface UserAdminService extends IService<UserAdmin> {
+
+    /**
+     * 批量更新最后登录时间
+     */
+    int batchUpdateLastLoginTime(Map<String, LocalDateTime> times);
 }
@@ -0,0 +1,254 @@
+package is.smbackend.service;
+
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.baomidou.mybatisplus.extension.service.IService;
+import is.smbackend.dto.UserProfile;
+import is.smbackend.exception.BusinessException;
+import is.smbackend.pojo.UserAdmin;
+import is.smbackend.pojo.UserAdvisor;
+import is.smbackend.pojo.UserStudent;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 用户目录 - 按 (userType, userId) 统一访问学生、辅导员、管理员三张用户表
+ * <p>
+ * 用户资料走读穿透缓存（不含密码），资料和密码更新时失效；密码哈希只在校验时单独查询，不进缓存。
+ */
+@Component
+public class UserDirectory {
+
+    @Autowired
+    private UserStudentService userStudentService;
+
+    @Autowired
+    private UserAdvisorService userAdvisorService;
+
+    @Autowired
+    private UserAdminService userAdminService;
+
+    @Autowired
+    private LoginTimeBuffer loginTimeBuffer;
+
+    // 缓存有效期（毫秒）
+    @Value("${user.directory.cache-ttl:600000}")
+    private long cacheTtl;
+
+    // 缓存最大条目数
+    @Value("${user.directory.cache-max-size:20000}")
+    private int cacheMaxSize;
+
+    private Map<String, UserTable<?>> tables;
+
+    // "userType:userId" -> 缓存的资料
+    private final ConcurrentHashMap<String, CachedProfile> cache = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        tables = Map.of(
+                "student", new UserTable<>("student", UserStudent.class, userStudentService,
+                        UserStudent::getUserId, UserStudent::getPasswd, UserStudent::getPhone, UserStudent::getEmail),
+                "advisor", new UserTable<>("advisor", UserAdvisor.class, userAdvisorService,
+                        UserAdvisor::getUserId, UserAdvisor::getPasswd, UserAdvisor::getPhone, UserAdvisor::getEmail),
+                "admin", new UserTable<>("admin", UserAdmin.class, userAdminService,
+                        UserAdmin::getUserId, UserAdmin::getPasswd, UserAdmin::getPhone, UserAdmin::getEmail));
+    }
+
+    /**
+     * 获取用户资料，用户不存在时返回 null
+     */
+    public UserProfile getProfile(String userType, String userId) {
+        UserTable<?> table = table(userType);
+        String key = cacheKey(userType, userId);
+        long now = System.currentTimeMillis();
+        CachedProfile cached = cache.get(key);
+        UserProfile profile;
+        if (cached != null && cached.expireAt > now) {
+            profile = cached.profile;
+        } else {
+            profile = table.loadProfile(userId);
+            if (profile == null) {
+                return null;
+            }
+            if (cache.size() >= cacheMaxSize) {
+                evictExpired();
+            }
+            cache.put(key, new CachedProfile(profile, now + cacheTtl));
+        }
+        return withPendingLoginTime(profile);
+    }
+
+    /**
+     * 获取用户资料，不存在时抛出业务异常
+     */
+    public UserProfile requireProfile(String userType, String userId) {
+        UserProfile profile = getProfile(userType, userId);
+        if (profile == null) {
+            throw new BusinessException("用户不存在");
+        }
+        return profile;
+    }
+
+    /**
+     * 查询密码哈希（仅用于校验，不缓存），用户不存在时返回 null
+     */
+    public String getPasswordHash(String userType, String userId) {
+        return table(userType).loadPasswd(userId);
+    }
+
+    /**
+     * 更新密码哈希
+     */
+    public void updatePassword(String userType, String userId, String passwordHash) {
+        table(userType).updatePasswd(userId, passwordHash);
+        invalidate(userType, userId);
+    }
+
+    /**
+     * 更新联系方式，参数为 null 时不修改
+     */
+    public void updateContact(String userType, String userId, String phone, String email) {
+        table(userType).updateContact(userId, phone, email);
+        invalidate(userType, userId);
+    }
+
+    /**
+     * 批量查询邮箱（不走缓存），返回 userId -> 邮箱，未填写邮箱的用户不在结果中
+     */
+    public Map<String, String> getEmails(String userType, Collection<String> userIds) {
+        return userIds.isEmpty() ? Map.of() : table(userType).loadEmails(userIds);
+    }
+
+    /**
+     * 记录登录时间（写缓冲，不直接落库）
+     */
+    public void recordLogin(String userType, String userId, LocalDateTime time) {
+        loginTimeBuffer.record(userType, userId, time);
+    }
+
+    /**
+     * 使缓存失效，用户表被直接修改后调用
+     */
+    public void invalidate(String userType, String userId) {
+        cache.remove(cacheKey(userType, userId));
+    }
+
+    /**
+     * 定时清理过期缓存
+     */
+    @Scheduled(fixedDelayString = "${user.directory.cache-ttl:600000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(cached -> cached.expireAt <= now);
+        if (cache.size() >= cacheMaxSize) {
+            cache.clear();
+        }
+    }
+
+    private UserTable<?> table(String userType) {
+        UserTable<?> table = userType == null ? null : tables.get(userType);
+        if (table == null) {
+            throw new BusinessException("无效的用户类型");
+        }
+        return table;
+    }
+
+    private static String cacheKey(String userType, String userId) {
+        return userType + ":" + userId;
+    }
+
+    /**
+     * 叠加尚在写缓冲中的最后登录时间，返回副本避免修改缓存对象
+     */
+    private UserProfile withPendingLoginTime(UserProfile profile) {
+        UserProfile copy = new UserProfile();
+        BeanUtils.copyProperties(profile, copy);
+        LocalDateTime pending = loginTimeBuffer.getPending(profile.getUserType(), profile.getUserId());
+        if (pending != null && (copy.getLastLoginTime() == null || pending.isAfter(copy.getLastLoginTime()))) {
+            copy.setLastLoginTime(pending);
+        }
+        return copy;
+    }
+
+    private record CachedProfile(UserProfile profile, long expireAt) {
+    }
+
+    /**
+     * 单张用户表的访问方式
+     */
+    private static class UserTable<T> {
+        private final String userType;
+        private final Class<T> entityClass;
+        private final IService<T> service;
+        private final SFunction<T, String> idColumn;
+        private final SFunction<T, String> passwdColumn;
+        private final SFunction<T, String> phoneColumn;
+        private final SFunction<T, String> emailColumn;
+
+        UserTable(String userType, Class<T> entityClass, IService<T> service, SFunction<T, String> idColumn,
+                  SFunction<T, String> passwdColumn, SFunction<T, String> phoneColumn, SFunction<T, String> emailColumn) {
+            this.userType = userType;
+            this.entityClass = entityClass;
+            this.service = service;
+            this.idColumn = idColumn;
+            this.passwdColumn = passwdColumn;
+            this.phoneColumn = phoneColumn;
+            this.emailColumn = emailColumn;
+        }
+
+        UserProfile loadProfile(String userId) {
+            T user = service.lambdaQuery()
+                    .select(entityClass, field -> !"passwd".equals(field.getColumn()))
+                    .eq(idColumn, userId)
+                    .one();
+            if (user == null) {
+                return null;
+            }
+            UserProfile profile = new UserProfile();
+            BeanUtils.copyProperties(user, profile);
+            profile.setUserType(userType);
+            return profile;
+        }
+
+        String loadPasswd(String userId) {
+            T user = service.lambdaQuery().select(idColumn, passwdColumn).eq(idColumn, userId).one();
+            return user == null ? null : passwdColumn.apply(user);
+        }
+
+        Map<String, String> loadEmails(Collection<String> userIds) {
+            Map<String, String> emails = new HashMap<>();
+            for (T user : service.lambdaQuery().select(idColumn, emailColumn).in(idColumn, userIds).list()) {
+                String email = emailColumn.apply(user);
+                if (email != null && !email.isBlank()) {
+                    emails.put(idColumn.apply(user), email);
+                }
+            }
+            return emails;
+        }
+
+        void updatePasswd(String userId, String passwordHash) {
+            service.lambdaUpdate().set(passwdColumn, passwordHash).eq(idColumn, userId).update();
+        }
+
+        void updateContact(String userId, String phone, String email) {
+            if (phone == null && email == null) {
+                return;
+            }
+            service.lambdaUpdate()
+                    .set(phone != null, phoneColumn, phone)
+                    .set(email != null, emailColumn, email)
+                    .eq(idColumn, userId)
+                    .update();
+        }
+    }
+}
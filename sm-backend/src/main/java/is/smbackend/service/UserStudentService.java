@@ -3,5 +3,13 @@ package is.smbackend.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import is.smbackend.pojo.UserStudent;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+
 public interface UserStudentService extends IService<UserStudent> {
+
+    /**
+     * 批量更新最后登录时间
+     */
+    int batchUpdateLastLoginTime(Map<String, LocalDateTime> times);
 }
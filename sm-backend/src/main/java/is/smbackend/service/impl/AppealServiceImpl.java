@@ -4,8 +4,56 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import is.smbackend.mapper.AppealMapper;
 import is.smbackend.pojo.Appeal;
 import is.smbackend.service.AppealService;
+import is.smbackend.service.NotificationHelper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class AppealServiceImpl extends ServiceImpl<AppealMapper, Appeal> implements AppealService {
+
+    @Autowired
+    private NotificationHelper notificationHelper;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateWithNotice(Appeal appeal) {
+        // 获取原记录以比较状态变化
+        Appeal oldAppeal = getById(appeal.getAppealId());
+        boolean result = updateById(appeal);
+        
+        // 状态变更时发送通知
+        if (result && oldAppeal != null) {
+            notificationHelper.bindRecord("appeal", appeal.getAppealId());
+            // 辅导员审理状态变更
+            if (!oldAppeal.getAdvisorStatus().equals(appeal.getAdvisorStatus()) 
+                && !"待审理".equals(appeal.getAdvisorStatus())) {
+                notificationHelper.notifyAppealReview(
+                    appeal.getStuId(),
+                    appeal.getAdvisorStatus(),
+                    "辅导员",
+                    null
+                );
+            }
+            // 教务审理状态变更
+            if (!oldAppeal.getAdminStatus().equals(appeal.getAdminStatus()) 
+                && !"待审理".equals(appeal.getAdminStatus())) {
+                notificationHelper.notifyAppealReview(
+                    appeal.getStuId(),
+                    appeal.getAdminStatus(),
+                    "教务处",
+                    null
+                );
+            }
+            // 最终状态变更
+            if (!oldAppeal.getAppealStatus().equals(appeal.getAppealStatus()) 
+                && !"受理中".equals(appeal.getAppealStatus())) {
+                notificationHelper.notifyAppealFinalReview(
+                    appeal.getStuId(),
+                    appeal.getAppealStatus()
+                );
+            }
+        }
+        return result;
+    }
 }
@@ -4,8 +4,127 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import is.smbackend.mapper.AttachmentMapper;
 import is.smbackend.pojo.Attachment;
 import is.smbackend.service.AttachmentService;
+import is.smbackend.service.AttachmentStorage;
+import is.smbackend.service.AttachmentThumbnailer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
 @Service
 public class AttachmentServiceImpl extends ServiceImpl<AttachmentMapper, Attachment> implements AttachmentService {
+
+    @Autowired
+    private AttachmentStorage attachmentStorage;
+
+    @Autowired
+    private AttachmentThumbnailer attachmentThumbnailer;
+
+    @Override
+    public boolean saveWithContent(Attachment attachment, InputStream content) throws IOException {
+        return saveWithStagedFile(attachment, attachmentStorage.stage(content));
+    }
+
+    @Override
+    public boolean saveWithStagedFile(Attachment attachment, AttachmentStorage.StagedFile staged) throws IOException {
+        attachment.setContentHash(staged.contentHash());
+        attachment.setFilePath(attachmentStorage.objectKey(staged.contentHash()));
+        attachment.setFileSize(staged.size());
+
+        try (AttachmentStorage.HashLock lock = attachmentStorage.lock(staged.contentHash())) {
+            boolean created = attachmentStorage.commit(staged);
+            try {
+                boolean saved = save(attachment);
+                // 图片在后台生成缩略图，已有缩略图的相同内容直接复用
+                attachmentThumbnailer.submit(attachment);
+                return saved;
+            } catch (RuntimeException e) {
+                // 新建的对象没有任何引用，随记录一起回退
+                if (created) {
+                    attachmentStorage.delete(attachment.getFilePath());
+                }
+                throw e;
+            }
+        } finally {
+            attachmentStorage.discard(staged);
+        }
+    }
+
+    @Override
+    public boolean removeWithContent(Attachment attachment) throws IOException {
+        // 调用方传入的可能是迁移前读取的记录，按最新记录处理
+        Attachment current = getById(attachment.getAttachmentId());
+        if (current == null) {
+            return false;
+        }
+        if (current.getContentHash() == null) {
+            // 未记录哈希的旧附件每条记录独占一个文件；只在记录仍未补算哈希时按旧路径删除，
+            // 否则迁移任务已把它改到对象文件，转入下方加锁的流程
+            boolean removed = lambdaUpdate()
+                    .eq(Attachment::getAttachmentId, current.getAttachmentId())
+                    .isNull(Attachment::getContentHash)
+                    .remove();
+            if (removed) {
+                attachmentStorage.delete(current.getFilePath());
+                return true;
+            }
+            current = getById(current.getAttachmentId());
+            if (current == null) {
+                return false;
+            }
+        }
+        try (AttachmentStorage.HashLock lock = attachmentStorage.lock(current.getContentHash())) {
+            // 锁内重新读取存储路径，目录迁移任务可能已把文件移到新路径
+            current = getById(current.getAttachmentId());
+            if (current == null) {
+                return false;
+            }
+            boolean removed = removeById(current.getAttachmentId());
+            boolean referenced = lambdaQuery()
+                    .eq(Attachment::getContentHash, current.getContentHash())
+                    .eq(Attachment::getFilePath, current.getFilePath())
+                    .exists();
+            if (removed && !referenced) {
+                attachmentStorage.delete(current.getFilePath());
+            }
+            return removed;
+        }
+    }
+
+    @Override
+    public List<Attachment> listReferences(String afterId, int limit) {
+        return lambdaQuery()
+                .select(Attachment::getAttachmentId, Attachment::getFilePath, Attachment::getContentHash,
+                        Attachment::getRelatedId, Attachment::getRelatedType, Attachment::getUploadTime)
+                .gt(Attachment::getAttachmentId, afterId)
+                .orderByAsc(Attachment::getAttachmentId)
+                .last("LIMIT " + limit)
+                .list();
+    }
+
+    @Override
+    public boolean isReferenced(String filePath) {
+        return lambdaQuery().eq(Attachment::getFilePath, filePath).exists();
+    }
+
+    @Override
+    public List<Attachment> listLegacyLayout(String afterId, int limit) {
+        return lambdaQuery()
+                .gt(Attachment::getAttachmentId, afterId)
+                .apply("file_path NOT LIKE 'objects/__/__/%'")
+                .orderByAsc(Attachment::getAttachmentId)
+                .last("LIMIT " + limit)
+                .list();
+    }
+
+    @Override
+    public boolean repointFile(String oldPath, String newPath, String contentHash) {
+        return lambdaUpdate()
+                .set(Attachment::getFilePath, newPath)
+                .set(Attachment::getContentHash, contentHash)
+                .eq(Attachment::getFilePath, oldPath)
+                .update();
+    }
 }
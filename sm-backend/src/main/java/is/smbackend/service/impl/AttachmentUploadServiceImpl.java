@@ -0,0 +1,189 @@
+package is.smbackend.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import is.smbackend.dto.ChunkUploadInitRequest;
+import is.smbackend.exception.BusinessException;
+import is.smbackend.mapper.AttachmentUploadMapper;
+import is.smbackend.pojo.Attachment;
+import is.smbackend.pojo.AttachmentUpload;
+import is.smbackend.service.AttachmentService;
+import is.smbackend.service.AttachmentStorage;
+import is.smbackend.service.AttachmentUploadService;
+import is.smbackend.util.HashUtil;
+import is.smbackend.util.IdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class AttachmentUploadServiceImpl extends ServiceImpl<AttachmentUploadMapper, AttachmentUpload> implements AttachmentUploadService {
+
+    @Autowired
+    private AttachmentService attachmentService;
+
+    @Autowired
+    private AttachmentStorage attachmentStorage;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    // 分片上传允许的最大文件大小（字节）
+    @Value("${file.chunk-upload.max-size:209715200}")
+    private long maxSize;
+
+    // 单个分片的最大字节数，需小于 Nginx 的 client_max_body_size
+    @Value("${file.chunk-upload.chunk-size:5242880}")
+    private long chunkSize;
+
+    // 超过该时长没有新分片的任务视为放弃，清理临时文件（小时）
+    @Value("${file.chunk-upload.expire-hours:24}")
+    private long expireHours;
+
+    @Override
+    public AttachmentUpload init(ChunkUploadInitRequest request) {
+        if (request.getFileSize() > maxSize) {
+            throw new BusinessException("文件大小不能超过" + maxSize / 1024 / 1024 + "MB");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        AttachmentUpload upload = new AttachmentUpload();
+        upload.setUploadId(idGenerator.nextUploadId());
+        upload.setFileName(request.getFileName());
+        upload.setFileType(request.getFileType());
+        upload.setFileSize(request.getFileSize());
+        upload.setChunkSize(chunkSize);
+        upload.setReceived(0L);
+        upload.setRelatedId(request.getRelatedId());
+        upload.setRelatedType(request.getRelatedType());
+        upload.setUploadUserId(request.getUploadUserId());
+        upload.setCreateTime(now);
+        upload.setUpdateTime(now);
+        save(upload);
+        return upload;
+    }
+
+    @Override
+    public AttachmentUpload writeChunk(String uploadId, long offset, InputStream content) throws IOException {
+        AttachmentUpload upload = getUpload(uploadId);
+        requireLocal(upload);
+        if (offset < 0 || offset > upload.getReceived()) {
+            throw new BusinessException("分片偏移不正确，请从第 " + upload.getReceived() + " 字节继续上传");
+        }
+        long limit = Math.min(upload.getChunkSize(), upload.getFileSize() - offset);
+        long written;
+        // 请求体直接写入临时文件的对应位置，不经过 multipart 缓存
+        try (FileChannel channel = FileChannel.open(attachmentStorage.uploadPart(uploadId),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             ReadableByteChannel source = Channels.newChannel(content)) {
+            written = channel.transferFrom(source, offset, limit);
+            if (content.read() != -1) {
+                throw new BusinessException("分片超过允许的大小（" + limit + " 字节）");
+            }
+        }
+        baseMapper.advanceReceived(uploadId, offset, offset + written, LocalDateTime.now());
+        return getById(uploadId);
+    }
+
+    @Override
+    public Attachment complete(String uploadId, String sha256) throws IOException {
+        AttachmentUpload upload = getUpload(uploadId);
+        requireLocal(upload);
+        if (upload.getReceived() < upload.getFileSize()) {
+            throw new BusinessException("文件尚未上传完成（" + upload.getReceived() + "/" + upload.getFileSize() + " 字节）");
+        }
+        Path part = attachmentStorage.uploadPart(uploadId);
+        String hash = HashUtil.sha256(part);
+        if (!hash.equalsIgnoreCase(sha256)) {
+            abort(uploadId);
+            throw new BusinessException("文件校验失败，请重新上传");
+        }
+        // 先删除任务记录，并发的重复提交只有一个能继续
+        if (!removeById(uploadId)) {
+            throw new BusinessException("上传任务不存在或已完成");
+        }
+
+        Attachment attachment = new Attachment();
+        attachment.setAttachmentId(idGenerator.nextAttachmentId());
+        attachment.setFileName(upload.getFileName());
+        attachment.setFileType(upload.getFileType());
+        attachment.setRelatedId(upload.getRelatedId());
+        attachment.setRelatedType(upload.getRelatedType());
+        attachment.setUploadUserId(upload.getUploadUserId());
+        attachment.setUploadTime(LocalDateTime.now());
+        attachmentService.saveWithStagedFile(attachment, new AttachmentStorage.StagedFile(part, hash, upload.getFileSize()));
+        return attachment;
+    }
+
+    @Override
+    public boolean abort(String uploadId) throws IOException {
+        boolean removed = removeById(uploadId);
+        Files.deleteIfExists(attachmentStorage.uploadPart(uploadId));
+        return removed;
+    }
+
+    @Override
+    public Set<String> listUploadIds() {
+        return lambdaQuery()
+                .select(AttachmentUpload::getUploadId)
+                .list().stream()
+                .map(AttachmentUpload::getUploadId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 定时清理长时间没有新分片的上传任务
+     */
+    @Scheduled(fixedDelayString = "${file.chunk-upload.cleanup-interval:3600000}")
+    public void cleanupExpired() {
+        List<AttachmentUpload> expired = lambdaQuery()
+                .lt(AttachmentUpload::getUpdateTime, LocalDateTime.now().minusHours(expireHours))
+                .list();
+        for (AttachmentUpload upload : expired) {
+            try {
+                abort(upload.getUploadId());
+            } catch (Exception e) {
+                log.warn("清理分片上传任务 {} 失败", upload.getUploadId(), e);
+            }
+        }
+        if (!expired.isEmpty()) {
+            log.info("清理过期分片上传任务 {} 个", expired.size());
+        }
+    }
+
+    /**
+     * 分片临时文件保存在认领该任务的节点本地（首个分片写入时认领），其他节点收到的分片和完成请求直接拒绝
+     */
+    private void requireLocal(AttachmentUpload upload) {
+        int node = idGenerator.getNodeId();
+        Integer owner = upload.getOwnerNode();
+        if (owner == null && baseMapper.claimOwner(upload.getUploadId(), node) == 0) {
+            owner = getUpload(upload.getUploadId()).getOwnerNode();
+        }
+        if (owner != null && owner != node) {
+            throw new BusinessException("上传任务的分片保存在其他节点，请重新上传");
+        }
+    }
+
+    private AttachmentUpload getUpload(String uploadId) {
+        AttachmentUpload upload = getById(uploadId);
+        if (upload == null) {
+            throw new BusinessException("上传任务不存在或已过期");
+        }
+        return upload;
+    }
+}
@@ -4,8 +4,59 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import is.smbackend.mapper.AwardMapper;
 import is.smbackend.pojo.Award;
 import is.smbackend.service.AwardService;
+import is.smbackend.service.NotificationHelper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class AwardServiceImpl extends ServiceImpl<AwardMapper, Award> implements AwardService {
+
+    @Autowired
+    private NotificationHelper notificationHelper;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateWithNotice(Award award) {
+        // 获取原记录以比较状态变化
+        Award oldAward = getById(award.getAwardId());
+        boolean result = updateById(award);
+        
+        // 状态变更时发送通知
+        if (result && oldAward != null) {
+            notificationHelper.bindRecord("award", award.getAwardId());
+            // 辅导员审批状态变更
+            if (!oldAward.getAdvisorStatus().equals(award.getAdvisorStatus()) 
+                && !"待审批".equals(award.getAdvisorStatus())) {
+                notificationHelper.notifyAwardApproval(
+                    award.getStuId(), 
+                    award.getAwardName(), 
+                    award.getAdvisorStatus(), 
+                    "辅导员", 
+                    null
+                );
+            }
+            // 教务审批状态变更
+            if (!oldAward.getAdminStatus().equals(award.getAdminStatus()) 
+                && !"待审批".equals(award.getAdminStatus())) {
+                notificationHelper.notifyAwardApproval(
+                    award.getStuId(), 
+                    award.getAwardName(), 
+                    award.getAdminStatus(), 
+                    "教务处", 
+                    null
+                );
+            }
+            // 最终状态变更
+            if (!oldAward.getAwardStatus().equals(award.getAwardStatus()) 
+                && !"审批中".equals(award.getAwardStatus())) {
+                notificationHelper.notifyAwardFinalApproval(
+                    award.getStuId(), 
+                    award.getAwardName(), 
+                    award.getAwardStatus()
+                );
+            }
+        }
+        return result;
+    }
 }
@@ -4,8 +4,80 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import is.smbackend.mapper.LeaveSchoolMapper;
 import is.smbackend.pojo.LeaveSchool;
 import is.smbackend.service.LeaveSchoolService;
+import is.smbackend.service.NotificationHelper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class LeaveSchoolServiceImpl extends ServiceImpl<LeaveSchoolMapper, LeaveSchool> implements LeaveSchoolService {
+
+    @Autowired
+    private NotificationHelper notificationHelper;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateWithNotice(LeaveSchool leaveSchool) {
+        // 获取原记录以比较状态变化
+        LeaveSchool oldLeave = getById(leaveSchool.getLeaveId());
+        boolean result = updateById(leaveSchool);
+        
+        // 状态变更时发送通知
+        if (result && oldLeave != null) {
+            notificationHelper.bindRecord("leaveSchool", leaveSchool.getLeaveId());
+            // 宿管审核状态变更
+            if (!oldLeave.getDormitoryStatus().equals(leaveSchool.getDormitoryStatus()) 
+                && !"待审核".equals(leaveSchool.getDormitoryStatus())) {
+                notificationHelper.notifyLeaveSchoolReview(
+                    leaveSchool.getStuId(),
+                    "宿管审核",
+                    leaveSchool.getDormitoryStatus(),
+                    "宿管处",
+                    leaveSchool.getDormitoryReviewerId()
+                );
+            }
+            // 图书馆审核状态变更
+            if (!oldLeave.getLibraryStatus().equals(leaveSchool.getLibraryStatus()) 
+                && !"待审核".equals(leaveSchool.getLibraryStatus())) {
+                notificationHelper.notifyLeaveSchoolReview(
+                    leaveSchool.getStuId(),
+                    "图书馆审核",
+                    leaveSchool.getLibraryStatus(),
+                    "图书馆",
+                    leaveSchool.getLibraryReviewerId()
+                );
+            }
+            // 财务处审核状态变更
+            if (!oldLeave.getFinanceStatus().equals(leaveSchool.getFinanceStatus()) 
+                && !"待审核".equals(leaveSchool.getFinanceStatus())) {
+                notificationHelper.notifyLeaveSchoolReview(
+                    leaveSchool.getStuId(),
+                    "财务处审核",
+                    leaveSchool.getFinanceStatus(),
+                    "财务处",
+                    leaveSchool.getFinanceReviewerId()
+                );
+            }
+            // 教务处审核状态变更
+            if (!oldLeave.getAdminStatus().equals(leaveSchool.getAdminStatus()) 
+                && !"待审核".equals(leaveSchool.getAdminStatus())) {
+                notificationHelper.notifyLeaveSchoolReview(
+                    leaveSchool.getStuId(),
+                    "教务处审核",
+                    leaveSchool.getAdminStatus(),
+                    "教务处",
+                    leaveSchool.getAdminId()
+                );
+            }
+            // 整体状态变更
+            if (!oldLeave.getOverallStatus().equals(leaveSchool.getOverallStatus()) 
+                && !"审核中".equals(leaveSchool.getOverallStatus())) {
+                notificationHelper.notifyLeaveSchoolFinalReview(
+                    leaveSchool.getStuId(),
+                    leaveSchool.getOverallStatus()
+                );
+            }
+        }
+        return result;
+    }
 }
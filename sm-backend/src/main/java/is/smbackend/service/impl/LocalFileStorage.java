@@ -0,0 +1,175 @@
+package is.smbackend.service.impl;
+
+import is.smbackend.service.FileStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+
+/**
+ * 本地目录存储（file.upload-dir），源文件直接移动到目标位置；存储内复制使用硬链接，遍历使用 ForkJoin 按目录并行
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalFileStorage implements FileStorage {
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Override
+    public FileStat stat(String key) throws IOException {
+        Path file = localPath(key);
+        if (!Files.isReadable(file)) {
+            return null;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return new FileStat(attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    @Override
+    public ReadableByteChannel open(String key) throws IOException {
+        return FileChannel.open(localPath(key), StandardOpenOption.READ);
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, Path source) throws IOException {
+        Path target = localPath(key);
+        if (Files.exists(target)) {
+            return false;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target);
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        Path target = localPath(key);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public boolean copyIfAbsent(String source, String target) throws IOException {
+        Path from = localPath(source);
+        Path to = localPath(target);
+        if (Files.exists(to)) {
+            return false;
+        }
+        Files.createDirectories(to.getParent());
+        try {
+            // 同一文件系统内建硬链接，不复制数据；随后删除原路径即相当于移动
+            Files.createLink(to, from);
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (UnsupportedOperationException | IOException e) {
+            if (Files.exists(to)) {
+                return false;
+            }
+            Path temp = to.resolveSibling(to.getFileName() + ".copying");
+            Files.copy(from, temp, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.move(temp, to, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException moveError) {
+                Files.move(temp, to);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(localPath(key));
+    }
+
+    @Override
+    public void walk(int parallelism, BiConsumer<String, FileStat> visitor) throws IOException {
+        Path root = Paths.get(uploadDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            pool.invoke(new WalkTask(root, root, visitor));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public Path localPath(String key) {
+        return Paths.get(uploadDir).resolve(key);
+    }
+
+    /**
+     * 遍历一个目录：文件交给 visitor，子目录拆分为子任务并行遍历
+     */
+    private static final class WalkTask extends RecursiveAction {
+
+        private final Path root;
+        private final Path dir;
+        private final BiConsumer<String, FileStat> visitor;
+
+        WalkTask(Path root, Path dir, BiConsumer<String, FileStat> visitor) {
+            this.root = root;
+            this.dir = dir;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected void compute() {
+            List<WalkTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        subtasks.add(new WalkTask(root, entry, visitor));
+                    } else if (attributes.isRegularFile()) {
+                        String key = root.relativize(entry).toString().replace(File.separatorChar, '/');
+                        visitor.accept(key, new FileStat(attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // 遍历期间目录被删除
+                return;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(subtasks);
+        }
+    }
+}
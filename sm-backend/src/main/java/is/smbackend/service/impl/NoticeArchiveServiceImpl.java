@@ -0,0 +1,30 @@
+package is.smbackend.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import is.smbackend.mapper.NoticeArchiveMapper;
+import is.smbackend.pojo.NoticeArchive;
+import is.smbackend.service.NoticeArchiveService;
+import is.smbackend.service.NoticeService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@Service
+public class NoticeArchiveServiceImpl extends ServiceImpl<NoticeArchiveMapper, NoticeArchive> implements NoticeArchiveService {
+
+    @Autowired
+    private NoticeService noticeService;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public int archive(Collection<String> noticeIds) {
+        if (noticeIds.isEmpty()) {
+            return 0;
+        }
+        baseMapper.copyFromNotice(noticeIds, LocalDateTime.now());
+        return noticeService.deleteReadByIds(noticeIds);
+    }
+}
@@ -0,0 +1,21 @@
+package is.smbackend.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import is.smbackend.mapper.NoticeBroadcastMapper;
+import is.smbackend.pojo.NoticeBroadcast;
+import is.smbackend.service.NoticeBroadcastService;
+import org.springframework.stereotype.Service;
+
+@Service
+public class NoticeBroadcastServiceImpl extends ServiceImpl<NoticeBroadcastMapper, NoticeBroadcast> implements NoticeBroadcastService {
+
+    @Override
+    public byte[] lockReadBitmap(String broadcastId) {
+        return baseMapper.lockReadBitmap(broadcastId);
+    }
+
+    @Override
+    public int updateReadBitmap(String broadcastId, byte[] readBitmap) {
+        return baseMapper.updateReadBitmap(broadcastId, readBitmap);
+    }
+}
@@ -0,0 +1,30 @@
+package is.smbackend.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import is.smbackend.mapper.NoticeOutboxMapper;
+import is.smbackend.pojo.NoticeOutbox;
+import is.smbackend.service.NoticeOutboxService;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Service
+public class NoticeOutboxServiceImpl extends ServiceImpl<NoticeOutboxMapper, NoticeOutbox> implements NoticeOutboxService {
+
+    @Override
+    public List<NoticeOutbox> lockBatch(LocalDateTime readyBefore, int limit) {
+        return baseMapper.lockBatch(readyBefore, LocalDateTime.now(), limit);
+    }
+
+    @Override
+    public List<NoticeOutbox> lockByBizKeys(Collection<String> bizKeys) {
+        return baseMapper.lockByBizKeys(bizKeys);
+    }
+
+    @Override
+    public NoticeOutbox lockOne(Long outboxId) {
+        return baseMapper.lockOne(outboxId, LocalDateTime.now());
+    }
+}
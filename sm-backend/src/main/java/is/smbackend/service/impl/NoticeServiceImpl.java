@@ -6,6 +6,54 @@ import is.smbackend.pojo.Notice;
 import is.smbackend.service.NoticeService;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service
 public class NoticeServiceImpl extends ServiceImpl<NoticeMapper, Notice> implements NoticeService {
+
+    @Override
+    public Map<String, Long> countUnreadByUsers(Collection<String> userIds) {
+        Map<String, Long> counts = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return counts;
+        }
+        for (Map<String, Object> row : baseMapper.countUnreadByUsers(userIds)) {
+            counts.put((String) row.get("userId"), ((Number) row.get("unread")).longValue());
+        }
+        return counts;
+    }
+
+    @Override
+    public int markAllRead(String userId, LocalDateTime readTime) {
+        return baseMapper.markAllRead(userId, readTime);
+    }
+
+    @Override
+    public int markReadByIds(String userId, Collection<String> noticeIds, LocalDateTime readTime) {
+        return noticeIds.isEmpty() ? 0 : baseMapper.markReadByIds(userId, noticeIds, readTime);
+    }
+
+    @Override
+    public int deleteByIds(String userId, Collection<String> noticeIds) {
+        return noticeIds.isEmpty() ? 0 : baseMapper.deleteByIds(userId, noticeIds);
+    }
+
+    @Override
+    public int deleteReadByIds(Collection<String> noticeIds) {
+        return noticeIds.isEmpty() ? 0 : baseMapper.deleteReadByIds(noticeIds);
+    }
+
+    @Override
+    public List<String> selectReadIdsBefore(LocalDateTime before, String afterId, int limit) {
+        return baseMapper.selectReadIdsBefore(before, afterId, limit);
+    }
+
+    @Override
+    public int deleteReadBefore(LocalDateTime before) {
+        return baseMapper.deleteReadBefore(before);
+    }
 }
@@ -0,0 +1,16 @@
+package is.smbackend.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import is.smbackend.mapper.NoticeUserIndexMapper;
+import is.smbackend.pojo.NoticeUserIndex;
+import is.smbackend.service.NoticeUserIndexService;
+import org.springframework.stereotype.Service;
+
+@Service
+public class NoticeUserIndexServiceImpl extends ServiceImpl<NoticeUserIndexMapper, NoticeUserIndex> implements NoticeUserIndexService {
+
+    @Override
+    public int insertIgnore(String userType, String userId) {
+        return baseMapper.insertIgnore(userType, userId);
+    }
+}
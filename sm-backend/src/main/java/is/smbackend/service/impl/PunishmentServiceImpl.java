@@ -3,9 +3,44 @@ package is.smbackend.service.impl;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import is.smbackend.mapper.PunishmentMapper;
 import is.smbackend.pojo.Punishment;
+import is.smbackend.service.NotificationHelper;
 import is.smbackend.service.PunishmentService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class PunishmentServiceImpl extends ServiceImpl<PunishmentMapper, Punishment> implements PunishmentService {
+
+    @Autowired
+    private NotificationHelper notificationHelper;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateWithNotice(Punishment punishment) {
+        // 获取原记录以比较状态变化
+        Punishment oldPunishment = getById(punishment.getPunishmentId());
+        boolean result = updateById(punishment);
+        
+        // 状态变更时发送通知
+        if (result && oldPunishment != null) {
+            notificationHelper.bindRecord("punishment", punishment.getPunishmentId());
+            String oldStatus = oldPunishment.getPunishmentStatus();
+            String newStatus = punishment.getPunishmentStatus();
+            
+            if (!oldStatus.equals(newStatus)) {
+                // 处分生效或撤销时通知学生
+                if ("已生效".equals(newStatus) || "已撤销".equals(newStatus)) {
+                    notificationHelper.notifyPunishment(
+                        punishment.getStuId(),
+                        punishment.getPunishmentType(),
+                        newStatus,
+                        "教务处",
+                        null
+                    );
+                }
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,292 @@
+package is.smbackend.service.impl;
+
+import is.smbackend.service.FileStorage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * S3 兼容对象存储（AWS S3、MinIO 等），多个后端节点共用同一个存储桶
+ * <p>
+ * 大文件按分片大小分段上传（Multipart Upload），每段直接从本地文件的对应区间流式读取，重试时重新打开；
+ * 下载返回预签名地址，由客户端直接从对象存储获取，文件内容不经过应用服务器。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "file.storage.type", havingValue = "s3")
+public class S3FileStorage implements FileStorage {
+
+    // 自建 MinIO 等服务的地址，为空时使用 AWS 官方地址
+    @Value("${file.storage.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${file.storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${file.storage.s3.bucket:}")
+    private String bucket;
+
+    // 为空时使用默认凭证链（环境变量、实例角色等）
+    @Value("${file.storage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${file.storage.s3.secret-key:}")
+    private String secretKey;
+
+    // MinIO 需使用路径形式访问（http://host/bucket/key）
+    @Value("${file.storage.s3.path-style-access:true}")
+    private boolean pathStyleAccess;
+
+    // 不小于该大小（字节）的文件使用分段上传
+    @Value("${file.storage.s3.multipart-threshold:16777216}")
+    private long multipartThreshold;
+
+    // 分段大小（字节），S3 要求除最后一段外不小于 5MB
+    @Value("${file.storage.s3.part-size:8388608}")
+    private long partSize;
+
+    // 预签名下载地址有效期（秒）
+    @Value("${file.storage.s3.presign-expiry:300}")
+    private long presignExpiry;
+
+    private S3Client client;
+
+    private S3Presigner presigner;
+
+    @PostConstruct
+    public void init() {
+        if (bucket.isBlank()) {
+            throw new IllegalStateException("file.storage.type=s3 时必须配置 file.storage.s3.bucket");
+        }
+        AwsCredentialsProvider credentials = accessKey.isBlank()
+                ? DefaultCredentialsProvider.create()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        // 附件已按 SHA-256 寻址，不再使用 AWS 专有的 MD5 尾部校验（x-amz-te），兼容更多 S3 实现
+        S3Configuration configuration = S3Configuration.builder()
+                .pathStyleAccessEnabled(pathStyleAccess)
+                .checksumValidationEnabled(false)
+                .build();
+        var clientBuilder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(configuration);
+        var presignerBuilder = S3Presigner.builder()
+                .region(Region.of(region))
+                .credentialsProvider(credentials)
+                .serviceConfiguration(configuration);
+        if (!endpoint.isBlank()) {
+            clientBuilder.endpointOverride(URI.create(endpoint));
+            presignerBuilder.endpointOverride(URI.create(endpoint));
+        }
+        client = clientBuilder.build();
+        presigner = presignerBuilder.build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        client.close();
+        presigner.close();
+    }
+
+    @Override
+    public FileStat stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = client.headObject(b -> b.bucket(bucket).key(key));
+            return new FileStat(head.contentLength(), head.lastModified().toEpochMilli());
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            throw new IOException("读取对象信息失败：" + key, e);
+        }
+    }
+
+    @Override
+    public ReadableByteChannel open(String key) throws IOException {
+        try {
+            return Channels.newChannel(client.getObject(b -> b.bucket(bucket).key(key)));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new NoSuchFileException(key);
+            }
+            throw new IOException("读取对象失败：" + key, e);
+        }
+    }
+
+    @Override
+    public boolean putIfAbsent(String key, Path source) throws IOException {
+        // 调用方持有该哈希的跨节点锁，检查和写入之间不会有其他节点删除同一对象
+        if (stat(key) != null) {
+            return false;
+        }
+        put(key, source);
+        return true;
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        long size = Files.size(source);
+        try {
+            if (size < multipartThreshold) {
+                client.putObject(b -> b.bucket(bucket).key(key), RequestBody.fromFile(source));
+            } else {
+                putMultipart(key, source, size);
+            }
+        } catch (S3Exception e) {
+            throw new IOException("上传对象失败：" + key, e);
+        }
+    }
+
+    private void putMultipart(String key, Path source, long size) throws IOException {
+        String uploadId = client.createMultipartUpload(b -> b.bucket(bucket).key(key)).uploadId();
+        try {
+            List<CompletedPart> parts = new ArrayList<>();
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                long start = offset;
+                long length = Math.min(partSize, size - offset);
+                int number = partNumber;
+                String etag = client.uploadPart(b -> b.bucket(bucket).key(key).uploadId(uploadId)
+                                .partNumber(number).contentLength(length),
+                        RequestBody.fromContentProvider(() -> slice(source, start, length), length,
+                                "application/octet-stream")).eTag();
+                parts.add(CompletedPart.builder().partNumber(number).eTag(etag).build());
+            }
+            client.completeMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build()));
+        } catch (RuntimeException e) {
+            try {
+                client.abortMultipartUpload(b -> b.bucket(bucket).key(key).uploadId(uploadId));
+            } catch (RuntimeException abortError) {
+                log.warn("取消分段上传 {} 失败", uploadId, abortError);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean copyIfAbsent(String source, String target) throws IOException {
+        if (stat(target) != null) {
+            return false;
+        }
+        try {
+            // 服务端复制，单次最大 5GB，附件远小于此
+            client.copyObject(b -> b.sourceBucket(bucket).sourceKey(source)
+                    .destinationBucket(bucket).destinationKey(target));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                throw new NoSuchFileException(source);
+            }
+            throw new IOException("复制对象失败：" + source, e);
+        }
+        return true;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            client.deleteObject(b -> b.bucket(bucket).key(key));
+        } catch (S3Exception e) {
+            throw new IOException("删除对象失败：" + key, e);
+        }
+    }
+
+    @Override
+    public void walk(int parallelism, BiConsumer<String, FileStat> visitor) throws IOException {
+        try {
+            // 列表接口按页顺序返回，无法并行
+            client.listObjectsV2Paginator(b -> b.bucket(bucket)).contents()
+                    .forEach(o -> visitor.accept(o.key(), new FileStat(o.size(), o.lastModified().toEpochMilli())));
+        } catch (S3Exception e) {
+            throw new IOException("列出对象失败", e);
+        }
+    }
+
+    @Override
+    public URI presignDownload(String key, String contentType, String contentDisposition) {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .responseContentType(contentType)
+                .responseContentDisposition(contentDisposition)
+                .build();
+        try {
+            return presigner.presignGetObject(b -> b.signatureDuration(Duration.ofSeconds(presignExpiry))
+                    .getObjectRequest(request)).url().toURI();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 本地文件 [offset, offset + length) 区间的输入流
+     */
+    private static InputStream slice(Path source, long offset, long length) {
+        try {
+            InputStream in = Files.newInputStream(source);
+            in.skipNBytes(offset);
+            return new FilterInputStream(in) {
+                private long remaining = length;
+
+                @Override
+                public int read() throws IOException {
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    int b = super.read();
+                    if (b >= 0) {
+                        remaining--;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int off, int len) throws IOException {
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    int read = super.read(buffer, off, (int) Math.min(len, remaining));
+                    if (read > 0) {
+                        remaining -= read;
+                    }
+                    return read;
+                }
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -3,9 +3,60 @@ package is.smbackend.service.impl;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import is.smbackend.mapper.StatusChangeMapper;
 import is.smbackend.pojo.StatusChange;
+import is.smbackend.service.NotificationHelper;
 import is.smbackend.service.StatusChangeService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class StatusChangeServiceImpl extends ServiceImpl<StatusChangeMapper, StatusChange> implements StatusChangeService {
+
+    @Autowired
+    private NotificationHelper notificationHelper;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateWithNotice(StatusChange statusChange) {
+        // 获取原记录以比较状态变化
+        StatusChange oldChange = getById(statusChange.getChangeId());
+        boolean result = updateById(statusChange);
+        
+        // 状态变更时发送通知
+        if (result && oldChange != null) {
+            notificationHelper.bindRecord("statusChange", statusChange.getChangeId());
+            // 辅导员审核状态变更
+            if (!oldChange.getAdvisorStatus().equals(statusChange.getAdvisorStatus()) 
+                && !"待审核".equals(statusChange.getAdvisorStatus())) {
+                notificationHelper.notifyStatusChangeReview(
+                    statusChange.getStuId(),
+                    statusChange.getChangeType(),
+                    statusChange.getAdvisorStatus(),
+                    "辅导员",
+                    statusChange.getAdvisorId()
+                );
+            }
+            // 教务审核状态变更
+            if (!oldChange.getAdminStatus().equals(statusChange.getAdminStatus()) 
+                && !"待审核".equals(statusChange.getAdminStatus())) {
+                notificationHelper.notifyStatusChangeReview(
+                    statusChange.getStuId(),
+                    statusChange.getChangeType(),
+                    statusChange.getAdminStatus(),
+                    "教务处",
+                    statusChange.getAdminId()
+                );
+            }
+            // 最终状态变更
+            if (!oldChange.getApplyStatus().equals(statusChange.getApplyStatus()) 
+                && !"审核中".equals(statusChange.getApplyStatus())) {
+                notificationHelper.notifyStatusChangeFinalReview(
+                    statusChange.getStuId(),
+                    statusChange.getChangeType(),
+                    statusChange.getApplyStatus()
+                );
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,11 @@
+package is.smbackend.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import is.smbackend.mapper.TokenRevocationMapper;
+import is.smbackend.pojo.TokenRevocation;
+import is.smbackend.service.TokenRevocationService;
+import org.springframework.stereotype.Service;
+
+@Service
+public class TokenRevocationServiceImpl extends ServiceImpl<TokenRevocationMapper, TokenRevocation> implements TokenRevocationService {
+}
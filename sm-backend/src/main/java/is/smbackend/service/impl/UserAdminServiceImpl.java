@@ -6,6 +6,14 @@ import is.smbackend.pojo.UserAdmin;
 import is.smbackend.service.UserAdminService;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+
 @Service
 public class UserAdminServiceImpl extends ServiceImpl<UserAdminMapper, UserAdmin> implements UserAdminService {
+
+    @Override
+    public int batchUpdateLastLoginTime(Map<String, LocalDateTime> times) {
+        return baseMapper.batchUpdateLastLoginTime(times);
+    }
 }
@@ -6,6 +6,14 @@ import is.smbackend.pojo.UserAdvisor;
 import is.smbackend.service.UserAdvisorService;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+
 @Service
 public class UserAdvisorServiceImpl extends ServiceImpl<UserAdvisorMapper, UserAdvisor> implements UserAdvisorService {
+
+    @Override
+    public int batchUpdateLastLoginTime(Map<String, LocalDateTime> times) {
+        return baseMapper.batchUpdateLastLoginTime(times);
+    }
 }
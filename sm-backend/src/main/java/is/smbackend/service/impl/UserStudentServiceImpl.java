@@ -6,6 +6,14 @@ import is.smbackend.pojo.UserStudent;
 import is.smbackend.service.UserStudentService;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.Map;
+
 @Service
 public class UserStudentServiceImpl extends ServiceImpl<UserStudentMapper, UserStudent> implements UserStudentService {
+
+    @Override
+    public int batchUpdateLastLoginTime(Map<String, LocalDateTime> times) {
+        return baseMapper.batchUpdateLastLoginTime(times);
+    }
 }
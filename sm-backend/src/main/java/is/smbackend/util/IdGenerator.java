@@ -0,0 +1,128 @@
+package is.smbackend.util;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分布式ID生成器（Snowflake 变体）
+ * <p>
+ * 56 位数值：41 位毫秒时间戳（自 2000-01-01 起，可用到 2069 年）+ 5 位节点号 + 10 位毫秒内序号，
+ * 不超过 17 位十进制数，补零到固定宽度后字符串顺序与生成顺序一致。
+ * 时间戳和序号打包在一个 AtomicLong 中通过 CAS 推进，无锁；同一毫秒序号用尽或时钟回拨时
+ * 继续沿用上一个时间戳递增，保证单调不重复。
+ * <p>
+ * 纪元取 2000 年，使新ID的数值大于旧格式（yyyyMMddHHmmss + 序号）的ID，排序不会错乱。
+ */
+@Component
+public class IdGenerator {
+
+    private static final long EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0).toInstant(ZoneOffset.ofHours(8)).toEpochMilli();
+    private static final int NODE_BITS = 5;
+    private static final int SEQUENCE_BITS = 10;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // 多节点部署时每个节点必须配置不同的节点号（0-31）
+    @Value("${id.node-id:0}")
+    private long nodeId;
+
+    // 高位为毫秒时间戳，低 10 位为序号
+    private final AtomicLong state = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("id.node-id 必须在 0-" + MAX_NODE_ID + " 之间");
+        }
+    }
+
+    /**
+     * 本节点的节点号
+     */
+    public int getNodeId() {
+        return (int) nodeId;
+    }
+
+    /**
+     * 生成数值ID
+     */
+    public long nextId() {
+        while (true) {
+            long last = state.get();
+            long now = System.currentTimeMillis() - EPOCH;
+            // 进入新的毫秒时序号归零；否则在上一个值上加一（序号溢出时进位到时间戳）
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                        | (nodeId << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 通知ID：N + 17 位数字
+     */
+    public String nextNoticeId() {
+        return next("N", 17);
+    }
+
+    /**
+     * 广播通知ID：B + 17 位数字
+     */
+    public String nextBroadcastId() {
+        return next("B", 17);
+    }
+
+    /**
+     * 附件ID：ATT + 17 位数字
+     */
+    public String nextAttachmentId() {
+        return next("ATT", 17);
+    }
+
+    /**
+     * 分片上传任务ID：UPL + 17 位数字
+     */
+    public String nextUploadId() {
+        return next("UPL", 17);
+    }
+
+    /**
+     * 日志ID：LOG9 + 19 位数字（共 20 位数字；旧格式为 LOG + yyyyMMddHHmmss + 6 位十六进制，
+     * 首位固定为 9 才能排在旧ID之后，补零则会排在前面）
+     */
+    public String nextLogId() {
+        return next("LOG9", 19);
+    }
+
+    /**
+     * 指定时间（毫秒）生成的最小通知ID，用于按生成时间范围查询
+     */
+    public String noticeIdAt(long epochMillis) {
+        return format("N", 17, Math.max(0, epochMillis - EPOCH) << (NODE_BITS + SEQUENCE_BITS));
+    }
+
+    /**
+     * 前缀 + 补零到固定位数的十进制ID
+     */
+    private String next(String prefix, int digits) {
+        return format(prefix, digits, nextId());
+    }
+
+    private static String format(String prefix, int digits, long id) {
+        int length = prefix.length() + digits;
+        char[] chars = new char[length];
+        prefix.getChars(0, prefix.length(), chars, 0);
+        for (int i = length - 1; i >= prefix.length(); i--) {
+            chars[i] = (char) ('0' + id % 10);
+            id /= 10;
+        }
+        return new String(chars);
+    }
+}
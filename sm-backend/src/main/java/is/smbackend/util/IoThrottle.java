@@ -0,0 +1,51 @@
+package is.smbackend.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台任务的 I/O 限速：按处理的文件数和字节数计算下一次允许开始的时间，调用方在此之前等待
+ * <p>
+ * 多个线程共用时整体速率不超过限制；限制为 0 表示不限。
+ */
+public class IoThrottle {
+
+    private final long nanosPerFile;
+    private final long bytesPerSecond;
+    private long nextAt = System.nanoTime();
+
+    /**
+     * @param filesPerSecond 每秒最多处理的文件数
+     * @param bytesPerSecond 每秒最多读写的字节数
+     */
+    public IoThrottle(long filesPerSecond, long bytesPerSecond) {
+        this.nanosPerFile = filesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / filesPerSecond : 0;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * 为处理一个 bytes 字节的文件排队等待
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        acquire(1, bytes);
+    }
+
+    /**
+     * 为处理 files 个文件、共 bytes 字节排队等待
+     */
+    public void acquire(long files, long bytes) throws InterruptedException {
+        long cost = Math.max(nanosPerFile * files,
+                bytesPerSecond > 0 ? (long) (bytes * 1e9 / bytesPerSecond) : 0);
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (nextAt < now) {
+                nextAt = now;
+            }
+            wait = nextAt - now;
+            nextAt += cost;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package is.smbackend.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Set;
+
+/**
+ * IP 工具类
+ */
+public class IpUtil {
+
+    private IpUtil() {
+    }
+
+    /**
+     * 获取客户端真实IP（仅用于日志展示，代理头可被客户端伪造，不能作为限流等安全判断的依据）
+     */
+    public static String getClientIp(HttpServletRequest request) {
+        String ip = request.getHeader("X-Forwarded-For");
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getHeader("Proxy-Client-IP");
+        }
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getHeader("WL-Proxy-Client-IP");
+        }
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getHeader("HTTP_CLIENT_IP");
+        }
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getHeader("HTTP_X_FORWARDED_FOR");
+        }
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getHeader("X-Real-IP");
+        }
+        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
+            ip = request.getRemoteAddr();
+            if ("0:0:0:0:0:0:0:1".equals(ip)) {
+                ip = "127.0.0.1";
+            }
+        }
+        // 多个代理时，取第一个IP
+        if (ip != null && ip.contains(",")) {
+            ip = ip.split(",")[0].trim();
+        }
+        return ip;
+    }
+
+    /**
+     * 获取不可伪造的客户端IP - 仅当直连地址是受信任的反向代理时才采信代理头：
+     * 优先取 X-Real-IP（Nginx 按 $remote_addr 设置），其次取 X-Forwarded-For 最右侧一跳（最后一级代理追加的地址），
+     * 其余情况一律使用直连地址
+     */
+    public static String getTrustedClientIp(HttpServletRequest request, Set<String> trustedProxies) {
+        String remoteAddr = request.getRemoteAddr();
+        if (remoteAddr == null || !trustedProxies.contains(remoteAddr)) {
+            return remoteAddr;
+        }
+        String ip = request.getHeader("X-Real-IP");
+        if (ip != null && !ip.isBlank()) {
+            return ip.trim();
+        }
+        ip = request.getHeader("X-Forwarded-For");
+        if (ip != null && !ip.isBlank()) {
+            ip = ip.substring(ip.lastIndexOf(',') + 1).trim();
+            if (!ip.isEmpty()) {
+                return ip;
+            }
+        }
+        return remoteAddr;
+    }
+}
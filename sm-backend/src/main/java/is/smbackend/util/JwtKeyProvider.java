@@ -0,0 +1,164 @@
+package is.smbackend.util;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import is.smbackend.config.JwtProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.Key;
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JWT 密钥提供者 - 管理签名密钥与轮换期间的多把验证密钥
+ * <p>
+ * 密钥来源：application.yml 中的内联密钥 + 本地密钥库文件（别名即 kid）。
+ * 多节点部署时各节点加载同一份密钥即可互相校验 Token。
+ * 轮换步骤：先把新密钥加入所有节点作为验证密钥，再切换 active-kid，旧 Token 过期后移除旧密钥。
+ */
+@Slf4j
+@Component
+public class JwtKeyProvider {
+
+    // 未配置任何密钥时使用的临时 kid（仅适用于单机开发环境）
+    private static final String EPHEMERAL_KID = "ephemeral";
+
+    @Autowired
+    private JwtProperties properties;
+
+    private volatile KeyRing keyRing;
+
+    // 已加载密钥库文件的修改时间，用于检测变更
+    private volatile long keystoreModified = -1;
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    /**
+     * 当前签名密钥ID
+     */
+    public String getActiveKid() {
+        return keyRing.activeKid;
+    }
+
+    /**
+     * 当前签名密钥
+     */
+    public SecretKey getSigningKey() {
+        return keyRing.keys.get(keyRing.activeKid);
+    }
+
+    /**
+     * 根据 kid 获取验证密钥，kid 为空时（旧版 Token）使用当前签名密钥
+     */
+    public SecretKey getVerificationKey(String kid) {
+        KeyRing ring = keyRing;
+        if (kid == null || kid.isEmpty()) {
+            return ring.keys.get(ring.activeKid);
+        }
+        return ring.keys.get(kid);
+    }
+
+    /**
+     * 定时检查密钥库文件是否变更，变更后重新加载
+     */
+    @Scheduled(fixedDelayString = "${jwt.reload-interval:60000}", initialDelayString = "${jwt.reload-interval:60000}")
+    public void reloadIfChanged() {
+        Path path = keystorePath();
+        if (path == null) {
+            return;
+        }
+        try {
+            if (Files.exists(path) && Files.getLastModifiedTime(path).toMillis() != keystoreModified) {
+                reload();
+            }
+        } catch (Exception e) {
+            // 加载失败时保留旧密钥，避免误拒所有 Token
+            log.error("JWT 密钥库重新加载失败，继续使用旧密钥", e);
+        }
+    }
+
+    /**
+     * 重新加载全部密钥
+     */
+    public synchronized void reload() {
+        Map<String, SecretKey> keys = new LinkedHashMap<>();
+
+        properties.getKeys().forEach((kid, secret) -> keys.put(kid, Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret))));
+
+        Path path = keystorePath();
+        if (path != null) {
+            keys.putAll(loadKeystore(path));
+        }
+
+        String activeKid = properties.getActiveKid();
+        if (keys.isEmpty()) {
+            log.warn("未配置 JWT 签名密钥，使用进程内随机密钥：重启后 Token 失效，且多节点之间无法互认");
+            keys.put(EPHEMERAL_KID, Keys.secretKeyFor(SignatureAlgorithm.HS256));
+            activeKid = EPHEMERAL_KID;
+        } else if (activeKid == null || activeKid.isEmpty()) {
+            if (keys.size() > 1) {
+                throw new IllegalStateException("配置了多个 JWT 密钥时必须指定 jwt.active-kid");
+            }
+            activeKid = keys.keySet().iterator().next();
+        } else if (!keys.containsKey(activeKid)) {
+            throw new IllegalStateException("jwt.active-kid 对应的密钥不存在：" + activeKid);
+        }
+
+        this.keyRing = new KeyRing(activeKid, Collections.unmodifiableMap(keys));
+        log.info("JWT 密钥加载完成，签名 kid={}，验证 kid={}", activeKid, keys.keySet());
+    }
+
+    private Path keystorePath() {
+        String path = properties.getKeystore().getPath();
+        return path == null || path.isEmpty() ? null : Paths.get(path);
+    }
+
+    /**
+     * 从本地密钥库读取所有对称密钥条目，别名作为 kid
+     */
+    private Map<String, SecretKey> loadKeystore(Path path) {
+        JwtProperties.Keystore config = properties.getKeystore();
+        char[] password = config.getPassword() == null ? new char[0] : config.getPassword().toCharArray();
+        Map<String, SecretKey> keys = new LinkedHashMap<>();
+        try (InputStream in = Files.newInputStream(path)) {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            KeyStore keyStore = KeyStore.getInstance(config.getType());
+            keyStore.load(in, password);
+            Enumeration<String> aliases = keyStore.aliases();
+            while (aliases.hasMoreElements()) {
+                String alias = aliases.nextElement();
+                if (!keyStore.isKeyEntry(alias)) {
+                    continue;
+                }
+                Key key = keyStore.getKey(alias, password);
+                if (key instanceof SecretKey) {
+                    // 统一转为 HMAC 密钥并校验长度
+                    keys.put(alias, Keys.hmacShaKeyFor(key.getEncoded()));
+                }
+            }
+            keystoreModified = modified;
+        } catch (Exception e) {
+            throw new IllegalStateException("读取 JWT 密钥库失败：" + path, e);
+        }
+        return keys;
+    }
+
+    private record KeyRing(String activeKid, Map<String, SecretKey> keys) {
+    }
+}
@@ -1,15 +1,21 @@
 package is.smbackend.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * JWT 工具类
@@ -17,15 +23,37 @@ import java.util.Map;
 @Component
 public class JwtUtil {
 
-    // 密钥（生产环境应从配置文件读取）
-    private static final SecretKey SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    @Autowired
+    private JwtKeyProvider keyProvider;
+
+    // 按 JWT 头部 kid 选择验证密钥，支持轮换期间多把密钥并存
+    private JwtParser parser;
     
     // Token 有效期：2小时
-    private static final long EXPIRATION = 2 * 60 * 60 * 1000;
+    public static final long EXPIRATION = 2 * 60 * 60 * 1000;
     
     // Token 刷新阈值：30分钟内即将过期时可刷新
     private static final long REFRESH_THRESHOLD = 30 * 60 * 1000;
 
+    // 毫秒精度的签发时间（标准 iat 只精确到秒）
+    private static final String ISSUED_AT_MILLIS = "iatMillis";
+
+    @PostConstruct
+    public void init() {
+        parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        SecretKey key = keyProvider.getVerificationKey(header.getKeyId());
+                        if (key == null) {
+                            throw new SignatureException("未知的签名密钥：" + header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+
     /**
      * 生成 Token
      */
@@ -34,13 +62,17 @@ public class JwtUtil {
         claims.put("userId", userId);
         claims.put("userName", userName);
         claims.put("userType", userType);
+        long now = System.currentTimeMillis();
+        claims.put(ISSUED_AT_MILLIS, now);
 
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, keyProvider.getActiveKid())
                 .setClaims(claims)
                 .setSubject(userId)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION))
-                .signWith(SECRET_KEY)
+                .setId(UUID.randomUUID().toString())
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + EXPIRATION))
+                .signWith(keyProvider.getSigningKey())
                 .compact();
     }
 
@@ -48,11 +80,7 @@ public class JwtUtil {
      * 解析 Token
      */
     public Claims parseToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     /**
@@ -88,32 +116,55 @@ public class JwtUtil {
         return parseToken(token).get("userType", String.class);
     }
 
+    /**
+     * Token 签发时间（毫秒）；没有毫秒签发时间的旧 Token 取 iat
+     */
+    public static long getIssuedAtMillis(Claims claims) {
+        Long issuedAt = claims.get(ISSUED_AT_MILLIS, Long.class);
+        if (issuedAt != null) {
+            return issuedAt;
+        }
+        return claims.getIssuedAt() != null ? claims.getIssuedAt().getTime() : Long.MIN_VALUE;
+    }
+
     /**
      * 检查 Token 是否需要刷新（即将过期）
      */
     public boolean needRefresh(String token) {
         try {
-            Claims claims = parseToken(token);
-            Date expiration = claims.getExpiration();
-            // 如果距离过期时间小于刷新阈值，则需要刷新
-            return expiration.getTime() - System.currentTimeMillis() < REFRESH_THRESHOLD;
+            return needRefresh(parseToken(token));
         } catch (Exception e) {
             return false;
         }
     }
 
+    /**
+     * 检查已解析的 Token 是否需要刷新
+     */
+    public boolean needRefresh(Claims claims) {
+        Date expiration = claims.getExpiration();
+        // 如果距离过期时间小于刷新阈值，则需要刷新
+        return expiration.getTime() - System.currentTimeMillis() < REFRESH_THRESHOLD;
+    }
+
     /**
      * 刷新 Token
      */
     public String refreshToken(String token) {
         try {
-            Claims claims = parseToken(token);
-            String userId = claims.get("userId", String.class);
-            String userName = claims.get("userName", String.class);
-            String userType = claims.get("userType", String.class);
-            return generateToken(userId, userName, userType);
+            return refreshToken(parseToken(token));
         } catch (Exception e) {
             return null;
         }
     }
+
+    /**
+     * 根据已解析的 Token 签发新 Token
+     */
+    public String refreshToken(Claims claims) {
+        String userId = claims.get("userId", String.class);
+        String userName = claims.get("userName", String.class);
+        String userType = claims.get("userType", String.class);
+        return generateToken(userId, userName, userType);
+    }
 }
@@ -0,0 +1,120 @@
+package is.smbackend.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按 key 限流的令牌桶
+ * <p>
+ * 桶按 key 哈希分散到多个 ConcurrentHashMap 分段中；每个桶的状态（上次补充时间 + 剩余令牌）
+ * 打包在一个 AtomicLong 里，通过 CAS 更新，取令牌全程无锁。长时间未访问的桶由 {@link #evictIdle} 清理。
+ */
+public class TokenBucketLimiter {
+
+    // 令牌以千分之一为单位计数，低 20 位存令牌数，高位存毫秒时间戳
+    private static final long SCALE = 1000;
+    private static final int TOKEN_BITS = 20;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+
+    private final List<ConcurrentHashMap<String, Bucket>> stripes;
+    private final long capacity;
+    private final double refillPerMilli;
+
+    /**
+     * @param capacity        桶容量（允许的突发请求数，不超过 1000）
+     * @param refillPerMinute 每分钟补充的令牌数
+     * @param stripeCount     分段数量，取 2 的幂
+     */
+    public TokenBucketLimiter(int capacity, int refillPerMinute, int stripeCount) {
+        if (capacity <= 0 || capacity * SCALE > TOKEN_MASK) {
+            throw new IllegalArgumentException("令牌桶容量必须在 1-1000 之间");
+        }
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+        this.stripes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            stripes.add(new ConcurrentHashMap<>());
+        }
+        this.capacity = capacity * SCALE;
+        this.refillPerMilli = refillPerMinute * SCALE / 60000.0;
+    }
+
+    /**
+     * 尝试获取一个令牌
+     */
+    public boolean tryAcquire(String key) {
+        long now = System.currentTimeMillis();
+        return stripe(key).computeIfAbsent(key, k -> new Bucket(capacity, now)).tryAcquire(now);
+    }
+
+    /**
+     * 清理超过指定时长未访问的桶，返回清理数量
+     */
+    public int evictIdle(long idleMillis) {
+        long threshold = System.currentTimeMillis() - idleMillis;
+        int evicted = 0;
+        for (ConcurrentHashMap<String, Bucket> stripe : stripes) {
+            int before = stripe.size();
+            stripe.values().removeIf(bucket -> bucket.lastAccess() < threshold);
+            evicted += before - stripe.size();
+        }
+        return evicted;
+    }
+
+    /**
+     * 当前桶数量
+     */
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, Bucket> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private ConcurrentHashMap<String, Bucket> stripe(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return stripes.get(h & (stripes.size() - 1));
+    }
+
+    private final class Bucket {
+        private final AtomicLong state;
+
+        Bucket(long tokens, long now) {
+            this.state = new AtomicLong(pack(now, tokens));
+        }
+
+        boolean tryAcquire(long now) {
+            while (true) {
+                long current = state.get();
+                long last = current >>> TOKEN_BITS;
+                long tokens = current & TOKEN_MASK;
+                long elapsed = Math.max(0, now - last);
+                long added = (long) (elapsed * refillPerMilli);
+                long refilled = Math.min(capacity, tokens + added);
+                // 有补充或桶已满时推进到当前时间，空闲时间只计一次；
+                // 未满且补充不足一个计数单位时保留时间戳，避免低速率下的补充被舍掉
+                long stamp = added > 0 || refilled == capacity ? Math.max(last, now) : last;
+                if (refilled < SCALE) {
+                    if (stamp != last) {
+                        state.compareAndSet(current, pack(stamp, refilled));
+                    }
+                    return false;
+                }
+                if (state.compareAndSet(current, pack(stamp, refilled - SCALE))) {
+                    return true;
+                }
+            }
+        }
+
+        long lastAccess() {
+            return state.get() >>> TOKEN_BITS;
+        }
+
+        private long pack(long time, long tokens) {
+            return (time << TOKEN_BITS) | tokens;
+        }
+    }
+}
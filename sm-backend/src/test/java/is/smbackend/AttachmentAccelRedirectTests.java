@@ -0,0 +1,92 @@
+package is.smbackend;
+
+import is.smbackend.pojo.Attachment;
+import is.smbackend.service.AttachmentService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 配置 file.download.accel-prefix 后，附件下载只返回 X-Accel-Redirect 头，文件由 Nginx 发送
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class AttachmentAccelRedirectTests {
+
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AttachmentService attachmentService;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        Path uploadDir = Files.createTempDirectory("sm-accel");
+        Files.createDirectories(uploadDir.resolve("award"));
+        Files.writeString(uploadDir.resolve("award/cert 2026.pdf"), "test", StandardCharsets.UTF_8);
+        registry.add("file.upload-dir", uploadDir::toString);
+        registry.add("file.download.accel-prefix", () -> "/protected-files/");
+    }
+
+    @Test
+    void downloadReturnsAccelRedirectHeaders() throws Exception {
+        when(attachmentService.getById("ATT00000000000000001")).thenReturn(attachment());
+
+        mockMvc.perform(get("/attachment/download/ATT00000000000000001"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Accel-Redirect", "/protected-files/award/cert%202026.pdf"))
+                .andExpect(header().string("Content-Type", "application/pdf"))
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename*=UTF-8''%E8%8E%B7%E5%A5%96%E8%AF%81%E4%B9%A6.pdf"))
+                .andExpect(header().string("ETag", "\"" + HASH + "\""))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void conditionalRequestReturnsNotModifiedWithoutRedirect() throws Exception {
+        when(attachmentService.getById("ATT00000000000000001")).thenReturn(attachment());
+
+        mockMvc.perform(get("/attachment/download/ATT00000000000000001")
+                        .header("If-None-Match", "\"" + HASH + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().doesNotExist("X-Accel-Redirect"));
+    }
+
+    @Test
+    void missingAttachmentReturnsNotFound() throws Exception {
+        mockMvc.perform(get("/attachment/download/ATT00000000000000002"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist("X-Accel-Redirect"));
+    }
+
+    private static Attachment attachment() {
+        Attachment attachment = new Attachment();
+        attachment.setAttachmentId("ATT00000000000000001");
+        attachment.setFileName("获奖证书.pdf");
+        attachment.setFilePath("award/cert 2026.pdf");
+        attachment.setFileSize(4L);
+        attachment.setFileType("application/pdf");
+        attachment.setRelatedType("award");
+        attachment.setContentHash(HASH);
+        return attachment;
+    }
+}
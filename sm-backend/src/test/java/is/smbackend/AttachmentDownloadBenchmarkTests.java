@@ -0,0 +1,141 @@
+package is.smbackend;
+
+import is.smbackend.pojo.Attachment;
+import is.smbackend.service.AttachmentService;
+import is.smbackend.util.HashUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * 附件下载基准测试：首字节延迟和吞吐量（完整下载、范围请求、条件请求）
+ * <p>
+ * 默认跳过，运行方式：mvn test -Dtest=AttachmentDownloadBenchmarkTests -Dbenchmark=true
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class AttachmentDownloadBenchmarkTests {
+
+    private static final int FILE_SIZE = 32 * 1024 * 1024;
+    private static final int ROUNDS = 20;
+    private static final int RANGE_SIZE = 64 * 1024;
+
+    private static String contentHash;
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private AttachmentService attachmentService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        Path uploadDir = Files.createTempDirectory("sm-download-bench");
+        registry.add("file.upload-dir", uploadDir::toString);
+        Path file = uploadDir.resolve("bench.pdf");
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(42).nextBytes(chunk);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (int i = 0; i < FILE_SIZE / chunk.length; i++) {
+                out.write(chunk);
+            }
+        }
+        contentHash = HashUtil.sha256(file);
+    }
+
+    @Test
+    void benchmark() throws Exception {
+        Attachment attachment = new Attachment();
+        attachment.setAttachmentId("ATT00000000000000001");
+        attachment.setFileName("bench.pdf");
+        attachment.setFilePath("bench.pdf");
+        attachment.setFileSize((long) FILE_SIZE);
+        attachment.setFileType("application/pdf");
+        attachment.setContentHash(contentHash);
+        when(attachmentService.getById(anyString())).thenReturn(attachment);
+        URI uri = URI.create("http://localhost:" + port + "/smbackend/attachment/download/" + attachment.getAttachmentId());
+
+        // 预热
+        for (int i = 0; i < 3; i++) {
+            fetch(HttpRequest.newBuilder(uri).build(), 200);
+        }
+
+        long[] firstByte = new long[ROUNDS];
+        long totalNanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long[] timing = fetch(HttpRequest.newBuilder(uri).build(), 200);
+            firstByte[i] = timing[0];
+            totalNanos += timing[1];
+        }
+        report("完整下载", firstByte, (double) FILE_SIZE * ROUNDS / totalNanos * 1e9 / (1024 * 1024));
+
+        Random random = new Random(7);
+        long[] rangeFirstByte = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = (long) random.nextInt(FILE_SIZE - RANGE_SIZE);
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Range", "bytes=" + start + "-" + (start + RANGE_SIZE - 1))
+                    .build();
+            rangeFirstByte[i] = fetch(request, 206)[0];
+        }
+        report("范围请求 64KB", rangeFirstByte, -1);
+
+        HttpResponse<Void> notModified = client.send(HttpRequest.newBuilder(uri)
+                .header("If-None-Match", "\"" + contentHash + "\"")
+                .build(), HttpResponse.BodyHandlers.discarding());
+        assertEquals(304, notModified.statusCode());
+    }
+
+    /**
+     * 返回 [首字节耗时, 总耗时]（纳秒）
+     */
+    private long[] fetch(HttpRequest request, int expectedStatus) throws Exception {
+        long begin = System.nanoTime();
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        long firstByte = 0;
+        try (InputStream in = response.body()) {
+            byte[] buffer = new byte[64 * 1024];
+            if (in.read(buffer) >= 0) {
+                firstByte = System.nanoTime() - begin;
+            }
+            while (in.read(buffer) >= 0) {
+                // 读完响应体
+            }
+        }
+        assertEquals(expectedStatus, response.statusCode());
+        return new long[]{firstByte, System.nanoTime() - begin};
+    }
+
+    private static void report(String name, long[] firstByteNanos, double throughputMbPerSecond) {
+        long[] sorted = firstByteNanos.clone();
+        Arrays.sort(sorted);
+        log.info("{}：首字节 p50 {} ms，p90 {} ms{}", name,
+                String.format("%.2f", sorted[sorted.length / 2] / 1e6),
+                String.format("%.2f", sorted[sorted.length * 9 / 10] / 1e6),
+                throughputMbPerSecond > 0 ? String.format("，吞吐量 %.1f MB/s", throughputMbPerSecond) : "");
+    }
+}
@@ -0,0 +1,176 @@
+package is.smbackend;
+
+import is.smbackend.mapper.AttachmentMapper;
+import is.smbackend.pojo.Attachment;
+import is.smbackend.service.AttachmentStorage;
+import is.smbackend.service.AttachmentThumbnailer;
+import is.smbackend.service.impl.AttachmentServiceImpl;
+import is.smbackend.service.impl.LocalFileStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 跨节点哈希锁（s3 存储）：持锁期间的记录读写复用加锁的数据库连接，并发持锁数超过连接池大小时不会耗尽连接池
+ * <p>
+ * 连接池用信号量模拟（借不到连接时按 max-wait 超时失败），记录写入按 MyBatis 的方式经 DataSourceUtils 取连接。
+ */
+class AttachmentHashLockTests {
+
+    private static final int POOL_SIZE = 2;
+    private static final int UPLOADS = 8;
+
+    @TempDir
+    Path uploadDir;
+
+    private final Semaphore pool = new Semaphore(POOL_SIZE);
+    private final AtomicInteger borrowed = new AtomicInteger();
+    private final AtomicInteger maxBorrowed = new AtomicInteger();
+    // 内容哈希 -> 写入该记录时使用的连接
+    private final Map<String, Connection> insertConnections = new ConcurrentHashMap<>();
+
+    private DataSource dataSource;
+    private AttachmentStorage storage;
+    private AttachmentServiceImpl attachmentService;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenAnswer(invocation -> borrow());
+
+        LocalFileStorage fileStorage = new LocalFileStorage();
+        ReflectionTestUtils.setField(fileStorage, "uploadDir", uploadDir.toString());
+        storage = new AttachmentStorage();
+        ReflectionTestUtils.setField(storage, "fileStorage", fileStorage);
+        ReflectionTestUtils.setField(storage, "dataSource", dataSource);
+        ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(storage, "storageType", "s3");
+        ReflectionTestUtils.setField(storage, "lockTimeout", 30);
+
+        AttachmentMapper attachmentMapper = mock(AttachmentMapper.class);
+        when(attachmentMapper.insert(any(Attachment.class))).thenAnswer(invocation -> {
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            try {
+                insertConnections.put(invocation.<Attachment>getArgument(0).getContentHash(), connection);
+                Thread.sleep(50);
+                return 1;
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+        });
+        attachmentService = new AttachmentServiceImpl();
+        ReflectionTestUtils.setField(attachmentService, "baseMapper", attachmentMapper);
+        ReflectionTestUtils.setField(attachmentService, "attachmentStorage", storage);
+        ReflectionTestUtils.setField(attachmentService, "attachmentThumbnailer", mock(AttachmentThumbnailer.class));
+    }
+
+    @Test
+    void concurrentSavesBeyondPoolSizeReuseLockConnection() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(UPLOADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<AttachmentStorage.StagedFile>> results = new ArrayList<>();
+            for (int i = 0; i < UPLOADS; i++) {
+                String content = "certificate " + i;
+                results.add(executor.submit(() -> {
+                    AttachmentStorage.StagedFile staged = storage.stage(
+                            new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+                    start.await();
+                    Attachment attachment = new Attachment();
+                    assertTrue(attachmentService.saveWithStagedFile(attachment, staged));
+                    // 释放锁后解除线程绑定
+                    assertFalse(TransactionSynchronizationManager.hasResource(dataSource));
+                    return staged;
+                }));
+            }
+            start.countDown();
+            for (Future<AttachmentStorage.StagedFile> result : results) {
+                AttachmentStorage.StagedFile staged = result.get(20, TimeUnit.SECONDS);
+                assertNotNull(insertConnections.get(staged.contentHash()));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(UPLOADS, insertConnections.size());
+        // 每个持锁线程只占用一条连接，全部归还
+        assertTrue(maxBorrowed.get() <= POOL_SIZE);
+        assertEquals(POOL_SIZE, pool.availablePermits());
+    }
+
+    @Test
+    void lockInsideBoundConnectionReusesIt() throws Exception {
+        Connection outer = borrow();
+        TransactionSynchronizationManager.bindResource(dataSource, new ConnectionHolder(outer));
+        try {
+            try (AttachmentStorage.HashLock lock = storage.lock("ab".repeat(32))) {
+                assertSame(outer, DataSourceUtils.getConnection(dataSource));
+                assertEquals(1, borrowed.get());
+            }
+            // 调用方的连接在锁释放后仍保持绑定，由调用方归还
+            assertTrue(TransactionSynchronizationManager.hasResource(dataSource));
+            assertEquals(1, borrowed.get());
+        } finally {
+            TransactionSynchronizationManager.unbindResource(dataSource);
+            outer.close();
+        }
+        assertEquals(POOL_SIZE, pool.availablePermits());
+    }
+
+    /**
+     * 从模拟连接池借出一条连接，close 时归还；借不到时等待后失败，与 Druid 的 max-wait 一致
+     */
+    private Connection borrow() throws SQLException, InterruptedException {
+        if (!pool.tryAcquire(2, TimeUnit.SECONDS)) {
+            throw new SQLException("连接池已耗尽");
+        }
+        maxBorrowed.accumulateAndGet(borrowed.incrementAndGet(), Math::max);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true);
+        when(rs.getInt(1)).thenReturn(1);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(rs);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        AtomicInteger closed = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (closed.getAndIncrement() == 0) {
+                borrowed.decrementAndGet();
+                pool.release();
+            }
+            return null;
+        }).when(connection).close();
+        return connection;
+    }
+}
@@ -0,0 +1,199 @@
+package is.smbackend;
+
+import is.smbackend.mapper.AttachmentMapper;
+import is.smbackend.pojo.Attachment;
+import is.smbackend.service.AttachmentLayoutMigrator;
+import is.smbackend.service.AttachmentService;
+import is.smbackend.service.AttachmentStorage;
+import is.smbackend.service.impl.LocalFileStorage;
+import is.smbackend.util.HashUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 附件目录迁移：旧路径文件补算哈希、移到分级目录并更新记录（本地存储 + 模拟的附件服务）
+ */
+class AttachmentLayoutMigratorTests {
+
+    private static final String CONTENT = "legacy certificate";
+
+    @TempDir
+    Path uploadDir;
+
+    private AttachmentService attachmentService;
+    private AttachmentMapper attachmentMapper;
+    private AttachmentStorage storage;
+    private AttachmentLayoutMigrator migrator;
+    private String hash;
+    private String target;
+
+    @BeforeEach
+    void setUp() {
+        LocalFileStorage fileStorage = new LocalFileStorage();
+        ReflectionTestUtils.setField(fileStorage, "uploadDir", uploadDir.toString());
+
+        attachmentMapper = mock(AttachmentMapper.class);
+        storage = new AttachmentStorage();
+        ReflectionTestUtils.setField(storage, "fileStorage", fileStorage);
+        ReflectionTestUtils.setField(storage, "attachmentMapper", attachmentMapper);
+        ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(storage, "storageType", "local");
+
+        attachmentService = mock(AttachmentService.class);
+        migrator = new AttachmentLayoutMigrator();
+        ReflectionTestUtils.setField(migrator, "attachmentService", attachmentService);
+        ReflectionTestUtils.setField(migrator, "attachmentStorage", storage);
+        ReflectionTestUtils.setField(migrator, "fileStorage", fileStorage);
+        ReflectionTestUtils.setField(migrator, "enabled", true);
+        ReflectionTestUtils.setField(migrator, "batchSize", 10);
+        migrator.init();
+
+        MessageDigest digest = HashUtil.sha256();
+        digest.update(CONTENT.getBytes(StandardCharsets.UTF_8));
+        hash = HashUtil.hex(digest);
+        target = storage.objectKey(hash);
+    }
+
+    @Test
+    void legacyFileIsHashedMovedAndRepointed() throws IOException {
+        write("award/uuid-1", CONTENT);
+        write("award/uuid-1.thumb.jpg", "thumbnail");
+        batch(legacy("ATT1", "award/uuid-1"));
+        when(attachmentService.repointFile(anyString(), anyString(), anyString())).thenReturn(true);
+
+        migrator.migrateBatch();
+
+        verify(attachmentService).repointFile("award/uuid-1", target, hash);
+        assertEquals(CONTENT, read(target));
+        assertEquals("thumbnail", read(storage.thumbnailKey(target)));
+        assertFalse(Files.exists(uploadDir.resolve("award/uuid-1")));
+        assertFalse(Files.exists(uploadDir.resolve("award/uuid-1.thumb.jpg")));
+    }
+
+    @Test
+    void sameContentCollapsesIntoOneObject() throws IOException {
+        write("award/uuid-1", CONTENT);
+        write("punishment/uuid-2", CONTENT);
+        batch(legacy("ATT1", "award/uuid-1"), legacy("ATT2", "punishment/uuid-2"));
+        when(attachmentService.repointFile(anyString(), anyString(), anyString())).thenReturn(true);
+
+        migrator.migrateBatch();
+
+        verify(attachmentService).repointFile("award/uuid-1", target, hash);
+        verify(attachmentService).repointFile("punishment/uuid-2", target, hash);
+        assertEquals(List.of(target), objects());
+        assertFalse(Files.exists(uploadDir.resolve("award/uuid-1")));
+        assertFalse(Files.exists(uploadDir.resolve("punishment/uuid-2")));
+    }
+
+    @Test
+    void rowDeletedDuringMigrationRemovesNewObject() throws IOException {
+        write("award/uuid-1", CONTENT);
+        batch(legacy("ATT1", "award/uuid-1"));
+        // 记录在复制之后、更新之前被删除
+        when(attachmentService.repointFile(anyString(), anyString(), anyString())).thenReturn(false);
+
+        migrator.migrateBatch();
+
+        assertEquals(List.of(), objects());
+        // 旧文件由删除记录的一方负责删除
+        assertTrue(Files.exists(uploadDir.resolve("award/uuid-1")));
+    }
+
+    @Test
+    void rowDeletedDuringMigrationKeepsSharedObject() throws IOException {
+        write(target, CONTENT);
+        write("award/uuid-1", CONTENT);
+        batch(legacy("ATT1", "award/uuid-1"));
+        when(attachmentService.repointFile(anyString(), anyString(), anyString())).thenReturn(false);
+
+        migrator.migrateBatch();
+
+        // 对象在迁移前已被其他记录引用，不能删除
+        assertEquals(CONTENT, read(target));
+    }
+
+    @Test
+    void locateFindsFileMovedAfterRowWasRead() throws IOException {
+        write("award/uuid-1", CONTENT);
+        write("objects/" + hash, CONTENT);
+        Attachment withoutHash = legacy("ATT1", "award/uuid-1");
+        Attachment withHash = legacy("ATT2", "objects/" + hash);
+        withHash.setContentHash(hash);
+        batch(legacy("ATT1", "award/uuid-1"), legacy("ATT2", "objects/" + hash));
+        when(attachmentService.repointFile(anyString(), anyString(), anyString())).thenReturn(true);
+
+        migrator.migrateBatch();
+
+        // 没有哈希的旧记录重新读取到新路径，有哈希的直接按哈希定位
+        when(attachmentMapper.selectById("ATT1")).thenReturn(legacy("ATT1", target));
+        AttachmentStorage.Located located = storage.locate(withoutHash);
+        assertNotNull(located);
+        assertEquals(target, located.key());
+        assertEquals(CONTENT.length(), located.stat().size());
+
+        located = storage.locate(withHash);
+        assertNotNull(located);
+        assertEquals(target, located.key());
+    }
+
+    @Test
+    void locateReturnsNullWhenRowIsGone() throws IOException {
+        when(attachmentMapper.selectById("ATT1")).thenReturn(null);
+
+        assertNull(storage.locate(legacy("ATT1", "award/uuid-1")));
+    }
+
+    private void batch(Attachment... rows) {
+        when(attachmentService.listLegacyLayout(anyString(), anyInt())).thenReturn(List.of());
+        when(attachmentService.listLegacyLayout(eq(""), anyInt())).thenReturn(List.of(rows));
+    }
+
+    private static Attachment legacy(String id, String filePath) {
+        Attachment attachment = new Attachment();
+        attachment.setAttachmentId(id);
+        attachment.setFilePath(filePath);
+        return attachment;
+    }
+
+    private void write(String key, String content) throws IOException {
+        Path file = uploadDir.resolve(key);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    private String read(String key) throws IOException {
+        return Files.readString(uploadDir.resolve(key), StandardCharsets.UTF_8);
+    }
+
+    private List<String> objects() throws IOException {
+        Path objects = uploadDir.resolve("objects");
+        if (!Files.isDirectory(objects)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(objects)) {
+            return files.filter(Files::isRegularFile)
+                    .map(file -> uploadDir.relativize(file).toString().replace('\\', '/'))
+                    .filter(key -> key.startsWith("objects/") && key.split("/").length == 4)
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package is.smbackend;
+
+import is.smbackend.dto.ReconcileReport;
+import is.smbackend.pojo.Attachment;
+import is.smbackend.pojo.AttachmentUpload;
+import is.smbackend.service.AttachmentOwnerLookup;
+import is.smbackend.service.AttachmentReconciler;
+import is.smbackend.service.AttachmentService;
+import is.smbackend.service.AttachmentStorage;
+import is.smbackend.service.AttachmentUploadService;
+import is.smbackend.service.impl.LocalFileStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 附件对账：孤立文件、无主记录、缺失文件的判定，宽限期，仅报告模式和清理前的复查（本地存储 + 模拟的服务）
+ */
+class AttachmentReconcilerTests {
+
+    private static final String H1 = "11".repeat(32);
+    private static final String H2 = "22".repeat(32);
+    private static final String H3 = "33".repeat(32);
+    private static final String H4 = "44".repeat(32);
+
+    @TempDir
+    Path uploadDir;
+
+    private AttachmentService attachmentService;
+    private AttachmentUploadService attachmentUploadService;
+    private AttachmentOwnerLookup attachmentOwnerLookup;
+    private AttachmentStorage storage;
+    private AttachmentReconciler reconciler;
+
+    // 记录表中的附件，所属业务记录仍存在的编号
+    private final List<Attachment> rows = new ArrayList<>();
+    private final Set<String> owners = new HashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        LocalFileStorage fileStorage = new LocalFileStorage();
+        ReflectionTestUtils.setField(fileStorage, "uploadDir", uploadDir.toString());
+        storage = new AttachmentStorage();
+        ReflectionTestUtils.setField(storage, "fileStorage", fileStorage);
+        ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+        ReflectionTestUtils.setField(storage, "storageType", "local");
+
+        attachmentService = mock(AttachmentService.class);
+        when(attachmentService.listReferences(anyString(), anyInt())).thenAnswer(invocation -> {
+            String afterId = invocation.getArgument(0);
+            return rows.stream().filter(row -> row.getAttachmentId().compareTo(afterId) > 0).toList();
+        });
+        attachmentUploadService = mock(AttachmentUploadService.class);
+        when(attachmentUploadService.listUploadIds()).thenReturn(Set.of());
+        attachmentOwnerLookup = mock(AttachmentOwnerLookup.class);
+        when(attachmentOwnerLookup.existingOwners(anyString(), anyCollection())).thenAnswer(invocation -> {
+            Set<String> existing = new HashSet<>(invocation.<Collection<String>>getArgument(1));
+            existing.retainAll(owners);
+            return existing;
+        });
+
+        reconciler = new AttachmentReconciler();
+        ReflectionTestUtils.setField(reconciler, "attachmentService", attachmentService);
+        ReflectionTestUtils.setField(reconciler, "attachmentUploadService", attachmentUploadService);
+        ReflectionTestUtils.setField(reconciler, "attachmentOwnerLookup", attachmentOwnerLookup);
+        ReflectionTestUtils.setField(reconciler, "attachmentStorage", storage);
+        ReflectionTestUtils.setField(reconciler, "fileStorage", fileStorage);
+        ReflectionTestUtils.setField(reconciler, "graceHours", 24L);
+        ReflectionTestUtils.setField(reconciler, "parallelism", 2);
+        ReflectionTestUtils.setField(reconciler, "batchSize", 2);
+        reconciler.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reconciler.shutdown();
+    }
+
+    @Test
+    void classifiesOrphansDanglingRowsAndMissingFiles() throws Exception {
+        // 正常：记录、文件、业务记录都在，缩略图随原文件被引用
+        row("ATT1", H1, "AW1", 48);
+        owners.add("AW1");
+        file(storage.objectKey(H1), 48);
+        file(storage.thumbnailKey(storage.objectKey(H1)), 48);
+        // 无主记录：所属奖励已删除
+        row("ATT2", H2, "AW2", 48);
+        file(storage.objectKey(H2), 48);
+        // 缺失文件
+        row("ATT3", H3, "AW3", 48);
+        owners.add("AW3");
+        // 孤立文件及其缩略图、无缩略图标记
+        file(storage.objectKey(H4), 48);
+        file(storage.thumbnailKey(storage.objectKey(H4)), 48);
+        file(storage.noThumbnailKey(storage.objectKey(H4)), 48);
+
+        ReconcileReport report = run(true);
+
+        assertNull(report.getError());
+        assertEquals(3, report.getScannedRows());
+        assertEquals(6, report.getScannedFiles());
+        assertEquals(3, report.getOrphanFiles());
+        assertTrue(report.getOrphanFileSamples().contains(storage.objectKey(H4)));
+        assertEquals(1, report.getDanglingRows());
+        assertEquals(List.of("ATT2"), report.getDanglingRowSamples());
+        assertEquals(1, report.getMissingFiles());
+        assertEquals(List.of(storage.objectKey(H3)), report.getMissingFileSamples());
+    }
+
+    @Test
+    void dryRunDeletesNothing() throws Exception {
+        row("ATT2", H2, "AW2", 48);
+        file(storage.objectKey(H2), 48);
+        file(storage.objectKey(H4), 48);
+        file("tmp/UPL1.part", 48);
+
+        ReconcileReport report = run(true);
+
+        assertEquals(2, report.getOrphanFiles());
+        assertEquals(1, report.getDanglingRows());
+        assertEquals(0, report.getDeletedFiles());
+        assertEquals(0, report.getDeletedRows());
+        assertTrue(exists(storage.objectKey(H4)));
+        assertTrue(exists("tmp/UPL1.part"));
+        verify(attachmentService, never()).removeWithContent(any());
+        verify(attachmentService, never()).isReferenced(anyString());
+    }
+
+    @Test
+    void cleanupDeletesOrphansAndDanglingRows() throws Exception {
+        row("ATT2", H2, "AW2", 48);
+        file(storage.objectKey(H2), 48);
+        file(storage.objectKey(H4), 48);
+        file(storage.thumbnailKey(storage.objectKey(H4)), 48);
+        when(attachmentService.removeWithContent(any())).thenReturn(true);
+
+        ReconcileReport report = run(false);
+
+        assertEquals(2, report.getDeletedFiles());
+        assertEquals(1, report.getDeletedRows());
+        assertFalse(exists(storage.objectKey(H4)));
+        assertFalse(exists(storage.thumbnailKey(storage.objectKey(H4))));
+        verify(attachmentService).removeWithContent(rows.get(0));
+    }
+
+    @Test
+    void skipsFilesAndRowsWithinGracePeriod() throws Exception {
+        // 刚上传：文件已放入存储、业务记录尚未保存
+        row("ATT1", H1, "AW1", 1);
+        file(storage.objectKey(H1), 1);
+        // 刚放入存储、记录尚未保存的文件
+        file(storage.objectKey(H4), 1);
+        file("tmp/stage.part", 1);
+
+        ReconcileReport report = run(false);
+
+        assertEquals(0, report.getOrphanFiles());
+        assertEquals(0, report.getDanglingRows());
+        assertTrue(exists(storage.objectKey(H4)));
+        assertTrue(exists("tmp/stage.part"));
+        verify(attachmentService, never()).removeWithContent(any());
+    }
+
+    @Test
+    void keepsPartFileOfActiveUpload() throws Exception {
+        file("tmp/UPL1.part", 48);
+        file("tmp/UPL2.part", 48);
+        when(attachmentUploadService.listUploadIds()).thenReturn(Set.of("UPL1"));
+
+        ReconcileReport report = run(false);
+
+        assertEquals(List.of("tmp/UPL2.part"), report.getOrphanFileSamples());
+        assertEquals(1, report.getDeletedFiles());
+        assertTrue(exists("tmp/UPL1.part"));
+        assertFalse(exists("tmp/UPL2.part"));
+    }
+
+    @Test
+    void keepsPartFileOfUploadStartedAfterScan() throws Exception {
+        file("tmp/UPL1.part", 48);
+        when(attachmentUploadService.getById("UPL1")).thenReturn(new AttachmentUpload());
+
+        ReconcileReport report = run(false);
+
+        assertEquals(1, report.getOrphanFiles());
+        assertEquals(0, report.getDeletedFiles());
+        assertTrue(exists("tmp/UPL1.part"));
+    }
+
+    @Test
+    void recheckUnderLockKeepsFileReferencedAfterScan() throws Exception {
+        file(storage.objectKey(H4), 48);
+        // 扫描之后、删除之前有新记录复用了该对象
+        when(attachmentService.isReferenced(storage.objectKey(H4))).thenReturn(true);
+
+        ReconcileReport report = run(false);
+
+        assertEquals(1, report.getOrphanFiles());
+        assertEquals(0, report.getDeletedFiles());
+        assertTrue(exists(storage.objectKey(H4)));
+    }
+
+    @Test
+    void recheckWaitsForHashLock() throws Exception {
+        file(storage.objectKey(H4), 48);
+        when(attachmentService.isReferenced(eq(storage.objectKey(H4)))).thenReturn(false);
+
+        // 上传方持有该哈希的锁时，对账的删除等待锁释放后才复查
+        try (AttachmentStorage.HashLock lock = storage.lock(H4)) {
+            assertTrue(reconciler.start(false));
+            Thread.sleep(300);
+            verify(attachmentService, never()).isReferenced(anyString());
+            assertTrue(exists(storage.objectKey(H4)));
+        }
+        ReconcileReport report = await();
+
+        assertEquals(1, report.getDeletedFiles());
+        assertFalse(exists(storage.objectKey(H4)));
+    }
+
+    private ReconcileReport run(boolean dryRun) throws InterruptedException {
+        assertTrue(reconciler.start(dryRun));
+        return await();
+    }
+
+    private ReconcileReport await() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            ReconcileReport report = reconciler.report();
+            if (report != null && report.getFinishTime() != null) {
+                return report;
+            }
+            Thread.sleep(20);
+        }
+        throw new AssertionError("对账未在 10 秒内完成");
+    }
+
+    private void row(String id, String hash, String awardId, long ageHours) {
+        Attachment attachment = new Attachment();
+        attachment.setAttachmentId(id);
+        attachment.setContentHash(hash);
+        attachment.setFilePath(storage.objectKey(hash));
+        attachment.setRelatedType("award");
+        attachment.setRelatedId(awardId);
+        attachment.setUploadTime(LocalDateTime.now().minusHours(ageHours));
+        rows.add(attachment);
+    }
+
+    private void file(String key, long ageHours) throws IOException {
+        Path file = uploadDir.resolve(key);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, key, StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file,
+                FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(ageHours)));
+    }
+
+    private boolean exists(String key) {
+        return Files.exists(uploadDir.resolve(key));
+    }
+}
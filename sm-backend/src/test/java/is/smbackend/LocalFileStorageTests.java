@@ -0,0 +1,142 @@
+package is.smbackend;
+
+import is.smbackend.service.impl.LocalFileStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 本地目录存储：存储内复制（硬链接，跨文件系统时复制后改名）和按目录并行遍历
+ */
+class LocalFileStorageTests {
+
+    @TempDir
+    Path uploadDir;
+
+    private LocalFileStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new LocalFileStorage();
+        ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+    }
+
+    @Test
+    void copyIfAbsentCreatesHardLink() throws IOException {
+        write("award/uuid-1", "content");
+
+        assertTrue(storage.copyIfAbsent("award/uuid-1", "objects/ab/cd/abcd"));
+
+        Path target = uploadDir.resolve("objects/ab/cd/abcd");
+        assertTrue(Files.isSameFile(uploadDir.resolve("award/uuid-1"), target));
+        assertEquals("content", Files.readString(target));
+        // 目标已存在时不覆盖
+        write("award/uuid-2", "other");
+        assertFalse(storage.copyIfAbsent("award/uuid-2", "objects/ab/cd/abcd"));
+        assertEquals("content", Files.readString(target));
+    }
+
+    @Test
+    void copyIfAbsentFallsBackToCopyAcrossFileSystems() throws IOException {
+        // 目标目录链接到另一个文件系统，硬链接失败后复制到临时名再改名
+        Path shm = Paths.get("/dev/shm");
+        assumeTrue(Files.isDirectory(shm) && Files.isWritable(shm)
+                && !Files.getFileStore(shm).equals(Files.getFileStore(uploadDir)), "需要另一个可写的文件系统");
+        Path other = Files.createTempDirectory(shm, "sm-storage");
+        try {
+            Files.createSymbolicLink(uploadDir.resolve("objects"), other);
+            write("award/uuid-1", "content");
+
+            assertTrue(storage.copyIfAbsent("award/uuid-1", "objects/ab/cd/abcd"));
+
+            Path target = uploadDir.resolve("objects/ab/cd/abcd");
+            assertFalse(Files.isSameFile(uploadDir.resolve("award/uuid-1"), target));
+            assertEquals("content", Files.readString(target));
+            assertFalse(Files.exists(target.resolveSibling("abcd.copying")));
+        } finally {
+            try (Stream<Path> files = Files.walk(other)) {
+                files.sorted((a, b) -> b.getNameCount() - a.getNameCount()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    void copyIfAbsentFailsForMissingSource() {
+        assertThrows(IOException.class, () -> storage.copyIfAbsent("award/missing", "objects/ab/cd/abcd"));
+        assertFalse(Files.exists(uploadDir.resolve("objects/ab/cd/abcd")));
+    }
+
+    @Test
+    void walkVisitsEveryFileInParallel() throws IOException {
+        // 多级目录，每个目录拆分为一个 ForkJoin 子任务
+        Map<String, Long> expected = new ConcurrentHashMap<>();
+        for (int a = 0; a < 8; a++) {
+            for (int b = 0; b < 8; b++) {
+                String key = "objects/" + a + "/" + b + "/file-" + a + b;
+                write(key, "x".repeat(a * 8 + b));
+                expected.put(key, (long) (a * 8 + b));
+            }
+        }
+        write("award/legacy", "legacy");
+        expected.put("award/legacy", 6L);
+        Files.createDirectories(uploadDir.resolve("empty/dir"));
+
+        Map<String, Long> visited = new ConcurrentHashMap<>();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        storage.walk(4, (key, stat) -> {
+            assertNull(visited.put(key, stat.size()), "重复访问 " + key);
+            threads.add(Thread.currentThread().getName());
+        });
+
+        assertEquals(expected, visited);
+        // 遍历在独立的 ForkJoin 线程池中执行，不占用公共池
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("ForkJoinPool-")), threads.toString());
+        assertFalse(threads.stream().anyMatch(name -> name.startsWith("ForkJoinPool.commonPool")));
+    }
+
+    @Test
+    void walkSkipsSymbolicLinks() throws IOException {
+        write("award/a", "a");
+        Path outside = Files.createTempDirectory("sm-outside");
+        try {
+            Files.writeString(outside.resolve("secret"), "secret");
+            Files.createSymbolicLink(uploadDir.resolve("linked"), outside);
+            Files.createSymbolicLink(uploadDir.resolve("award/b"), uploadDir.resolve("award/a"));
+
+            Map<String, Long> visited = new ConcurrentHashMap<>();
+            storage.walk(2, (key, stat) -> visited.put(key, stat.size()));
+
+            assertEquals(Map.of("award/a", 1L), visited);
+        } finally {
+            Files.deleteIfExists(outside.resolve("secret"));
+            Files.deleteIfExists(outside);
+        }
+    }
+
+    @Test
+    void walkOfMissingRootVisitsNothing() throws IOException {
+        ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.resolve("missing").toString());
+
+        storage.walk(2, (key, stat) -> fail("不应访问 " + key));
+    }
+
+    private void write(String key, String content) throws IOException {
+        Path file = uploadDir.resolve(key);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,73 @@
+package is.smbackend;
+
+import is.smbackend.exception.TooManyRequestsException;
+import is.smbackend.service.LoginThrottle;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 登录限流：按IP计数时只采信受信任代理设置的代理头，伪造的 X-Forwarded-For 不能换用新的令牌桶
+ */
+class LoginThrottleTests {
+
+    private LoginThrottle throttle;
+
+    @BeforeEach
+    void setUp() {
+        throttle = new LoginThrottle();
+        ReflectionTestUtils.setField(throttle, "ipCapacity", 2);
+        ReflectionTestUtils.setField(throttle, "ipRefillPerMinute", 1);
+        ReflectionTestUtils.setField(throttle, "userCapacity", 2);
+        ReflectionTestUtils.setField(throttle, "userRefillPerMinute", 1);
+        ReflectionTestUtils.setField(throttle, "stripes", 4);
+        ReflectionTestUtils.setField(throttle, "trustedProxies", new String[]{"10.0.0.1"});
+        throttle.init();
+    }
+
+    @Test
+    void forgedHeadersFromUntrustedClientAreIgnored() {
+        for (int i = 0; i < 2; i++) {
+            throttle.checkIp(request("203.0.113.7", "198.51.100." + i, "198.51.100." + i));
+        }
+        assertThrows(TooManyRequestsException.class,
+                () -> throttle.checkIp(request("203.0.113.7", "198.51.100.9", "198.51.100.9")));
+    }
+
+    @Test
+    void forgedForwardedForBehindProxyUsesRightmostHop() {
+        // Nginx 在客户端伪造的值之后追加真实地址
+        for (int i = 0; i < 2; i++) {
+            throttle.checkIp(request("10.0.0.1", null, "198.51.100." + i + ", 203.0.113.7"));
+        }
+        assertThrows(TooManyRequestsException.class,
+                () -> throttle.checkIp(request("10.0.0.1", null, "198.51.100.9, 203.0.113.7")));
+        // 其他客户端不受影响
+        throttle.checkIp(request("10.0.0.1", null, "203.0.113.8"));
+    }
+
+    @Test
+    void realIpFromTrustedProxyTakesPrecedence() {
+        for (int i = 0; i < 2; i++) {
+            throttle.checkIp(request("10.0.0.1", "203.0.113.7", "198.51.100." + i));
+        }
+        assertThrows(TooManyRequestsException.class,
+                () -> throttle.checkIp(request("10.0.0.1", "203.0.113.7", "198.51.100.9")));
+        throttle.checkIp(request("10.0.0.1", "203.0.113.8", null));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String realIp, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+        request.setRemoteAddr(remoteAddr);
+        if (realIp != null) {
+            request.addHeader("X-Real-IP", realIp);
+        }
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,208 @@
+package is.smbackend;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import is.smbackend.pojo.Notice;
+import is.smbackend.service.NoticeMailChannel;
+import is.smbackend.service.UserDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 通知邮件通道：对进程内 SMTP 服务（GreenMail）批量发送、失败重试和发送预算
+ * <p>
+ * 通道与 GreenMail 之间隔一层计数转发，用于统计建立的 SMTP 连接数并模拟连接失败。
+ */
+class NoticeMailChannelTests {
+
+    private GreenMail greenMail;
+    private CountingProxy proxy;
+    private NoticeMailChannel channel;
+
+    @BeforeEach
+    void start() throws IOException {
+        greenMail = new GreenMail(ServerSetupTest.SMTP.dynamicPort());
+        greenMail.start();
+        proxy = new CountingProxy(greenMail.getSmtp().getPort());
+    }
+
+    @AfterEach
+    void stop() throws IOException {
+        if (channel != null) {
+            channel.shutdown();
+        }
+        proxy.close();
+        greenMail.stop();
+    }
+
+    @Test
+    void sendsBatchOverOneConnection() throws Exception {
+        channel = channel(6000);
+        channel.submit(notices(5));
+
+        assertTrue(greenMail.waitForIncomingEmail(5000, 5));
+        assertEquals(5, greenMail.getReceivedMessages().length);
+        assertEquals(1, proxy.connections.get());
+        assertEquals("【学籍管理系统】通知 0", greenMail.getReceivedMessages()[0].getSubject());
+    }
+
+    @Test
+    void retriesWithBackoffAfterSmtpFailure() throws Exception {
+        proxy.rejectFirst.set(1);
+        channel = channel(6000);
+        long start = System.currentTimeMillis();
+        channel.submit(notices(1));
+
+        assertTrue(greenMail.waitForIncomingEmail(5000, 1));
+        assertTrue(System.currentTimeMillis() - start >= 300, "重试前应等待退避时间");
+        assertEquals(2, proxy.connections.get());
+        assertEquals(1, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void waitsWhenBudgetExhausted() throws Exception {
+        // 每分钟 60 封：桶容量 1，每秒补充 1 封
+        channel = channel(60);
+        long start = System.currentTimeMillis();
+        channel.submit(notices(3));
+
+        assertTrue(greenMail.waitForIncomingEmail(5000, 1));
+        Thread.sleep(400);
+        assertEquals(1, greenMail.getReceivedMessages().length, "预算用完后应等待补充");
+
+        assertTrue(greenMail.waitForIncomingEmail(5000, 3));
+        assertTrue(System.currentTimeMillis() - start >= 1800, "3 封邮件至少需要两秒的预算");
+    }
+
+    private NoticeMailChannel channel(int budgetPerMinute) {
+        UserDirectory userDirectory = mock(UserDirectory.class);
+        when(userDirectory.getEmails(anyString(), anyCollection())).thenAnswer(invocation -> {
+            Map<String, String> emails = new HashMap<>();
+            for (Object userId : invocation.<Collection<?>>getArgument(1)) {
+                emails.put((String) userId, userId + "@example.com");
+            }
+            return emails;
+        });
+
+        NoticeMailChannel channel = new NoticeMailChannel();
+        ReflectionTestUtils.setField(channel, "userDirectory", userDirectory);
+        ReflectionTestUtils.setField(channel, "enabled", true);
+        ReflectionTestUtils.setField(channel, "host", "127.0.0.1");
+        ReflectionTestUtils.setField(channel, "port", proxy.port());
+        ReflectionTestUtils.setField(channel, "username", "");
+        ReflectionTestUtils.setField(channel, "password", "");
+        ReflectionTestUtils.setField(channel, "starttls", false);
+        ReflectionTestUtils.setField(channel, "from", "noreply@example.com");
+        ReflectionTestUtils.setField(channel, "subjectPrefix", "【学籍管理系统】");
+        ReflectionTestUtils.setField(channel, "workers", 1);
+        ReflectionTestUtils.setField(channel, "batchSize", 50);
+        ReflectionTestUtils.setField(channel, "queueCapacity", 100);
+        ReflectionTestUtils.setField(channel, "budgetPerMinute", budgetPerMinute);
+        ReflectionTestUtils.setField(channel, "maxAttempts", 3);
+        ReflectionTestUtils.setField(channel, "retryBackoff", 300L);
+        ReflectionTestUtils.setField(channel, "idleTimeout", 60000L);
+        ReflectionTestUtils.setField(channel, "timeout", 5000L);
+        channel.init();
+        return channel;
+    }
+
+    private static List<Notice> notices(int count) {
+        List<Notice> notices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Notice notice = new Notice();
+            notice.setNoticeId("N" + i);
+            notice.setTargetType("student");
+            notice.setTargetUser("s" + i);
+            notice.setTitle("通知 " + i);
+            notice.setContent("内容 " + i);
+            notices.add(notice);
+        }
+        return notices;
+    }
+
+    /**
+     * 转发到 GreenMail 的 TCP 代理，统计连接数，前 rejectFirst 个连接直接关闭
+     */
+    private static class CountingProxy implements AutoCloseable {
+
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicInteger rejectFirst = new AtomicInteger();
+
+        private final ServerSocket server;
+        private final int targetPort;
+
+        CountingProxy(int targetPort) throws IOException {
+            this.targetPort = targetPort;
+            this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            daemon(this::accept);
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        private void accept() {
+            while (!server.isClosed()) {
+                try {
+                    Socket client = server.accept();
+                    if (connections.incrementAndGet() <= rejectFirst.get()) {
+                        client.close();
+                        continue;
+                    }
+                    Socket target = new Socket(InetAddress.getLoopbackAddress(), targetPort);
+                    daemon(() -> pipe(client, target));
+                    daemon(() -> pipe(target, client));
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private static void pipe(Socket from, Socket to) {
+            try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+                in.transferTo(out);
+            } catch (IOException ignored) {
+                // 任一端关闭即结束转发
+            } finally {
+                try {
+                    from.close();
+                    to.close();
+                } catch (IOException ignored) {
+                    // 忽略
+                }
+            }
+        }
+
+        private static void daemon(Runnable runnable) {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+        }
+    }
+}
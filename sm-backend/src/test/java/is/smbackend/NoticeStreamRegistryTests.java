@@ -0,0 +1,115 @@
+package is.smbackend;
+
+import is.smbackend.pojo.Notice;
+import is.smbackend.service.NoticeService;
+import is.smbackend.service.NoticeStreamRegistry;
+import is.smbackend.service.NoticeTemplateRegistry;
+import is.smbackend.util.IdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 通知实时推送：推送和心跳只入队，客户端停止读取时不阻塞调用方，队列写满后关闭该连接
+ * <p>
+ * 测试线程持有 SseEmitter 的监视器（发送与完成都在其上同步），发送线程的写入因此阻塞，
+ * 与客户端停止读取、套接字缓冲区写满时相同。
+ */
+class NoticeStreamRegistryTests {
+
+    private NoticeStreamRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new NoticeStreamRegistry();
+        ReflectionTestUtils.setField(registry, "noticeService", mock(NoticeService.class));
+        ReflectionTestUtils.setField(registry, "noticeTemplateRegistry", mock(NoticeTemplateRegistry.class));
+        ReflectionTestUtils.setField(registry, "idGenerator", mock(IdGenerator.class));
+        ReflectionTestUtils.setField(registry, "timeout", 60000L);
+        ReflectionTestUtils.setField(registry, "reconnectTime", 3000L);
+        ReflectionTestUtils.setField(registry, "replayLimit", 2);
+        ReflectionTestUtils.setField(registry, "queueCapacity", 4);
+        ReflectionTestUtils.setField(registry, "sendThreads", 2);
+        registry.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void blockedClientDoesNotBlockPublisher() {
+        SseEmitter blocked = registry.subscribe("s1", null);
+        registry.subscribe("s2", null);
+        assertEquals(2, connections());
+
+        synchronized (blocked) {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 20; i++) {
+                registry.publish(notice("N" + i, "s1"));
+            }
+            // 不超过队列容量，不会因为发送线程来不及写入而被关闭
+            for (int i = 0; i < 3; i++) {
+                registry.publish(notice("M" + i, "s2"));
+            }
+            assertTrue(System.currentTimeMillis() - start < 1000, "推送不应等待阻塞的连接");
+            // 队列写满后关闭阻塞的连接，其他连接不受影响
+            assertEquals(1, connections());
+        }
+    }
+
+    @Test
+    void heartbeatDoesNotWaitForBlockedClient() {
+        SseEmitter blocked = registry.subscribe("s1", null);
+
+        synchronized (blocked) {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 10; i++) {
+                registry.heartbeat();
+            }
+            assertTrue(System.currentTimeMillis() - start < 1000, "心跳不应等待阻塞的连接");
+            assertEquals(0, connections());
+        }
+    }
+
+    @Test
+    void publishAfterCloseIsDropped() {
+        SseEmitter blocked = registry.subscribe("s1", null);
+        synchronized (blocked) {
+            for (int i = 0; i < 10; i++) {
+                registry.publish(notice("N" + i, "s1"));
+            }
+        }
+        assertEquals(0, connections());
+
+        // 连接已移出登记表，后续通知不再入队
+        long start = System.currentTimeMillis();
+        synchronized (blocked) {
+            registry.publish(notice("N10", "s1"));
+        }
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertEquals(0, connections());
+    }
+
+    private int connections() {
+        return ((AtomicInteger) ReflectionTestUtils.getField(registry, "connections")).get();
+    }
+
+    private static Notice notice(String noticeId, String targetUser) {
+        Notice notice = new Notice();
+        notice.setNoticeId(noticeId);
+        notice.setTargetType("student");
+        notice.setTargetUser(targetUser);
+        notice.setTitle("通知 " + noticeId);
+        notice.setContent("内容");
+        return notice;
+    }
+}
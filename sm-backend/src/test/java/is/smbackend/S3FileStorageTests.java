@@ -0,0 +1,175 @@
+package is.smbackend;
+
+import is.smbackend.service.FileStorage;
+import is.smbackend.service.impl.S3FileStorage;
+import is.smbackend.util.HashUtil;
+import org.gaul.s3proxy.AuthenticationType;
+import org.gaul.s3proxy.S3Proxy;
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * S3 存储后端：对进程内 S3 服务（S3Proxy + 内存存储）读写、分段上传和预签名下载
+ */
+class S3FileStorageTests {
+
+    private static final String BUCKET = "sm-attachments";
+    private static final String ACCESS_KEY = "access";
+    private static final String SECRET_KEY = "secret-key-for-tests";
+    private static final int PART_SIZE = 5 * 1024 * 1024;
+
+    private static BlobStoreContext context;
+    private static S3Proxy proxy;
+    private static S3FileStorage storage;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void start() throws Exception {
+        context = ContextBuilder.newBuilder("transient")
+                .credentials("identity", "credential")
+                .build(BlobStoreContext.class);
+        context.getBlobStore().createContainerInLocation(null, BUCKET);
+        proxy = S3Proxy.builder()
+                .blobStore(context.getBlobStore())
+                .awsAuthentication(AuthenticationType.AWS_V2_OR_V4, ACCESS_KEY, SECRET_KEY)
+                .endpoint(URI.create("http://127.0.0.1:0"))
+                .build();
+        proxy.start();
+        while (!"STARTED".equals(proxy.getState())) {
+            Thread.sleep(10);
+        }
+
+        storage = new S3FileStorage();
+        ReflectionTestUtils.setField(storage, "endpoint", "http://127.0.0.1:" + proxy.getPort());
+        ReflectionTestUtils.setField(storage, "region", "us-east-1");
+        ReflectionTestUtils.setField(storage, "bucket", BUCKET);
+        ReflectionTestUtils.setField(storage, "accessKey", ACCESS_KEY);
+        ReflectionTestUtils.setField(storage, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.setField(storage, "pathStyleAccess", true);
+        ReflectionTestUtils.setField(storage, "multipartThreshold", (long) PART_SIZE);
+        ReflectionTestUtils.setField(storage, "partSize", (long) PART_SIZE);
+        ReflectionTestUtils.setField(storage, "presignExpiry", 60L);
+        storage.init();
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        storage.shutdown();
+        proxy.stop();
+        context.close();
+    }
+
+    @Test
+    void putIfAbsentStoresOnce() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("a.txt"), "hello", StandardCharsets.UTF_8);
+
+        assertTrue(storage.putIfAbsent("objects/hello", source));
+        assertFalse(storage.putIfAbsent("objects/hello", source));
+
+        FileStorage.FileStat stat = storage.stat("objects/hello");
+        assertNotNull(stat);
+        assertEquals(5, stat.size());
+        assertEquals("hello", read("objects/hello"));
+        assertNull(storage.localPath("objects/hello"));
+    }
+
+    @Test
+    void largeFileUsesMultipartUpload() throws Exception {
+        Path source = tempDir.resolve("large.bin");
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(42).nextBytes(chunk);
+        try (OutputStream out = Files.newOutputStream(source)) {
+            for (int i = 0; i < 12; i++) {
+                out.write(chunk);
+            }
+            out.write(chunk, 0, 1234);
+        }
+
+        storage.put("objects/large", source);
+
+        assertEquals(Files.size(source), storage.stat("objects/large").size());
+        Path copy = tempDir.resolve("large.copy");
+        try (InputStream in = Channels.newInputStream(storage.open("objects/large"))) {
+            Files.copy(in, copy);
+        }
+        assertEquals(HashUtil.sha256(source), HashUtil.sha256(copy));
+    }
+
+    @Test
+    void presignedUrlDownloadsWithoutCredentials() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("b.pdf"), "presigned", StandardCharsets.UTF_8);
+        storage.put("objects/presigned", source);
+
+        URI url = storage.presignDownload("objects/presigned", "application/pdf", "attachment; filename*=UTF-8''b.pdf");
+        HttpResponse<String> response = HttpClient.newHttpClient()
+                .send(HttpRequest.newBuilder(url).build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("presigned", response.body());
+    }
+
+    @Test
+    void copyIfAbsentCopiesOnServer() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("d.txt"), "legacy", StandardCharsets.UTF_8);
+        storage.put("award/old-layout", source);
+
+        assertTrue(storage.copyIfAbsent("award/old-layout", "objects/ab/cd/abcd"));
+        assertFalse(storage.copyIfAbsent("award/old-layout", "objects/ab/cd/abcd"));
+        assertEquals("legacy", read("objects/ab/cd/abcd"));
+        assertThrows(NoSuchFileException.class, () -> storage.copyIfAbsent("award/missing", "objects/ab/cd/none"));
+    }
+
+    @Test
+    void deleteRemovesObject() throws Exception {
+        Path source = Files.writeString(tempDir.resolve("c.txt"), "bye", StandardCharsets.UTF_8);
+        storage.put("award/legacy", source);
+
+        storage.delete("award/legacy");
+        storage.delete("award/legacy");
+
+        assertNull(storage.stat("award/legacy"));
+        assertThrows(NoSuchFileException.class, () -> storage.open("award/legacy"));
+    }
+
+    @Test
+    void walkListsAllObjects() throws Exception {
+        storage.put("walk/a", Files.writeString(tempDir.resolve("e.txt"), "a", StandardCharsets.UTF_8));
+        storage.put("walk/b/c", Files.writeString(tempDir.resolve("f.txt"), "bc", StandardCharsets.UTF_8));
+
+        Map<String, Long> sizes = new ConcurrentHashMap<>();
+        storage.walk(4, (key, stat) -> sizes.put(key, stat.size()));
+
+        assertEquals(1L, sizes.get("walk/a"));
+        assertEquals(2L, sizes.get("walk/b/c"));
+    }
+
+    private static String read(String key) throws Exception {
+        try (InputStream in = Channels.newInputStream(storage.open(key))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
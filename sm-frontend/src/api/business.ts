@@ -1,5 +1,5 @@
-import { request } from '@/utils/request'
-import type { Result, Award, Punishment, Appeal, StatusChange, LeaveSchool, Notice, Log, PageResult } from './types'
+import { request, TOKEN_REFRESHED_EVENT } from '@/utils/request'
+import type { Result, Award, Punishment, Appeal, StatusChange, LeaveSchool, Notice, NoticeBroadcast, Log, PageResult } from './types'
 
 // 奖励相关
 export const getAwardList = (): Promise<Result<Award[]>> => {
@@ -161,6 +161,11 @@ export const getNoticeList = (): Promise<Result<Notice[]>> => {
   return request.get('/notice')
 }
 
+// 获取发给指定用户的通知（含广播通知）
+export const getUserNotices = (userId: string): Promise<Result<Notice[]>> => {
+  return request.get(`/notice/user/${userId}`)
+}
+
 export const getNoticeById = (id: string): Promise<Result<Notice>> => {
   return request.get(`/notice/${id}`)
 }
@@ -177,21 +182,99 @@ export const deleteNotice = (id: string): Promise<Result<boolean>> => {
   return request.delete(`/notice/${id}`)
 }
 
+// 发布广播通知（按全体、角色、院系、专业、班级发送）
+export const addBroadcastNotice = (data: Omit<NoticeBroadcast, 'broadcastId'>): Promise<Result<NoticeBroadcast>> => {
+  return request.post('/notice/broadcast', data)
+}
+
 // 标记通知为已读
 export const markNoticeAsRead = (id: string): Promise<Result<boolean>> => {
   return request.put(`/notice/${id}/read`)
 }
 
-// 批量标记通知为已读
-export const markAllNoticesAsRead = (userId: string): Promise<Result<boolean>> => {
+// 全部标记为已读，返回标记数量
+export const markAllNoticesAsRead = (userId: string): Promise<Result<number>> => {
   return request.put('/notice/read-all', null, { params: { userId } })
 }
 
+// 批量标记指定通知为已读，返回标记数量
+export const markNoticesAsRead = (userId: string, noticeIds: string[]): Promise<Result<number>> => {
+  return request.put('/notice/read-batch', { noticeIds }, { params: { userId } })
+}
+
+// 批量删除通知，返回删除数量
+export const deleteNotices = (noticeIds: string[], userId?: string): Promise<Result<number>> => {
+  return request.delete('/notice/batch', { data: { noticeIds }, params: { userId } })
+}
+
+// 删除N天前已读的通知，返回删除数量
+export const deleteReadNoticesBefore = (days: number): Promise<Result<number>> => {
+  return request.delete('/notice/read-before', { params: { days } })
+}
+
 // 获取未读通知数量
 export const getUnreadNoticeCount = (userId: string): Promise<Result<number>> => {
   return request.get(`/notice/unread-count/${userId}`)
 }
 
+// 分页查询用户的历史通知（已归档）
+export const getNoticeHistory = (userId: string, params: {
+  pageNum?: number
+  pageSize?: number
+}): Promise<Result<PageResult<Notice>>> => {
+  return request.get(`/notice/history/${userId}`, { params })
+}
+
+// 通知推送连接
+export interface NoticeStream {
+  close: () => void
+}
+
+// 订阅通知实时推送（SSE），浏览器断线后自动重连并携带 Last-Event-ID 补发；
+// EventSource 无法设置请求头，Token 放在 URL 中，Token 刷新或连接被拒绝后用当前 Token 重建连接，
+// 并通过 lastEventId 参数补发期间的通知
+export const subscribeNotices = (userId: string, onNotice: (notice: Notice) => void): NoticeStream => {
+  let source: EventSource | null = null
+  let lastEventId = ''
+  let retryTimer: number | undefined
+
+  const connect = () => {
+    source?.close()
+    window.clearTimeout(retryTimer)
+    const token = localStorage.getItem('token')
+    if (!token) return
+    const params = new URLSearchParams({ token })
+    if (lastEventId) {
+      params.set('lastEventId', lastEventId)
+    }
+    const current = new EventSource(`/api/notice/stream/${userId}?${params}`)
+    current.addEventListener('notice', (event) => {
+      const message = event as MessageEvent
+      if (message.lastEventId) {
+        lastEventId = message.lastEventId
+      }
+      onNotice(JSON.parse(message.data))
+    })
+    current.onerror = () => {
+      // 网络断开时浏览器自动重连；连接被拒绝（如 Token 已过期）时不再重连，稍后用当前 Token 重试
+      if (current.readyState === EventSource.CLOSED) {
+        retryTimer = window.setTimeout(connect, 5000)
+      }
+    }
+    source = current
+  }
+
+  window.addEventListener(TOKEN_REFRESHED_EVENT, connect)
+  connect()
+  return {
+    close: () => {
+      window.removeEventListener(TOKEN_REFRESHED_EVENT, connect)
+      window.clearTimeout(retryTimer)
+      source?.close()
+    }
+  }
+}
+
 // 通知分页查询
 export const getNoticePage = (params: {
   pageNum?: number
@@ -245,7 +328,7 @@ export const exportPunishments = (stuId?: string) => {
 }
 
 // 附件相关
-import type { Attachment } from './types'
+import type { Attachment, AttachmentUpload } from './types'
 
 // 获取附件列表
 export const getAttachmentList = (relatedId: string, relatedType: string): Promise<Result<Attachment[]>> => {
@@ -259,6 +342,89 @@ export const uploadAttachment = (formData: FormData): Promise<Result<Attachment>
   })
 }
 
+// 初始化分片上传
+export const initChunkUpload = (data: {
+  fileName: string
+  fileType: string
+  fileSize: number
+  relatedId: string
+  relatedType: string
+  uploadUserId: string
+}): Promise<Result<AttachmentUpload>> => {
+  return request.post('/attachment/upload/init', data)
+}
+
+// 查询分片上传进度
+export const getChunkUpload = (uploadId: string): Promise<Result<AttachmentUpload>> => {
+  return request.get(`/attachment/upload/${uploadId}`)
+}
+
+// 上传分片
+export const uploadChunk = (uploadId: string, offset: number, chunk: Blob): Promise<Result<AttachmentUpload>> => {
+  return request.put(`/attachment/upload/${uploadId}`, chunk, {
+    params: { offset },
+    headers: { 'Content-Type': 'application/octet-stream' }
+  })
+}
+
+// 完成分片上传
+export const completeChunkUpload = (uploadId: string, sha256: string): Promise<Result<Attachment>> => {
+  return request.post(`/attachment/upload/${uploadId}/complete`, null, { params: { sha256 } })
+}
+
+// 取消分片上传
+export const abortChunkUpload = (uploadId: string): Promise<Result<boolean>> => {
+  return request.delete(`/attachment/upload/${uploadId}`)
+}
+
+// 分片上传大文件，中断后再次调用会从服务端已接收的位置继续
+export const uploadAttachmentInChunks = async (
+  file: File,
+  relatedId: string,
+  relatedType: string,
+  uploadUserId: string,
+  onProgress?: (received: number, total: number) => void
+): Promise<Result<Attachment>> => {
+  const resumeKey = `chunk-upload:${relatedType}:${relatedId}:${file.name}:${file.size}:${file.lastModified}`
+  let upload: AttachmentUpload | null = null
+  const savedId = localStorage.getItem(resumeKey)
+  if (savedId) {
+    const res = await getChunkUpload(savedId)
+    upload = res.code === 200 ? res.data : null
+  }
+  if (!upload) {
+    const res = await initChunkUpload({
+      fileName: file.name,
+      fileType: file.type,
+      fileSize: file.size,
+      relatedId,
+      relatedType,
+      uploadUserId
+    })
+    if (res.code !== 200) {
+      return res as unknown as Result<Attachment>
+    }
+    upload = res.data
+    localStorage.setItem(resumeKey, upload.uploadId)
+  }
+
+  let offset = upload.received
+  while (offset < file.size) {
+    const res = await uploadChunk(upload.uploadId, offset, file.slice(offset, offset + upload.chunkSize))
+    if (res.code !== 200) {
+      return res as unknown as Result<Attachment>
+    }
+    offset = res.data.received
+    onProgress?.(offset, file.size)
+  }
+
+  const digest = await crypto.subtle.digest('SHA-256', await file.arrayBuffer())
+  const sha256 = Array.from(new Uint8Array(digest)).map(b => b.toString(16).padStart(2, '0')).join('')
+  const res = await completeChunkUpload(upload.uploadId, sha256)
+  localStorage.removeItem(resumeKey)
+  return res
+}
+
 // 删除附件
 export const deleteAttachment = (id: string): Promise<Result<boolean>> => {
   return request.delete(`/attachment/${id}`)
@@ -268,3 +434,15 @@ export const deleteAttachment = (id: string): Promise<Result<boolean>> => {
 export const getAttachmentDownloadUrl = (id: string): string => {
   return `/api/attachment/download/${id}`
 }
+
+// 打包下载业务记录的全部附件
+export const downloadAttachmentsZip = (relatedId: string, relatedType: string) => {
+  const token = localStorage.getItem('token')
+  const params = new URLSearchParams({ relatedId, relatedType, token: token || '' })
+  window.open(`/api/attachment/zip?${params}`, '_blank')
+}
+
+// 获取图片附件缩略图URL
+export const getAttachmentThumbnailUrl = (id: string): string => {
+  return `/api/attachment/thumbnail/${id}`
+}
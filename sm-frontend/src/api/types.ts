@@ -185,6 +185,8 @@ export interface Notice {
   noticeId: string
   title: string
   content: string
+  templateCode?: string | null  // 审批通知的模板编码，标题和内容已由后端渲染
+  templateParams?: string | null
   noticeType: string
   targetUser: string
   targetType: 'student' | 'advisor'
@@ -196,6 +198,20 @@ export interface Notice {
   readTime: string | null
 }
 
+// 广播通知（按范围发送，读取时展开为个人通知）
+export interface NoticeBroadcast {
+  broadcastId: string
+  title: string
+  content: string
+  noticeType: string
+  scopeType: 'all' | 'role' | 'department' | 'major' | 'class'
+  scopeValue?: string
+  publishUser: string
+  publishUserId?: string
+  publishTime?: string
+  priority?: '普通' | '重要'
+}
+
 // 操作日志（包含登录日志）
 export interface Log {
   logId: string
@@ -230,6 +246,21 @@ export interface Attachment {
   uploadTime: string
 }
 
+// 分片上传任务
+export interface AttachmentUpload {
+  uploadId: string
+  fileName: string
+  fileType: string
+  fileSize: number
+  chunkSize: number           // 单个分片的最大字节数
+  received: number            // 已接收字节数，续传从此处开始
+  relatedId: string
+  relatedType: 'award' | 'punishment' | 'statusChange' | 'leaveSchool'
+  uploadUserId: string
+  createTime: string
+  updateTime: string
+}
+
 // 分页响应类型
 export interface PageResult<T> {
   records: T[]
@@ -6,6 +6,11 @@ export const login = (data: LoginRequest): Promise<Result<LoginResponse>> => {
   return request.post('/login', data)
 }
 
+// 退出登录（服务端吊销当前 Token）
+export const logout = (): Promise<Result<boolean>> => {
+  return request.post('/logout')
+}
+
 // 学生用户相关
 export const getUserStudentList = (): Promise<Result<UserStudent[]>> => {
   return request.get('/userStudent')
@@ -11,6 +11,9 @@ const service: AxiosInstance = axios.create({
   }
 })
 
+// Token 无感刷新后在 window 上派发的事件，长连接（如通知推送）据此用新 Token 重连
+export const TOKEN_REFRESHED_EVENT = 'token-refreshed'
+
 // 是否正在跳转登录页（防止重复弹窗）
 let isRedirecting = false
 
@@ -58,6 +61,7 @@ service.interceptors.response.use(
     const newToken = response.headers['x-new-token']
     if (newToken) {
       localStorage.setItem('token', newToken)
+      window.dispatchEvent(new CustomEvent(TOKEN_REFRESHED_EVENT, { detail: newToken }))
       console.log('Token 已自动刷新')
     }
     
@@ -90,7 +94,8 @@ service.interceptors.response.use(
       handleLogout('登录已过期，请重新登录')
       return Promise.reject(error)
     }
-    ElMessage.error(error.message || '网络错误')
+    // 429 等带有业务提示的错误响应，优先展示后端返回的信息
+    ElMessage.error(error.response?.data?.message || error.message || '网络错误')
     return Promise.reject(error)
   }
 )